@@ -0,0 +1,41 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.dao.UserDAO;
+import com.whiteboard.model.User;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Test data shared by the benchmarks
+ */
+final class BenchData {
+
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    private BenchData() {
+    }
+
+    /**
+     * A PNG-style data URL of the given length with random (incompressible) content
+     */
+    static String canvasDataUrl(int chars) {
+        StringBuilder dataUrl = new StringBuilder(chars + 32).append("data:image/png;base64,");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (dataUrl.length() < chars) {
+            dataUrl.append(BASE64.charAt(random.nextInt(BASE64.length())));
+        }
+        return dataUrl.toString();
+    }
+
+    /**
+     * Register a user to own benchmark boards
+     * @return The user id
+     */
+    static long user(UserDAO users, String username) {
+        long userId = users.registerUser(new User(username, username + "@bench.test", "not-a-real-hash"));
+        if (userId <= 0) {
+            throw new IllegalStateException("Could not create benchmark user " + username);
+        }
+        return userId;
+    }
+}
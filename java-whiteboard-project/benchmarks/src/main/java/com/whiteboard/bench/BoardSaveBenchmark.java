@@ -0,0 +1,60 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.dao.BoardDAO;
+import com.whiteboard.dao.UserDAO;
+import com.whiteboard.model.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Board save (updateBoardData, the saveBoard path) and load latency against canvas size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+    EmbeddedDatabase.JVM_ARG_URL, EmbeddedDatabase.JVM_ARG_USER, EmbeddedDatabase.JVM_ARG_LOG })
+public class BoardSaveBenchmark {
+
+    // Characters of canvas data URL; MEDIUMTEXT caps it at 16 MB
+    @Param({ "65536", "1048576", "8388608" })
+    public int canvasChars;
+
+    private final BoardDAO dao = new BoardDAO();
+    private long boardId;
+    private String canvas;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDatabase.ensureSchema();
+        long userId = BenchData.user(new UserDAO(), "canvas" + canvasChars);
+        boardId = dao.createBoard(new Board(userId, "Canvas " + canvasChars));
+        canvas = BenchData.canvasDataUrl(canvasChars);
+        dao.updateBoardData(boardId, canvas);
+    }
+
+    @Benchmark
+    public boolean updateBoardData() {
+        return dao.updateBoardData(boardId, canvas);
+    }
+
+    @Benchmark
+    public Optional<Board> getBoardById() {
+        return dao.getBoardById(boardId);
+    }
+}
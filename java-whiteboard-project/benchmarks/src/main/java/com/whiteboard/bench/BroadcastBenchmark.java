@@ -0,0 +1,84 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.websocket.FanOutExecutor;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionOutbound;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.websocket.Session;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One draw frame delivered to every member of a room, through each session's
+ * outbound queue into a remote that completes immediately. Measures the
+ * server's own per-recipient cost with the network taken out.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+
+    @Param({ "8", "64", "512" })
+    public int recipients;
+
+    private Session[] sessions;
+    private FanOutExecutor fanOut;
+    private final AtomicInteger delivered = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessions = MockSessions.create(recipients, "member-");
+        for (Session session : sessions) {
+            SessionOutbound.attach(session);
+        }
+        fanOut = new FanOutExecutor();
+    }
+
+    private static OutboundFrame drawFrame() {
+        return OutboundFrame.of("{\"type\":\"draw\",\"x1\":120,\"y1\":340,\"x2\":128,\"y2\":352,"
+            + "\"color\":\"#1a73e8\",\"tool\":\"pen\",\"strokeWidth\":4,\"lineStyle\":\"solid\","
+            + "\"sessionId\":\"session-17\",\"username\":\"alice\",\"boardId\":42}");
+    }
+
+    /**
+     * Plain loop on the calling thread, the baseline for the executor
+     */
+    @Benchmark
+    public void sequentialLoop() {
+        OutboundFrame frame = drawFrame();
+        for (Session session : sessions) {
+            SessionOutbound.of(session).send(frame, true);
+        }
+    }
+
+    /**
+     * FanOutExecutor, waiting until the last recipient has been handed the frame
+     */
+    @Benchmark
+    public void fanOut() {
+        OutboundFrame frame = drawFrame();
+        delivered.set(0);
+        fanOut.fanOut("bench", sessions, session -> {
+            SessionOutbound.of(session).send(frame, true);
+            delivered.incrementAndGet();
+        });
+        while (delivered.get() < sessions.length) {
+            Thread.onSpinWait();
+        }
+    }
+}
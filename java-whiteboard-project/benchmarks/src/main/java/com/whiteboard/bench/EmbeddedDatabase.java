@@ -0,0 +1,129 @@
+package com.whiteboard.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory H2 database in MySQL mode with sql/schema.sql loaded, for the DAO benchmarks.
+ *
+ * The DAOs reach it through DatabaseConnection, so benchmark forks point
+ * whiteboard.db.url at {@link #URL} through the JVM_ARG_* constants. The database lives
+ * as long as the JVM, not just the connection that created it.
+ */
+final class EmbeddedDatabase {
+
+    static final String URL = "jdbc:h2:mem:whiteboard;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    // Fork arguments for benchmarks that go through the DAOs
+    static final String JVM_ARG_URL = "-Dwhiteboard.db.url=" + URL;
+    static final String JVM_ARG_USER = "-Dwhiteboard.db.user=sa";
+    static final String JVM_ARG_LOG = "-Dwhiteboard.log.level=WARN";
+
+    private static final Pattern CREATE_TABLE =
+        Pattern.compile("^CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INLINE_INDEX =
+        Pattern.compile("(\\b(?:UNIQUE\\s+)?(?:INDEX|KEY)\\s+)(\\w+)(?=\\s*\\()", Pattern.CASE_INSENSITIVE);
+
+    private static boolean loaded;
+
+    private EmbeddedDatabase() {
+    }
+
+    /**
+     * Create the schema once per JVM
+     */
+    static synchronized void ensureSchema() throws IOException, SQLException {
+        if (loaded) {
+            return;
+        }
+        List<String> pending = statements(Files.readString(schemaFile(), StandardCharsets.UTF_8));
+        try (Connection conn = DriverManager.getConnection(URL, "sa", "");
+             Statement stmt = conn.createStatement()) {
+            // schema.sql creates tables before the ones their foreign keys point at;
+            // retry failures until a pass makes no progress
+            while (!pending.isEmpty()) {
+                List<String> failed = new ArrayList<>();
+                SQLException last = null;
+                for (String sql : pending) {
+                    try {
+                        stmt.execute(sql);
+                    } catch (SQLException e) {
+                        failed.add(sql);
+                        last = e;
+                    }
+                }
+                if (failed.size() == pending.size()) {
+                    throw last;
+                }
+                pending = failed;
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * Split the script into statements, dropping comments and the MySQL-only
+     * database, USE, SHOW and DESCRIBE commands
+     */
+    private static List<String> statements(String script) {
+        StringBuilder cleaned = new StringBuilder();
+        for (String line : script.split("\n")) {
+            String trimmed = line.trim();
+            if (!trimmed.startsWith("--")) {
+                cleaned.append(line).append('\n');
+            }
+        }
+        List<String> statements = new ArrayList<>();
+        for (String sql : cleaned.toString().split(";")) {
+            String trimmed = sql.trim();
+            String upper = trimmed.toUpperCase(Locale.ROOT);
+            if (trimmed.isEmpty() || upper.startsWith("CREATE DATABASE") || upper.startsWith("USE ")
+                    || upper.startsWith("SHOW ") || upper.startsWith("DESCRIBE ")) {
+                continue;
+            }
+            // Table options are MySQL storage settings with no meaning here
+            statements.add(qualifyIndexNames(trimmed.replaceAll("\\)\\s*ENGINE=[^)]*$", ")")));
+        }
+        return statements;
+    }
+
+    /**
+     * Prefix inline index names with their table. MySQL scopes index names to a
+     * table, so schema.sql reuses idx_user_id, idx_active and idx_created; H2
+     * scopes them to the schema and rejects the second CREATE TABLE that uses one.
+     */
+    private static String qualifyIndexNames(String sql) {
+        Matcher table = CREATE_TABLE.matcher(sql);
+        if (!table.find()) {
+            return sql;
+        }
+        return INLINE_INDEX.matcher(sql).replaceAll("$1" + table.group(1) + "_$2");
+    }
+
+    /**
+     * sql/schema.sql of the project, found from benchmarks/ or the project directory
+     */
+    private static Path schemaFile() throws IOException {
+        String configured = System.getProperty("whiteboard.bench.schema");
+        String[] candidates = { configured, "../sql/schema.sql", "sql/schema.sql" };
+        for (String candidate : candidates) {
+            if (candidate != null && Files.isRegularFile(Paths.get(candidate))) {
+                return Paths.get(candidate);
+            }
+        }
+        throw new IOException("sql/schema.sql not found; run from the project or benchmarks directory, "
+            + "or set -Dwhiteboard.bench.schema=<path>");
+    }
+}
@@ -0,0 +1,84 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.dao.DrawingEventDAO;
+import com.whiteboard.model.DrawingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drawing event inserts per second: one saveEvent per stroke versus saveEventsBatch.
+ * Scores are per event in every benchmark, so they compare directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+    EmbeddedDatabase.JVM_ARG_URL, EmbeddedDatabase.JVM_ARG_USER, EmbeddedDatabase.JVM_ARG_LOG })
+public class EventInsertBenchmark {
+
+    private final DrawingEventDAO dao = new DrawingEventDAO();
+    private final List<DrawingEvent> batch100 = new ArrayList<>();
+    private final List<DrawingEvent> batch1000 = new ArrayList<>();
+    private DrawingEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDatabase.ensureSchema();
+        event = newEvent(0);
+        for (int i = 0; i < 1000; i++) {
+            if (i < 100) {
+                batch100.add(newEvent(i));
+            }
+            batch1000.add(newEvent(i));
+        }
+    }
+
+    /**
+     * Keep the table from growing across iterations
+     */
+    @TearDown(Level.Iteration)
+    public void clear() {
+        dao.clearAllEvents();
+    }
+
+    private static DrawingEvent newEvent(int i) {
+        DrawingEvent event = new DrawingEvent("bench-session", i, i, i + 4, i + 4, "#1a73e8", "pen", 3);
+        event.setRoomCode("BENCH1");
+        event.setUsername("bench");
+        return event;
+    }
+
+    @Benchmark
+    public long saveEvent() {
+        return dao.saveEvent(event);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public int saveEventsBatch100() {
+        return dao.saveEventsBatch(batch100);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public int saveEventsBatch1000() {
+        return dao.saveEventsBatch(batch1000);
+    }
+}
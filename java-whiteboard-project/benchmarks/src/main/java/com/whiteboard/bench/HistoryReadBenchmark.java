@@ -0,0 +1,74 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.dao.BoardDAO;
+import com.whiteboard.dao.DrawingEventDAO;
+import com.whiteboard.dao.UserDAO;
+import com.whiteboard.model.Board;
+import com.whiteboard.model.DrawingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * History load time (getEventsByBoard, as used for replay on join) against board size.
+ * Other boards' events sit in the same table so the index has something to skip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+    EmbeddedDatabase.JVM_ARG_URL, EmbeddedDatabase.JVM_ARG_USER, EmbeddedDatabase.JVM_ARG_LOG })
+public class HistoryReadBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int boardEvents;
+
+    private final DrawingEventDAO dao = new DrawingEventDAO();
+    private long boardId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        EmbeddedDatabase.ensureSchema();
+        long userId = BenchData.user(new UserDAO(), "history" + boardEvents);
+        BoardDAO boards = new BoardDAO();
+        boardId = boards.createBoard(new Board(userId, "History " + boardEvents));
+        long otherBoardId = boards.createBoard(new Board(userId, "Other " + boardEvents));
+        insert(boardId, boardEvents);
+        insert(otherBoardId, boardEvents / 2);
+    }
+
+    private void insert(long board, int count) {
+        List<DrawingEvent> batch = new ArrayList<>(1000);
+        for (int i = 0; i < count; i++) {
+            DrawingEvent event = new DrawingEvent("bench-session", i % 1920, i % 1080, i % 1920 + 3, i % 1080 + 3,
+                                                  "#1a73e8", "pen", 3);
+            event.setBoardId(board);
+            event.setUsername("bench");
+            batch.add(event);
+            if (batch.size() == 1000 || i == count - 1) {
+                dao.saveEventsBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    @Benchmark
+    public List<DrawingEvent> getEventsByBoard() {
+        return dao.getEventsByBoard(boardId);
+    }
+}
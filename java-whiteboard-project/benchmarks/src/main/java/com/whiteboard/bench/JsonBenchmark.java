@@ -0,0 +1,125 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inbound parsing and outbound serialization: small draw messages and canvas
+ * relays of up to several megabytes, the two ends of the protocol's size range.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+
+    // Size of the canvasData data URL in the canvas message
+    @Param({ "16384", "4194304" })
+    public int canvasChars;
+
+    private String drawMessage;
+    private String canvasMessage;
+    private DrawingEvent event;
+
+    // Reused the way WhiteboardEndpoint reuses its per-thread reader
+    private final JsonMessage reader = new JsonMessage();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        event = new DrawingEvent("session-17", 120, 340, 128, 352, "#1a73e8", "pen", 4);
+        event.setUsername("alice");
+        event.setBoardId(42L);
+        drawMessage = event.toJson();
+
+        canvasMessage = JsonWriter.get().beginObject()
+            .field("type", "canvasState")
+            .field("action", "sync")
+            .field("boardId", 42L)
+            .field("roomCode", "ABC234")
+            .field("canvasData", BenchData.canvasDataUrl(canvasChars))
+            .endObject().build();
+    }
+
+    @Benchmark
+    public DrawingEvent drawFromJson() {
+        return DrawingEvent.fromJson(drawMessage);
+    }
+
+    @Benchmark
+    public String drawToJson() {
+        return event.toJson();
+    }
+
+    /**
+     * What the endpoint does for every message: tokenize, read the type, read fields
+     */
+    @Benchmark
+    public void drawReadFields(Blackhole blackhole) {
+        JsonMessage message = reader.reset(drawMessage);
+        blackhole.consume(message.getString("type"));
+        blackhole.consume(message.getInt("x1"));
+        blackhole.consume(message.getInt("y2"));
+        blackhole.consume(message.getString("color"));
+    }
+
+    @Benchmark
+    public void canvasReadType(Blackhole blackhole) {
+        JsonMessage message = reader.reset(canvasMessage);
+        blackhole.consume(message.getString("type"));
+        blackhole.consume(message.getString("action"));
+    }
+
+    /**
+     * CanvasStateHandler's relay: copy canvasData into the outbound message without decoding it
+     */
+    @Benchmark
+    public String canvasRelay() {
+        JsonMessage message = reader.reset(canvasMessage);
+        JsonWriter builder = JsonWriter.get()
+            .reserve(128 + message.rawLength("canvasData") + 16)
+            .beginObject()
+            .field("type", "canvasState")
+            .field("action", message.getString("action"))
+            .field("boardId", message.getLong("boardId"))
+            .field("roomCode", message.getString("roomCode"));
+        message.writeRaw("canvasData", builder.name("canvasData"));
+        return builder.endObject().build();
+    }
+
+    /**
+     * Decoding the canvas string, as the snapshot cache and saveBoard do
+     */
+    @Benchmark
+    public String canvasGetString() {
+        return reader.reset(canvasMessage).getString("canvasData");
+    }
+
+    @Benchmark
+    public String writeSmallMessage() {
+        return JsonWriter.get().beginObject()
+            .field("type", "userJoined")
+            .field("sessionId", "session-17")
+            .field("username", "alice")
+            .field("count", 12)
+            .field("owner", false)
+            .endObject().build();
+    }
+}
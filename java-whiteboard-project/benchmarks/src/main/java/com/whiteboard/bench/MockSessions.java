@@ -0,0 +1,77 @@
+package com.whiteboard.bench;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Minimal in-memory Sessions for benchmarks.
+ * Only what the server touches on the send path is implemented: id, user
+ * properties, isOpen, and an async remote that completes every send at once.
+ */
+final class MockSessions {
+
+    private MockSessions() {
+    }
+
+    static Session[] create(int count, String prefix) {
+        Session[] sessions = new Session[count];
+        for (int i = 0; i < count; i++) {
+            sessions[i] = create(prefix + i);
+        }
+        return sessions;
+    }
+
+    static Session create(String id) {
+        Map<String, Object> userProperties = new ConcurrentHashMap<>();
+        RemoteEndpoint.Async remote = (RemoteEndpoint.Async) Proxy.newProxyInstance(
+            MockSessions.class.getClassLoader(), new Class<?>[] { RemoteEndpoint.Async.class },
+            (proxy, method, args) -> {
+                if (args != null && args.length == 2 && args[1] instanceof SendHandler) {
+                    // sendText / sendBinary / sendObject with a completion handler
+                    ((SendHandler) args[1]).onResult(new SendResult());
+                }
+                return defaultValue(method.getReturnType());
+            });
+        Session session = (Session) Proxy.newProxyInstance(
+            MockSessions.class.getClassLoader(), new Class<?>[] { Session.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getId":
+                        return id;
+                    case "getUserProperties":
+                        return userProperties;
+                    case "isOpen":
+                        return true;
+                    case "getAsyncRemote":
+                        return remote;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    case "toString":
+                        return "MockSession[" + id + "]";
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            });
+        return session;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.whiteboard.bench;
+
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.model.Room;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.websocket.Session;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Room membership and event-tail operations at different room sizes.
+ * Membership changes rebuild the copy-on-write recipient array, so their cost
+ * grows with the room while reads stay constant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int members;
+
+    private Room room;
+    private Session visitor;
+    private DrawingEvent event;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Session[] sessions = MockSessions.create(members, "member-");
+        room = new Room(sessions[0]);
+        for (int i = 1; i < sessions.length; i++) {
+            room.addPendingRequest(sessions[i], "user" + i);
+            room.approveSession(sessions[i]);
+        }
+        visitor = MockSessions.create("visitor");
+        event = new DrawingEvent("member-1", 10, 10, 20, 20, "#000000", "pen", 2);
+    }
+
+    /**
+     * A full join: request, approval, then leaving again
+     */
+    @Benchmark
+    public int joinApproveLeave() {
+        room.addPendingRequest(visitor, "visitor");
+        room.approveSession(visitor);
+        room.removeSession(visitor);
+        return room.getApprovedCount();
+    }
+
+    @Benchmark
+    public void readMembership(Blackhole blackhole) {
+        blackhole.consume(room.getRecipients());
+        blackhole.consume(room.isApproved(visitor));
+        blackhole.consume(room.getApprovedCount());
+        blackhole.consume(room.getPendingCount());
+    }
+
+    @Benchmark
+    public void recordEvent() {
+        room.recordEvent(event);
+    }
+}
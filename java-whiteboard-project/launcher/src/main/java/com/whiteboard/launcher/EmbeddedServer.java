@@ -0,0 +1,249 @@
+package com.whiteboard.launcher;
+
+import com.whiteboard.metrics.MetricsServlet;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.WhiteboardEndpoint;
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.servlets.DefaultServlet;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.tomcat.util.scan.StandardJarScanner;
+import org.apache.tomcat.websocket.server.WsSci;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+
+/**
+ * Runs the whiteboard in an embedded Tomcat, without a WAR or the Maven plugins.
+ *
+ * The context is assembled by hand instead of from web.xml and annotation
+ * scanning: the endpoint, the metrics servlet and a static file servlet are
+ * registered directly and jar scanning is off, which is what keeps startup well
+ * under a second. Every container setting comes from {@link Settings}, so load
+ * tests and benchmarks can start servers in-process with exact thread and
+ * buffer configurations (port 0 picks a free port).
+ *
+ *   java -jar target/whiteboard-server.jar                     (port 8082)
+ *   java -Dwhiteboard.server.port=9000 -Dwhiteboard.server.maxThreads=50 -jar ...
+ */
+public class EmbeddedServer {
+
+    private static final Log log = Log.get(EmbeddedServer.class);
+
+    private final Settings settings;
+    private Tomcat tomcat;
+    private File baseDir;
+
+    public EmbeddedServer(Settings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        EmbeddedServer server = new EmbeddedServer(Settings.fromConfig());
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop, "whiteboard-shutdown"));
+        server.start();
+        server.tomcat.getServer().await();
+    }
+
+    /**
+     * Start the container and return once it is accepting connections
+     */
+    public synchronized void start() throws LifecycleException, IOException {
+        long start = System.nanoTime();
+        baseDir = Files.createTempDirectory("whiteboard-tomcat").toFile();
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(baseDir.getAbsolutePath());
+        tomcat.setPort(settings.port);
+
+        Connector connector = tomcat.getConnector();
+        connector.setProperty("maxThreads", Integer.toString(settings.maxThreads));
+        connector.setProperty("minSpareThreads", Integer.toString(Math.min(settings.minSpareThreads, settings.maxThreads)));
+        connector.setProperty("maxConnections", Integer.toString(settings.maxConnections));
+        connector.setProperty("acceptCount", Integer.toString(settings.acceptCount));
+        connector.setProperty("connectionTimeout", Integer.toString(settings.connectionTimeoutMillis));
+
+        Context context = tomcat.addContext(settings.getContextPath(), settings.resolveDocBase(baseDir));
+        // Nothing to find on the class path; scanning it is most of a default startup
+        StandardJarScanner scanner = (StandardJarScanner) context.getJarScanner();
+        scanner.setScanClassPath(false);
+        scanner.setScanManifest(false);
+
+        // Default per-message buffers; WhiteboardEndpoint raises them per session on open
+        context.addParameter("org.apache.tomcat.websocket.textBufferSize", Integer.toString(settings.textBufferSize));
+        context.addParameter("org.apache.tomcat.websocket.binaryBufferSize", Integer.toString(settings.binaryBufferSize));
+
+        // Register the endpoint directly rather than letting WsSci scan for it
+        context.addServletContainerInitializer(new WsSci(), Collections.singleton(WhiteboardEndpoint.class));
+
+        Tomcat.addServlet(context, "metrics", new MetricsServlet()).setLoadOnStartup(1);
+        context.addServletMappingDecoded("/metrics", "metrics");
+
+        Tomcat.addServlet(context, "static", new DefaultServlet());
+        context.addServletMappingDecoded("/", "static");
+        Tomcat.addDefaultMimeTypeMappings(context);
+        context.addWelcomeFile("index.html");
+
+        tomcat.start();
+        log.info("Whiteboard started on port " + getPort() + settings.getContextPath() + " in "
+                 + (System.nanoTime() - start) / 1_000_000 + " ms (maxThreads=" + settings.maxThreads + ")");
+    }
+
+    /**
+     * The port actually bound, which differs from the setting when it was 0
+     */
+    public int getPort() {
+        return tomcat.getConnector().getLocalPort();
+    }
+
+    /**
+     * WebSocket URL of the endpoint, e.g. ws://localhost:8082/whiteboard/whiteboard
+     */
+    public String getEndpointUrl() {
+        return "ws://localhost:" + getPort() + settings.getContextPath() + "/whiteboard";
+    }
+
+    public synchronized void stop() {
+        if (tomcat == null) {
+            return;
+        }
+        try {
+            tomcat.stop();
+            tomcat.destroy();
+        } catch (LifecycleException e) {
+            log.error("Error stopping embedded server: " + e.getMessage(), e);
+        } finally {
+            tomcat = null;
+            deleteRecursively(baseDir);
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Container settings. Defaults come from whiteboard.server.* properties; in-process
+     * callers can override any of them before starting.
+     */
+    public static class Settings {
+        private int port = 8082;
+        private String contextPath = "/whiteboard";
+        private String webappDir;
+        private int maxThreads = 200;
+        private int minSpareThreads = 10;
+        private int maxConnections = 8192;
+        private int acceptCount = 100;
+        private int connectionTimeoutMillis = 20_000;
+        private int textBufferSize = 8192;
+        private int binaryBufferSize = 8192;
+
+        public static Settings fromConfig() {
+            Settings settings = new Settings();
+            settings.port = Config.getInt("whiteboard.server.port", settings.port);
+            settings.contextPath = Config.getString("whiteboard.server.contextPath", settings.contextPath);
+            settings.webappDir = Config.getString("whiteboard.server.webapp", null);
+            settings.maxThreads = Config.getInt("whiteboard.server.maxThreads", settings.maxThreads);
+            settings.minSpareThreads = Config.getInt("whiteboard.server.minSpareThreads", settings.minSpareThreads);
+            settings.maxConnections = Config.getInt("whiteboard.server.maxConnections", settings.maxConnections);
+            settings.acceptCount = Config.getInt("whiteboard.server.acceptCount", settings.acceptCount);
+            settings.connectionTimeoutMillis = Config.getInt("whiteboard.server.connectionTimeoutMillis",
+                                                             settings.connectionTimeoutMillis);
+            settings.textBufferSize = Config.getInt("whiteboard.server.textBufferSize", settings.textBufferSize);
+            settings.binaryBufferSize = Config.getInt("whiteboard.server.binaryBufferSize", settings.binaryBufferSize);
+            return settings;
+        }
+
+        public Settings port(int port) {
+            this.port = port;
+            return this;
+        }
+
+        /**
+         * Context path such as /whiteboard; "" or "/" serves from the root
+         */
+        public Settings contextPath(String contextPath) {
+            this.contextPath = contextPath;
+            return this;
+        }
+
+        /**
+         * Directory served as static content (index.html, js, css)
+         */
+        public Settings webappDir(String webappDir) {
+            this.webappDir = webappDir;
+            return this;
+        }
+
+        public Settings maxThreads(int maxThreads) {
+            this.maxThreads = maxThreads;
+            return this;
+        }
+
+        public Settings minSpareThreads(int minSpareThreads) {
+            this.minSpareThreads = minSpareThreads;
+            return this;
+        }
+
+        public Settings maxConnections(int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        public Settings acceptCount(int acceptCount) {
+            this.acceptCount = acceptCount;
+            return this;
+        }
+
+        public Settings connectionTimeoutMillis(int connectionTimeoutMillis) {
+            this.connectionTimeoutMillis = connectionTimeoutMillis;
+            return this;
+        }
+
+        public Settings textBufferSize(int textBufferSize) {
+            this.textBufferSize = textBufferSize;
+            return this;
+        }
+
+        public Settings binaryBufferSize(int binaryBufferSize) {
+            this.binaryBufferSize = binaryBufferSize;
+            return this;
+        }
+
+        /**
+         * Context path in Tomcat's form, where the root context is ""
+         */
+        String getContextPath() {
+            return contextPath == null || contextPath.equals("/") ? "" : contextPath;
+        }
+
+        /**
+         * The configured web app directory, else the source tree's when run from the
+         * project, else an empty directory (WebSocket and /metrics only)
+         */
+        String resolveDocBase(File baseDir) throws IOException {
+            String[] candidates = { webappDir, "src/main/webapp", "../src/main/webapp" };
+            for (String candidate : candidates) {
+                if (candidate != null && new File(candidate, "index.html").isFile()) {
+                    return new File(candidate).getAbsolutePath();
+                }
+            }
+            if (webappDir != null) {
+                log.warn("No index.html in " + webappDir + " - serving no static content");
+            }
+            File empty = new File(baseDir, "webapp");
+            Files.createDirectories(empty.toPath());
+            return empty.getAbsolutePath();
+        }
+    }
+}
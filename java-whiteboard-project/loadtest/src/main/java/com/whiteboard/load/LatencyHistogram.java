@@ -0,0 +1,80 @@
+package com.whiteboard.load;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in microseconds with about 1.5% relative error.
+ * Values below 128us are exact; above that each power of two is split into 64
+ * linear sub-buckets, so percentiles stay accurate from microseconds to minutes
+ * without keeping every sample.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS * 64);
+    private final LongAdder total = new LongAdder();
+    private volatile long max;
+
+    void record(long micros) {
+        if (micros < 0) {
+            micros = 0;
+        }
+        counts.incrementAndGet(index(micros));
+        total.increment();
+        if (micros > max) {
+            synchronized (this) {
+                if (micros > max) {
+                    max = micros;
+                }
+            }
+        }
+    }
+
+    long getCount() {
+        return total.sum();
+    }
+
+    long getMax() {
+        return max;
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0-100), or 0 if empty
+     */
+    long percentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int sub = (int) (value >>> exponent) - SUB_BUCKETS / 2;
+        return exponent * (SUB_BUCKETS / 2) + SUB_BUCKETS / 2 + sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - SUB_BUCKETS / 2) / (SUB_BUCKETS / 2);
+        int sub = (index - SUB_BUCKETS / 2) % (SUB_BUCKETS / 2) + SUB_BUCKETS / 2;
+        return ((long) (sub + 1) << exponent) - 1;
+    }
+}
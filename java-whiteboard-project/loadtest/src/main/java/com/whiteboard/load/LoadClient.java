@@ -0,0 +1,213 @@
+package com.whiteboard.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * One simulated user: a WebSocket session that speaks the whiteboard's JSON protocol.
+ *
+ * Each draw carries the client's sequence number in x1. When the server relays a
+ * draw to another client, that client looks up the sender by sessionId and the
+ * send time by sequence number, which gives draw-to-peer latency without any
+ * clock shared between machines (all clients live in this JVM).
+ */
+final class LoadClient implements WebSocket.Listener {
+
+    // Send times of the most recent draws, indexed by sequence number
+    private static final int SENT_RING = 1 << 16;
+
+    private final int index;
+    private final LoadGenerator generator;
+    private final StringBuilder partial = new StringBuilder();
+    // Message type -> future completed by the next message of that type
+    private final Map<String, CompletableFuture<String>> awaiting = new ConcurrentHashMap<>();
+    private final AtomicLongArray sentAt = new AtomicLongArray(SENT_RING);
+    private final AtomicLong sequence = new AtomicLong();
+
+    private volatile WebSocket socket;
+    private volatile String sessionId;
+    private volatile boolean owner;
+    private CompletableFuture<WebSocket> sendChain = CompletableFuture.completedFuture(null);
+
+    LoadClient(int index, LoadGenerator generator) {
+        this.index = index;
+        this.generator = generator;
+    }
+
+    /**
+     * Open the connection and wait for the server's welcome (which carries our session id)
+     */
+    CompletableFuture<String> connect(HttpClient http, URI uri) {
+        CompletableFuture<String> welcome = expect("welcome");
+        http.newWebSocketBuilder().buildAsync(uri, this).whenComplete((ws, error) -> {
+            if (error != null) {
+                welcome.completeExceptionally(error);
+            }
+        });
+        return welcome.thenApply(text -> {
+            sessionId = LoadGenerator.stringField(text, "sessionId");
+            generator.registerSession(sessionId, this);
+            return sessionId;
+        });
+    }
+
+    /**
+     * Future completed by the next message of the given type
+     */
+    CompletableFuture<String> expect(String type) {
+        return awaiting.computeIfAbsent(type, t -> new CompletableFuture<>());
+    }
+
+    /**
+     * Send a message after every earlier one; the JDK client rejects overlapping sends
+     */
+    synchronized void send(String text) {
+        sendChain = sendChain.thenCompose(previous -> {
+            WebSocket ws = socket;
+            if (ws == null || ws.isOutputClosed()) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Socket closed"));
+            }
+            return ws.sendText(text, true);
+        }).exceptionally(error -> {
+            generator.recordError("send", error);
+            return null;
+        });
+    }
+
+    void sendDraw() {
+        long seq = sequence.getAndIncrement();
+        sentAt.set((int) (seq & (SENT_RING - 1)), System.nanoTime());
+        int x = (int) (seq & Integer.MAX_VALUE);
+        send("{\"type\":\"draw\",\"x1\":" + x + ",\"y1\":" + index + ",\"x2\":" + (x + 1)
+            + ",\"y2\":" + (index + 1) + ",\"color\":\"#1a73e8\",\"tool\":\"pen\","
+            + "\"strokeWidth\":2,\"lineStyle\":\"solid\"}");
+        generator.drawSent();
+    }
+
+    long sentAt(long seq) {
+        return sentAt.get((int) (seq & (SENT_RING - 1)));
+    }
+
+    void setOwner(boolean owner) {
+        this.owner = owner;
+    }
+
+    String getSessionId() {
+        return sessionId;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    void close() {
+        WebSocket ws = socket;
+        if (ws != null && !ws.isOutputClosed()) {
+            ws.sendClose(WebSocket.NORMAL_CLOSURE, "load test done");
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket) {
+        socket = webSocket;
+        webSocket.request(1);
+    }
+
+    @Override
+    public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+        partial.append(data);
+        if (last) {
+            String text = partial.toString();
+            partial.setLength(0);
+            try {
+                handle(text);
+            } catch (RuntimeException e) {
+                generator.recordError("receive", e);
+            }
+        }
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onBinary(WebSocket webSocket, ByteBuffer data, boolean last) {
+        // Binary frames are only sent to clients that negotiate them, which this one never does
+        webSocket.request(1);
+        return null;
+    }
+
+    @Override
+    public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+        generator.sessionClosed(this, statusCode, reason);
+        return null;
+    }
+
+    @Override
+    public void onError(WebSocket webSocket, Throwable error) {
+        generator.recordError("socket", error);
+        for (CompletableFuture<String> future : awaiting.values()) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void handle(String text) {
+        long now = System.nanoTime();
+        String type = LoadGenerator.stringField(text, "type");
+        if (type == null) {
+            return;
+        }
+        switch (type) {
+            case "draw":
+            case "batch":
+                receiveDraws(text, now);
+                return;
+            case "joinRequest":
+                if (owner) {
+                    // Approve everyone, as a room owner clicking "approve" would
+                    send("{\"type\":\"approveUser\",\"sessionId\":\""
+                        + LoadGenerator.stringField(text, "sessionId") + "\"}");
+                }
+                break;
+            case "error":
+            case "loginFailed":
+                // registerFailed is expected when the account exists from an earlier run
+                generator.recordServerError(type, LoadGenerator.stringField(text, "message"));
+                break;
+            default:
+                break;
+        }
+        CompletableFuture<String> future = awaiting.remove(type);
+        if (future != null) {
+            future.complete(text);
+        }
+    }
+
+    /**
+     * Account every draw in a frame; batches hold several draw objects back to back
+     */
+    private void receiveDraws(String text, long now) {
+        int from = 0;
+        while ((from = text.indexOf("{\"type\":\"draw\"", from)) >= 0) {
+            int end = text.indexOf('}', from);
+            if (end < 0) {
+                return;
+            }
+            String draw = text.substring(from, end + 1);
+            from = end + 1;
+            String sender = LoadGenerator.stringField(draw, "sessionId");
+            if (sender == null || sender.equals(sessionId)) {
+                // Our own stroke echoed back by the room broadcast
+                continue;
+            }
+            generator.drawReceived(sender, LoadGenerator.longField(draw, "x1"), now);
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package com.whiteboard.load;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator for a running whiteboard server.
+ *
+ * Opens --sessions WebSocket sessions, signs them in (guest mode, registered
+ * accounts, or not at all), spreads them over --rooms rooms using the real
+ * createRoom / joinRoom / approveUser flow, then has every session draw at
+ * --rate segments per second for --duration. Reports draw-to-peer latency
+ * percentiles, throughput and errors, excluding the --warmup period.
+ *
+ *   java -jar target/loadtest.jar --url=ws://localhost:8082/whiteboard/whiteboard \
+ *        --sessions=200 --rooms=10 --rate=20 --duration=60s
+ */
+public final class LoadGenerator {
+
+    private final Options options;
+    private final Map<String, LoadClient> clientsBySession = new ConcurrentHashMap<>();
+    private final List<LoadClient> clients = new ArrayList<>();
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder drawsSent = new LongAdder();
+    private final LongAdder drawsReceived = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder serverErrors = new LongAdder();
+    private final LongAdder unexpectedCloses = new LongAdder();
+    private final Map<String, LongAdder> errorsByKind = new ConcurrentHashMap<>();
+
+    // Samples before this (System.nanoTime) are warmup and not recorded
+    private volatile long measureFrom = Long.MAX_VALUE;
+    private volatile boolean stopping;
+
+    private LoadGenerator(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+        new LoadGenerator(options).run();
+    }
+
+    private void run() throws Exception {
+        System.out.println("Target " + options.url + ": " + options.sessions + " sessions in "
+            + options.rooms + " rooms, " + options.rate + " draws/s each, auth=" + options.auth);
+
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        URI uri = URI.create(options.url);
+
+        long setupStart = System.nanoTime();
+        List<CompletableFuture<?>> connecting = new ArrayList<>();
+        for (int i = 0; i < options.sessions; i++) {
+            LoadClient client = new LoadClient(i, this);
+            clients.add(client);
+            connecting.add(client.connect(http, uri).thenCompose(id -> signIn(client)));
+        }
+        await(connecting, "connect and sign in");
+
+        // The first client of each room creates it and approves everyone who asks to join
+        List<LoadClient> owners = clients.subList(0, options.rooms);
+        String[] roomCodes = new String[options.rooms];
+        List<CompletableFuture<?>> creating = new ArrayList<>();
+        for (int r = 0; r < owners.size(); r++) {
+            LoadClient owner = owners.get(r);
+            owner.setOwner(true);
+            int room = r;
+            CompletableFuture<String> created = owner.expect("roomCreated");
+            owner.send("{\"type\":\"createRoom\"}");
+            creating.add(created.thenAccept(text -> roomCodes[room] = stringField(text, "roomCode")));
+        }
+        await(creating, "create rooms");
+
+        List<CompletableFuture<?>> joining = new ArrayList<>();
+        for (int i = options.rooms; i < clients.size(); i++) {
+            LoadClient member = clients.get(i);
+            CompletableFuture<String> approved = member.expect("approved");
+            member.send("{\"type\":\"joinRoom\",\"roomCode\":\"" + roomCodes[i % options.rooms]
+                + "\",\"username\":\"load" + i + "\"}");
+            joining.add(approved);
+        }
+        await(joining, "join rooms");
+        System.out.printf("Setup complete in %d ms%n", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - setupStart));
+
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+                Thread thread = new Thread(runnable, "load-draw");
+                thread.setDaemon(true);
+                return thread;
+            });
+        long periodNanos = Math.max(1, (long) (1_000_000_000L / options.rate));
+        for (LoadClient client : clients) {
+            // Random phase so sessions do not all draw on the same tick
+            long offset = ThreadLocalRandom.current().nextLong(periodNanos);
+            scheduler.scheduleAtFixedRate(() -> {
+                if (!stopping) {
+                    client.sendDraw();
+                }
+            }, offset, periodNanos, TimeUnit.NANOSECONDS);
+        }
+
+        long start = System.nanoTime();
+        measureFrom = start + options.warmup.toNanos();
+        long end = measureFrom + options.duration.toNanos();
+        long lastSent = 0;
+        long lastReceived = 0;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(options.reportInterval.toMillis(),
+                                  Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            long sent = drawsSent.sum();
+            long received = drawsReceived.sum();
+            double seconds = options.reportInterval.toMillis() / 1000.0;
+            System.out.printf("%6.1fs  sent %8.0f/s  received %9.0f/s  p50 %s  p99 %s  errors %d%n",
+                (System.nanoTime() - start) / 1e9, (sent - lastSent) / seconds, (received - lastReceived) / seconds,
+                micros(latency.percentile(50)), micros(latency.percentile(99)), errors.sum() + serverErrors.sum());
+            lastSent = sent;
+            lastReceived = received;
+        }
+
+        stopping = true;
+        scheduler.shutdownNow();
+        // Let in-flight draws arrive before the totals are read
+        Thread.sleep(options.drain.toMillis());
+        report();
+        for (LoadClient client : clients) {
+            client.close();
+        }
+    }
+
+    private CompletableFuture<?> signIn(LoadClient client) {
+        switch (options.auth) {
+            case "guest": {
+                CompletableFuture<String> activated = client.expect("guestModeActivated");
+                client.send("{\"type\":\"guestMode\"}");
+                return activated;
+            }
+            case "login": {
+                // Register first; "already exists" from an earlier run is fine, the login decides
+                String username = options.userPrefix + client.getIndex();
+                CompletableFuture<String> registered = client.expect("registerSuccess")
+                    .applyToEither(client.expect("registerFailed"), text -> text);
+                client.send("{\"type\":\"register\",\"username\":\"" + username + "\",\"email\":\"" + username
+                    + "@load.test\",\"password\":\"" + options.password + "\"}");
+                return registered.thenCompose(text -> {
+                    CompletableFuture<String> loggedIn = client.expect("loginSuccess");
+                    client.send("{\"type\":\"login\",\"username\":\"" + username
+                        + "\",\"password\":\"" + options.password + "\"}");
+                    return loggedIn;
+                });
+            }
+            default:
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private void await(List<CompletableFuture<?>> futures, String phase) throws Exception {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .get(options.setupTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            long done = futures.stream().filter(f -> f.isDone() && !f.isCompletedExceptionally()).count();
+            throw new IllegalStateException("Failed to " + phase + ": " + done + "/" + futures.size()
+                + " completed (" + e + ")", e);
+        }
+    }
+
+    private void report() {
+        long sent = drawsSent.sum();
+        long received = drawsReceived.sum();
+        double seconds = options.duration.toMillis() / 1000.0;
+        // Every draw should reach every other member of its room
+        long membersPerRoom = Math.max(1, options.sessions / options.rooms);
+
+        System.out.println();
+        System.out.println("=== Results (" + options.duration.toSeconds() + "s measured after "
+            + options.warmup.toSeconds() + "s warmup) ===");
+        System.out.printf("Draws sent          %d (%.0f/s)%n", sent, sent / seconds);
+        System.out.printf("Peer receipts       %d (%.0f/s), about %d expected%n",
+            received, received / seconds, sent * (membersPerRoom - 1));
+        System.out.printf("Latency p50         %s%n", micros(latency.percentile(50)));
+        System.out.printf("Latency p99         %s%n", micros(latency.percentile(99)));
+        System.out.printf("Latency p99.9       %s%n", micros(latency.percentile(99.9)));
+        System.out.printf("Latency max         %s%n", micros(latency.getMax()));
+        System.out.printf("Client errors       %d%n", errors.sum());
+        System.out.printf("Server errors       %d%n", serverErrors.sum());
+        System.out.printf("Unexpected closes   %d%n", unexpectedCloses.sum());
+        for (Map.Entry<String, LongAdder> entry : errorsByKind.entrySet()) {
+            System.out.printf("  %-18s %d%n", entry.getKey(), entry.getValue().sum());
+        }
+    }
+
+    private static String micros(long micros) {
+        return micros >= 10_000 ? String.format("%.1f ms", micros / 1000.0) : micros + " us";
+    }
+
+    void registerSession(String sessionId, LoadClient client) {
+        clientsBySession.put(sessionId, client);
+    }
+
+    void drawSent() {
+        if (System.nanoTime() >= measureFrom) {
+            drawsSent.increment();
+        }
+    }
+
+    void drawReceived(String senderSessionId, long seq, long receivedNanos) {
+        LoadClient sender = clientsBySession.get(senderSessionId);
+        if (sender == null || seq < 0) {
+            return;
+        }
+        long sentNanos = sender.sentAt(seq);
+        if (sentNanos < measureFrom) {
+            return;
+        }
+        drawsReceived.increment();
+        latency.record(TimeUnit.NANOSECONDS.toMicros(receivedNanos - sentNanos));
+    }
+
+    void recordError(String kind, Throwable error) {
+        if (stopping) {
+            return;
+        }
+        errors.increment();
+        errorsByKind.computeIfAbsent(kind + ": " + error.getClass().getSimpleName(), k -> new LongAdder()).increment();
+    }
+
+    void recordServerError(String type, String message) {
+        serverErrors.increment();
+        errorsByKind.computeIfAbsent(type + ": " + message, k -> new LongAdder()).increment();
+    }
+
+    void sessionClosed(LoadClient client, int statusCode, String reason) {
+        if (!stopping) {
+            unexpectedCloses.increment();
+            errorsByKind.computeIfAbsent("closed " + statusCode + ": " + reason, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Value of a top-level string field in a flat JSON message, or null.
+     * The server's messages put the fields this tool reads before any nested content.
+     */
+    static String stringField(String json, String name) {
+        String key = "\"" + name + "\":\"";
+        int start = json.indexOf(key);
+        if (start < 0) {
+            return null;
+        }
+        start += key.length();
+        int end = json.indexOf('"', start);
+        return end < 0 ? null : json.substring(start, end);
+    }
+
+    static long longField(String json, String name) {
+        String key = "\"" + name + "\":";
+        int start = json.indexOf(key);
+        if (start < 0) {
+            return -1;
+        }
+        start += key.length();
+        int end = start;
+        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) {
+            end++;
+        }
+        return end == start ? -1 : Long.parseLong(json.substring(start, end));
+    }
+
+    /**
+     * Command line options, --name=value
+     */
+    private static final class Options {
+
+        static final String USAGE = String.join("\n",
+            "Usage: java -jar loadtest.jar [--option=value ...]",
+            "  --url=ws://localhost:8082/whiteboard/whiteboard   server endpoint",
+            "  --sessions=50          WebSocket sessions to open",
+            "  --rooms=5              rooms to spread them over (sessions/rooms members each)",
+            "  --rate=10              draw segments per second per session",
+            "  --duration=30s         measured run time (ms, s or m suffix)",
+            "  --warmup=5s            run time before measuring starts",
+            "  --auth=guest           guest, login (register + login) or none",
+            "  --userPrefix=load      usernames for --auth=login are <prefix><n>",
+            "  --password=loadtest1   password for --auth=login",
+            "  --setupTimeout=30s     limit for connecting, signing in and joining",
+            "  --reportInterval=5s    progress line interval",
+            "  --drain=2s             wait for in-flight draws before the final report");
+
+        String url = "ws://localhost:8082/whiteboard/whiteboard";
+        int sessions = 50;
+        int rooms = 5;
+        double rate = 10;
+        Duration duration = Duration.ofSeconds(30);
+        Duration warmup = Duration.ofSeconds(5);
+        String auth = "guest";
+        String userPrefix = "load";
+        String password = "loadtest1";
+        Duration setupTimeout = Duration.ofSeconds(30);
+        Duration reportInterval = Duration.ofSeconds(5);
+        Duration drain = Duration.ofSeconds(2);
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            for (String arg : args) {
+                if (arg.equals("--help") || arg.equals("-h") || !arg.startsWith("--") || !arg.contains("=")) {
+                    return null;
+                }
+                int eq = arg.indexOf('=');
+                values.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+            Options options = new Options();
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                String value = entry.getValue();
+                switch (entry.getKey()) {
+                    case "url": options.url = value; break;
+                    case "sessions": options.sessions = Integer.parseInt(value); break;
+                    case "rooms": options.rooms = Integer.parseInt(value); break;
+                    case "rate": options.rate = Double.parseDouble(value); break;
+                    case "duration": options.duration = duration(value); break;
+                    case "warmup": options.warmup = duration(value); break;
+                    case "auth": options.auth = value; break;
+                    case "userPrefix": options.userPrefix = value; break;
+                    case "password": options.password = value; break;
+                    case "setupTimeout": options.setupTimeout = duration(value); break;
+                    case "reportInterval": options.reportInterval = duration(value); break;
+                    case "drain": options.drain = duration(value); break;
+                    default:
+                        System.err.println("Unknown option: --" + entry.getKey());
+                        return null;
+                }
+            }
+            if (options.rooms < 1 || options.sessions < options.rooms || options.rate <= 0
+                    || !List.of("guest", "login", "none").contains(options.auth)) {
+                System.err.println("Need sessions >= rooms >= 1, rate > 0 and auth guest|login|none");
+                return null;
+            }
+            return options;
+        }
+
+        private static Duration duration(String value) {
+            if (value.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+            }
+            if (value.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            if (value.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+            }
+            return Duration.ofSeconds(Long.parseLong(value));
+        }
+    }
+}
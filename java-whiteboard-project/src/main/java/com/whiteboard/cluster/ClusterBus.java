@@ -0,0 +1,67 @@
+package com.whiteboard.cluster;
+
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+
+import java.util.UUID;
+
+/**
+ * Carries room, board and server-wide broadcasts between the nodes of a cluster,
+ * so participants of one board or room can be connected to different servers.
+ *
+ * A node delivers its own broadcasts locally and publishes them; every other node
+ * receives them and delivers to its own sessions. Delivery is best effort and in
+ * publish order per sender; a node never receives its own messages.
+ *
+ * Selected with whiteboard.cluster.bus:
+ *   none   single node (default)
+ *   local  {@link LocalClusterBus}, nodes in one JVM (tests)
+ *   tcp    {@link TcpClusterBus}, a full mesh over TCP
+ */
+public interface ClusterBus extends AutoCloseable {
+
+    /**
+     * Receives messages published by other nodes
+     */
+    interface Receiver {
+        void deliver(ClusterMessage message);
+    }
+
+    /**
+     * This node's id, carried as the origin of everything it publishes
+     */
+    String getNodeId();
+
+    /**
+     * Connect to the cluster and start handing other nodes' messages to the receiver
+     */
+    void start(Receiver receiver);
+
+    /**
+     * Send a message to every other node. Never blocks on the network.
+     */
+    void publish(ClusterMessage message);
+
+    @Override
+    void close();
+
+    /**
+     * The bus configured by whiteboard.cluster.*, not yet started
+     * @return The bus, or null when clustering is off
+     */
+    static ClusterBus fromConfig() {
+        String type = Config.getString("whiteboard.cluster.bus", "none");
+        String nodeId = Config.getString("whiteboard.cluster.nodeId", UUID.randomUUID().toString().substring(0, 8));
+        switch (type) {
+            case "none":
+                return null;
+            case "local":
+                return LocalClusterBus.DEFAULT_NETWORK.join(nodeId);
+            case "tcp":
+                return TcpClusterBus.fromConfig(nodeId);
+            default:
+                Log.get(ClusterBus.class).error("Unknown whiteboard.cluster.bus " + type + " - running as a single node");
+                return null;
+        }
+    }
+}
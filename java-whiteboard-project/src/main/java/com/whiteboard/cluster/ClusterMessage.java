@@ -0,0 +1,139 @@
+package com.whiteboard.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A broadcast relayed between nodes: the JSON payload plus who it is for.
+ * Nodes deliver it to their own sessions on the addressed board (or to everyone),
+ * exactly as they deliver broadcasts that originate locally. Room broadcasts are
+ * never relayed: a room and all its members live on the node that created it.
+ *
+ * Wire form (see {@link #encode()}): version, scope, flags, then origin, key and
+ * payload as length-prefixed UTF-8.
+ */
+public final class ClusterMessage {
+
+    // 2: the unused ROOM scope and batched flag were dropped
+    private static final byte VERSION = 2;
+    private static final int FLAG_CRITICAL = 1;
+
+    /**
+     * Which sessions a message is for
+     */
+    public enum Scope {
+        // Sessions with the board whose id is the key open
+        BOARD,
+        // Every connected session; no key
+        ALL
+    }
+
+    private final String origin;
+    private final Scope scope;
+    private final String key;
+    private final String payload;
+    private final boolean critical;
+
+    public ClusterMessage(String origin, Scope scope, String key, String payload, boolean critical) {
+        this.origin = origin;
+        this.scope = scope;
+        this.key = key != null ? key : "";
+        this.payload = payload;
+        this.critical = critical;
+    }
+
+    /**
+     * Node id of the publisher
+     */
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * Board id, or empty for {@link Scope#ALL}
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * The message exactly as local clients receive it
+     */
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Whether slow consumers must get it (non-critical messages may be dropped for them)
+     */
+    public boolean isCritical() {
+        return critical;
+    }
+
+    public byte[] encode() {
+        byte[] payloadBytes = payload.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payloadBytes.length + 64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(scope.ordinal());
+            out.writeByte(critical ? FLAG_CRITICAL : 0);
+            writeString(out, origin.getBytes(StandardCharsets.UTF_8));
+            writeString(out, key.getBytes(StandardCharsets.UTF_8));
+            writeString(out, payloadBytes);
+        } catch (IOException e) {
+            // Not possible writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Read a message produced by {@link #encode()}
+     * @throws IOException If the bytes are not a message of a known version
+     */
+    public static ClusterMessage decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int version = in.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported cluster message version " + version);
+        }
+        int scope = in.readUnsignedByte();
+        if (scope >= Scope.values().length) {
+            throw new IOException("Unknown cluster message scope " + scope);
+        }
+        int flags = in.readUnsignedByte();
+        String origin = readString(in);
+        String key = readString(in);
+        String payload = readString(in);
+        return new ClusterMessage(origin, Scope.values()[scope], key, payload, (flags & FLAG_CRITICAL) != 0);
+    }
+
+    private static void writeString(DataOutputStream out, byte[] utf8) throws IOException {
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new IOException("Bad string length " + length);
+        }
+        byte[] utf8 = new byte[length];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public String toString() {
+        return scope + (key.isEmpty() ? "" : " " + key) + " from " + origin + " (" + payload.length() + " chars)";
+    }
+}
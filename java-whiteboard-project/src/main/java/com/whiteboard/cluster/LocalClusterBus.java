@@ -0,0 +1,82 @@
+package com.whiteboard.cluster;
+
+import com.whiteboard.util.Log;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-process bus: nodes joined to the same {@link Network} receive each other's
+ * messages directly, on the publishing thread. Meant for tests that run several
+ * nodes' delivery logic in one JVM; it involves no serialization or network.
+ */
+public final class LocalClusterBus implements ClusterBus {
+
+    private static final Log log = Log.get(LocalClusterBus.class);
+
+    /**
+     * The network whiteboard.cluster.bus=local joins
+     */
+    static final Network DEFAULT_NETWORK = new Network();
+
+    private final Network network;
+    private final String nodeId;
+    private volatile Receiver receiver;
+
+    private LocalClusterBus(Network network, String nodeId) {
+        this.network = network;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void start(Receiver receiver) {
+        this.receiver = receiver;
+        network.nodes.add(this);
+        log.info("Node " + nodeId + " joined the in-process cluster (" + network.nodes.size() + " nodes)");
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        for (LocalClusterBus node : network.nodes) {
+            if (node != this) {
+                node.receive(message);
+            }
+        }
+    }
+
+    private void receive(ClusterMessage message) {
+        Receiver target = receiver;
+        if (target == null) {
+            return;
+        }
+        try {
+            target.deliver(message);
+        } catch (RuntimeException e) {
+            log.error("Node " + nodeId + " failed to deliver " + message + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() {
+        network.nodes.remove(this);
+        receiver = null;
+    }
+
+    /**
+     * A set of in-process nodes that see each other's messages
+     */
+    public static final class Network {
+        private final CopyOnWriteArrayList<LocalClusterBus> nodes = new CopyOnWriteArrayList<>();
+
+        /**
+         * Create a node on this network; it receives messages once started
+         */
+        public LocalClusterBus join(String nodeId) {
+            return new LocalClusterBus(this, nodeId);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.whiteboard.cluster;
+
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cluster bus over plain TCP: every node listens on whiteboard.cluster.port and
+ * keeps one outgoing connection to each address in whiteboard.cluster.peers.
+ *
+ * Messages are length-prefixed {@link ClusterMessage} encodings. Each peer has a
+ * bounded queue drained by its own sender thread, so publishing never waits on
+ * the network; while a peer is down its connection is retried with backoff and
+ * messages beyond whiteboard.cluster.queueSize are dropped and counted. There is
+ * no authentication, so the listener binds to whiteboard.cluster.bindAddress
+ * (loopback by default) and should only ever be reachable by the other nodes.
+ *
+ *   -Dwhiteboard.cluster.bus=tcp -Dwhiteboard.cluster.port=7801 -Dwhiteboard.cluster.peers=localhost:7802
+ *   -Dwhiteboard.cluster.bus=tcp -Dwhiteboard.cluster.port=7802 -Dwhiteboard.cluster.peers=localhost:7801
+ */
+public final class TcpClusterBus implements ClusterBus {
+
+    private static final Log log = Log.get(TcpClusterBus.class);
+
+    // Largest message accepted from a peer; client messages are capped at 10 MB of text
+    private static final int MAX_MESSAGE_BYTES = 64 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+    // Messages written per flush when a peer's queue has backed up
+    private static final int MAX_DRAIN = 256;
+
+    private static final Counter dropped =
+        Metrics.counter("whiteboard_cluster_dropped_total", "Cluster messages dropped (peer queue full or unreadable)");
+
+    private final String nodeId;
+    private final String bindAddress;
+    private final int port;
+    private final List<Peer> peers = new ArrayList<>();
+    private final Set<Socket> inbound = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running;
+    private volatile Receiver receiver;
+    private ServerSocket server;
+
+    /**
+     * @param port Port to listen on; 0 picks a free one (see {@link #getPort()})
+     * @param peerAddresses The other nodes' listen addresses
+     * @param queueSize Messages held per peer while it is slow or unreachable
+     */
+    public TcpClusterBus(String nodeId, String bindAddress, int port, List<InetSocketAddress> peerAddresses, int queueSize) {
+        this.nodeId = nodeId;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        for (InetSocketAddress address : peerAddresses) {
+            peers.add(new Peer(address, Math.max(1, queueSize)));
+        }
+    }
+
+    static TcpClusterBus fromConfig(String nodeId) {
+        List<InetSocketAddress> peerAddresses = new ArrayList<>();
+        for (String peer : Config.getString("whiteboard.cluster.peers", "").split(",")) {
+            peer = peer.trim();
+            if (peer.isEmpty()) {
+                continue;
+            }
+            int colon = peer.lastIndexOf(':');
+            try {
+                peerAddresses.add(InetSocketAddress.createUnresolved(peer.substring(0, colon),
+                                                                     Integer.parseInt(peer.substring(colon + 1))));
+            } catch (RuntimeException e) {
+                log.error("Ignoring cluster peer " + peer + " - expected host:port");
+            }
+        }
+        return new TcpClusterBus(nodeId,
+                                 Config.getString("whiteboard.cluster.bindAddress", "127.0.0.1"),
+                                 Config.getInt("whiteboard.cluster.port", 7800),
+                                 peerAddresses,
+                                 Config.getInt("whiteboard.cluster.queueSize", 10_000));
+    }
+
+    @Override
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * The port actually listened on, which differs from the setting when it was 0
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    @Override
+    public synchronized void start(Receiver receiver) {
+        this.receiver = receiver;
+        try {
+            server = new ServerSocket();
+            server.setReuseAddress(true);
+            server.bind(new InetSocketAddress(bindAddress, port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen for cluster peers on " + bindAddress + ":" + port, e);
+        }
+        running = true;
+        Thread.ofPlatform().daemon().name("whiteboard-cluster-accept").start(this::acceptLoop);
+        for (Peer peer : peers) {
+            peer.thread = Thread.ofPlatform().daemon().name("whiteboard-cluster-peer-" + peer.name).start(peer::run);
+        }
+        Metrics.gauge("whiteboard_cluster_peers_connected", "Cluster peers with an open outgoing connection",
+                      this::getConnectedPeers);
+        log.info("Cluster node " + nodeId + " listening on " + bindAddress + ":" + getPort()
+                 + " with " + peers.size() + " peers");
+    }
+
+    @Override
+    public void publish(ClusterMessage message) {
+        if (!running || peers.isEmpty()) {
+            return;
+        }
+        byte[] data = message.encode();
+        for (Peer peer : peers) {
+            if (!peer.queue.offer(data)) {
+                dropped.inc();
+            }
+        }
+    }
+
+    public int getConnectedPeers() {
+        int connected = 0;
+        for (Peer peer : peers) {
+            if (peer.socket != null) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        closeQuietly(server);
+        for (Peer peer : peers) {
+            if (peer.thread != null) {
+                peer.thread.interrupt();
+            }
+            closeQuietly(peer.socket);
+        }
+        for (Socket socket : inbound) {
+            closeQuietly(socket);
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = server.accept();
+                socket.setTcpNoDelay(true);
+                inbound.add(socket);
+                Thread.ofVirtual().name("whiteboard-cluster-in").start(() -> readLoop(socket));
+            } catch (IOException e) {
+                if (running) {
+                    log.error("Cluster accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void readLoop(Socket socket) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 65536))) {
+            while (running) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_MESSAGE_BYTES) {
+                    throw new IOException("Bad message length " + length);
+                }
+                byte[] data = new byte[length];
+                in.readFully(data);
+                ClusterMessage message;
+                try {
+                    message = ClusterMessage.decode(data);
+                } catch (IOException e) {
+                    dropped.inc();
+                    log.warn("Unreadable cluster message from " + socket.getRemoteSocketAddress() + ": " + e.getMessage());
+                    continue;
+                }
+                Receiver target = receiver;
+                if (target == null || message.getOrigin().equals(nodeId)) {
+                    continue;
+                }
+                try {
+                    target.deliver(message);
+                } catch (RuntimeException e) {
+                    log.error("Failed to deliver " + message + ": " + e.getMessage(), e);
+                }
+            }
+        } catch (EOFException e) {
+            // Peer closed the connection
+        } catch (IOException e) {
+            if (running) {
+                log.warn("Cluster connection from " + socket.getRemoteSocketAddress() + " lost: " + e.getMessage());
+            }
+        } finally {
+            inbound.remove(socket);
+            closeQuietly(socket);
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Closing anyway
+        }
+    }
+
+    /**
+     * One outgoing connection and the queue of messages waiting for it
+     */
+    private final class Peer {
+        private final InetSocketAddress address;
+        // host:port as configured
+        private final String name;
+        private final BlockingQueue<byte[]> queue;
+        private volatile Socket socket;
+        private Thread thread;
+
+        private Peer(InetSocketAddress address, int queueSize) {
+            this.address = address;
+            this.name = address.getHostString() + ":" + address.getPort();
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        private void run() {
+            long backoff = MIN_BACKOFF_MILLIS;
+            // Log a peer going away once, not on every retry
+            boolean reported = false;
+            List<byte[]> batch = new ArrayList<>(MAX_DRAIN);
+            while (running) {
+                try (Socket connection = new Socket()) {
+                    connection.connect(new InetSocketAddress(address.getHostString(), address.getPort()),
+                                       CONNECT_TIMEOUT_MILLIS);
+                    connection.setTcpNoDelay(true);
+                    socket = connection;
+                    backoff = MIN_BACKOFF_MILLIS;
+                    reported = false;
+                    log.info("Connected to cluster peer " + name);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), 65536));
+                    while (running) {
+                        batch.add(queue.take());
+                        queue.drainTo(batch, MAX_DRAIN - 1);
+                        for (byte[] data : batch) {
+                            out.writeInt(data.length);
+                            out.write(data);
+                        }
+                        batch.clear();
+                        out.flush();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (IOException e) {
+                    // Whatever was being written is lost; delivery is best effort
+                    dropped.add(batch.size());
+                    batch.clear();
+                    if (running && !reported) {
+                        log.warn("Cluster peer " + name + " unreachable: " + e.getMessage() + " - retrying");
+                        reported = true;
+                    }
+                } finally {
+                    socket = null;
+                }
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                backoff = Math.min(MAX_BACKOFF_MILLIS, backoff * 2);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.whiteboard.dao;
 
 import com.whiteboard.model.Board;
 import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -13,6 +14,8 @@ import java.util.Optional;
  */
 public class BoardDAO {
 
+    private static final Log log = Log.get(BoardDAO.class);
+
     private static final String INSERT_BOARD =
             "INSERT INTO boards (user_id, title, description, canvas_data) VALUES (?, ?, ?, ?)";
 
@@ -68,8 +71,7 @@ public class BoardDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error creating board: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error creating board: " + e.getMessage(), e);
         } finally {
             try { if (rs != null) rs.close(); } catch (SQLException e) {}
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
@@ -96,8 +98,7 @@ public class BoardDAO {
                 return Optional.of(extractBoardFromResultSet(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Error getting board: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting board: " + e.getMessage(), e);
         } finally {
             try { if (rs != null) rs.close(); } catch (SQLException e) {}
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
@@ -125,8 +126,7 @@ public class BoardDAO {
                 boards.add(extractBoardFromResultSet(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Error getting boards for user: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting boards for user: " + e.getMessage(), e);
         } finally {
             try { if (rs != null) rs.close(); } catch (SQLException e) {}
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
@@ -155,8 +155,7 @@ public class BoardDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error updating board: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating board: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
@@ -180,8 +179,7 @@ public class BoardDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error updating board data: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating board data: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
@@ -203,8 +201,7 @@ public class BoardDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error updating last accessed: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating last accessed: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
@@ -228,8 +225,7 @@ public class BoardDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error deleting board: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error deleting board: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
@@ -253,8 +249,7 @@ public class BoardDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error duplicating board: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error duplicating board: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
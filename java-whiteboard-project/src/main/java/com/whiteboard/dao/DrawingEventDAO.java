@@ -2,6 +2,7 @@ package com.whiteboard.dao;
 
 import com.whiteboard.model.DrawingEvent;
 import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -12,6 +13,8 @@ import java.util.List;
  * Handles all database operations for drawing events using JDBC.
  */
 public class DrawingEventDAO {
+
+    private static final Log log = Log.get(DrawingEventDAO.class);
     private static final Object COLUMN_LOCK = new Object();
     private static volatile boolean boardColumnChecked = false;
     
@@ -92,7 +95,7 @@ public class DrawingEventDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error saving drawing event: " + e.getMessage());
+            log.error("Error saving drawing event: " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -151,17 +154,17 @@ public class DrawingEventDAO {
             return successCount;
             
         } catch (SQLException e) {
-            System.err.println("Error in batch save: " + e.getMessage());
+            log.error("Error in batch save: " + e.getMessage());
             try {
                 if (conn != null) conn.rollback();
             } catch (SQLException ex) {
-                System.err.println("Error rolling back: " + ex.getMessage());
+                log.error("Error rolling back: " + ex.getMessage());
             }
         } finally {
             try {
                 if (conn != null) conn.setAutoCommit(true);
             } catch (SQLException e) {
-                System.err.println("Error resetting auto-commit: " + e.getMessage());
+                log.error("Error resetting auto-commit: " + e.getMessage());
             }
             closeResources(null, stmt, conn);
         }
@@ -189,7 +192,7 @@ public class DrawingEventDAO {
                 events.add(mapResultSetToEvent(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching all events: " + e.getMessage());
+            log.error("Error fetching all events: " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -219,7 +222,7 @@ public class DrawingEventDAO {
                 events.add(mapResultSetToEvent(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching events for room " + roomCode + ": " + e.getMessage());
+            log.error("Error fetching events for room " + roomCode + ": " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -247,7 +250,7 @@ public class DrawingEventDAO {
                 events.add(mapResultSetToEvent(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching events for board " + boardId + ": " + e.getMessage());
+            log.error("Error fetching events for board " + boardId + ": " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -277,7 +280,7 @@ public class DrawingEventDAO {
                 events.add(mapResultSetToEvent(rs));
             }
         } catch (SQLException e) {
-            System.err.println("Error fetching recent events: " + e.getMessage());
+            log.error("Error fetching recent events: " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -300,7 +303,7 @@ public class DrawingEventDAO {
             stmt.executeUpdate();
             return true;
         } catch (SQLException e) {
-            System.err.println("Error clearing events: " + e.getMessage());
+            log.error("Error clearing events: " + e.getMessage());
             return false;
         } finally {
             closeResources(null, stmt, conn);
@@ -319,7 +322,7 @@ public class DrawingEventDAO {
             stmt.executeUpdate();
             return true;
         } catch (SQLException e) {
-            System.err.println("Error clearing events for board " + boardId + ": " + e.getMessage());
+            log.error("Error clearing events for board " + boardId + ": " + e.getMessage());
             return false;
         } finally {
             closeResources(null, stmt, conn);
@@ -338,7 +341,7 @@ public class DrawingEventDAO {
             stmt.executeUpdate();
             return true;
         } catch (SQLException e) {
-            System.err.println("Error clearing events for room " + roomCode + ": " + e.getMessage());
+            log.error("Error clearing events for room " + roomCode + ": " + e.getMessage());
             return false;
         } finally {
             closeResources(null, stmt, conn);
@@ -361,7 +364,7 @@ public class DrawingEventDAO {
             stmt.setInt(1, hoursOld);
             return stmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Error deleting old events: " + e.getMessage());
+            log.error("Error deleting old events: " + e.getMessage());
             return 0;
         } finally {
             closeResources(null, stmt, conn);
@@ -401,14 +404,14 @@ public class DrawingEventDAO {
             try {
                 rs.close();
             } catch (SQLException e) {
-                System.err.println("Error closing ResultSet: " + e.getMessage());
+                log.error("Error closing ResultSet: " + e.getMessage());
             }
         }
         if (stmt != null) {
             try {
                 stmt.close();
             } catch (SQLException e) {
-                System.err.println("Error closing Statement: " + e.getMessage());
+                log.error("Error closing Statement: " + e.getMessage());
             }
         }
         DatabaseConnection.closeConnection(conn);
@@ -441,15 +444,15 @@ public class DrawingEventDAO {
                     } catch (SQLException indexEx) {
                         // Ignore if index already exists
                         if (!indexEx.getMessage().toLowerCase().contains("duplicate")) {
-                            System.err.println("Error creating idx_board_id index: " + indexEx.getMessage());
+                            log.error("Error creating idx_board_id index: " + indexEx.getMessage());
                         }
                     }
                 }
 
                 boardColumnChecked = true;
-                System.out.println("Added missing board_id column to drawing_events");
+                log.info("Added missing board_id column to drawing_events");
             } catch (SQLException e) {
-                System.err.println("Error ensuring drawing_events.board_id column: " + e.getMessage());
+                log.error("Error ensuring drawing_events.board_id column: " + e.getMessage());
             }
         }
     }
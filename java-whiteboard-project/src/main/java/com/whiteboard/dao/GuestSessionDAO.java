@@ -2,6 +2,7 @@ package com.whiteboard.dao;
 
 import com.whiteboard.model.GuestSession;
 import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.Log;
 
 import java.sql.*;
 import java.util.Optional;
@@ -11,6 +12,8 @@ import java.util.Optional;
  */
 public class GuestSessionDAO {
 
+    private static final Log log = Log.get(GuestSessionDAO.class);
+
     private static final String INSERT_SESSION =
             "INSERT INTO guest_sessions (session_id, session_data, expires_at) VALUES (?, ?, ?)";
 
@@ -51,8 +54,7 @@ public class GuestSessionDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error creating guest session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error creating guest session: " + e.getMessage(), e);
         } finally {
             try { if (rs != null) rs.close(); } catch (SQLException e) {}
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
@@ -90,8 +92,7 @@ public class GuestSessionDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting guest session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error getting guest session: " + e.getMessage(), e);
         } finally {
             try { if (rs != null) rs.close(); } catch (SQLException e) {}
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
@@ -116,8 +117,7 @@ public class GuestSessionDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error updating guest session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error updating guest session: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
@@ -139,8 +139,7 @@ public class GuestSessionDAO {
 
             return stmt.executeUpdate() > 0;
         } catch (SQLException e) {
-            System.err.println("Error deactivating guest session: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error deactivating guest session: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
@@ -161,8 +160,7 @@ public class GuestSessionDAO {
 
             return stmt.executeUpdate();
         } catch (SQLException e) {
-            System.err.println("Error cleaning up expired sessions: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error cleaning up expired sessions: " + e.getMessage(), e);
         } finally {
             try { if (stmt != null) stmt.close(); } catch (SQLException e) {}
             DatabaseConnection.closeConnection(conn);
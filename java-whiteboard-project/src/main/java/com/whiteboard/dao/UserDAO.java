@@ -2,6 +2,7 @@ package com.whiteboard.dao;
 
 import com.whiteboard.model.User;
 import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.Log;
 
 import java.sql.*;
 import java.util.Optional;
@@ -11,6 +12,8 @@ import java.util.Optional;
  * Handles all database operations for users using JDBC.
  */
 public class UserDAO {
+
+    private static final Log log = Log.get(UserDAO.class);
     
     private static final String INSERT_USER = 
         "INSERT INTO users (username, email, password_hash, display_name) " +
@@ -65,15 +68,14 @@ public class UserDAO {
                 rs = stmt.getGeneratedKeys();
                 if (rs.next()) {
                     long userId = rs.getLong(1);
-                    System.out.println("User registered successfully: " + user.getUsername() + " (ID: " + userId + ")");
+                    log.info("User registered successfully: " + user.getUsername() + " (ID: " + userId + ")");
                     return userId;
                 }
             }
-            System.err.println("Registration failed: No rows affected");
+            log.error("Registration failed: No rows affected");
             return -1;
         } catch (SQLException e) {
-            System.err.println("Error registering user: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error registering user: " + e.getMessage(), e);
             return -1;
         } finally {
             closeResources(rs, stmt, conn);
@@ -98,11 +100,11 @@ public class UserDAO {
             
             if (rs.next()) {
                 User user = mapResultSetToUser(rs);
-                System.out.println("User found: " + username);
+                log.debug("User found: " + username);
                 return Optional.of(user);
             }
         } catch (SQLException e) {
-            System.err.println("Error finding user by username: " + e.getMessage());
+            log.error("Error finding user by username: " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -131,7 +133,7 @@ public class UserDAO {
                 return Optional.of(user);
             }
         } catch (SQLException e) {
-            System.err.println("Error finding user by email: " + e.getMessage());
+            log.error("Error finding user by email: " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -160,7 +162,7 @@ public class UserDAO {
                 return Optional.of(user);
             }
         } catch (SQLException e) {
-            System.err.println("Error finding user by ID: " + e.getMessage());
+            log.error("Error finding user by ID: " + e.getMessage());
         } finally {
             closeResources(rs, stmt, conn);
         }
@@ -186,8 +188,7 @@ public class UserDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("Error checking username existence: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error checking username existence: " + e.getMessage(), e);
             // On database error, allow registration to proceed (fail-open for user experience)
             return false;
         } finally {
@@ -213,8 +214,7 @@ public class UserDAO {
             
             return rs.next();
         } catch (SQLException e) {
-            System.err.println("Error checking email existence: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error checking email existence: " + e.getMessage(), e);
             // On database error, allow registration to proceed (fail-open for user experience)
             return false;
         } finally {
@@ -238,7 +238,7 @@ public class UserDAO {
             stmt.executeUpdate();
             return true;
         } catch (SQLException e) {
-            System.err.println("Error updating last login: " + e.getMessage());
+            log.error("Error updating last login: " + e.getMessage());
             return false;
         } finally {
             closeResources(null, stmt, conn);
@@ -264,7 +264,7 @@ public class UserDAO {
             int affectedRows = stmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            System.err.println("Error updating user: " + e.getMessage());
+            log.error("Error updating user: " + e.getMessage());
             return false;
         } finally {
             closeResources(null, stmt, conn);
@@ -296,14 +296,14 @@ public class UserDAO {
             try {
                 rs.close();
             } catch (SQLException e) {
-                System.err.println("Error closing ResultSet: " + e.getMessage());
+                log.error("Error closing ResultSet: " + e.getMessage());
             }
         }
         if (stmt != null) {
             try {
                 stmt.close();
             } catch (SQLException e) {
-                System.err.println("Error closing Statement: " + e.getMessage());
+                log.error("Error closing Statement: " + e.getMessage());
             }
         }
         DatabaseConnection.closeConnection(conn);
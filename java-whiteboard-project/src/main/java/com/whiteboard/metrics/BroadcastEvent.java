@@ -0,0 +1,38 @@
+package com.whiteboard.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one fan-out, from the first recipient to the last.
+ * Large fan-outs finish on a delivery lane, so the event's thread is the lane
+ * that delivered last rather than the broadcasting thread.
+ */
+@Name("whiteboard.Broadcast")
+@Label("Broadcast")
+@Category({ "Whiteboard", "WebSocket" })
+@Description("A message delivered to every member of a room or to every session")
+@StackTrace(false)
+public final class BroadcastEvent extends jdk.jfr.Event {
+
+    private static final EventType TYPE = EventType.getEventType(BroadcastEvent.class);
+
+    @Label("Target")
+    @Description("Room code, or all for server-wide messages")
+    public String target;
+
+    @Label("Recipients")
+    public int recipients;
+
+    @Label("Inline")
+    @Description("Delivered on the broadcasting thread rather than the fan-out lanes")
+    public boolean inline;
+
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,39 @@
+package com.whiteboard.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Flight Recorder event for one JDBC statement execution, emitted by {@link JdbcMetrics}.
+ * The duration covers the execute call; for queries the row count is what the
+ * caller read before closing the result set.
+ */
+@Name("whiteboard.DatabaseQuery")
+@Label("Database Query")
+@Category({ "Whiteboard", "Database" })
+@Description("A JDBC statement executed by a DAO")
+public final class DatabaseQueryEvent extends jdk.jfr.Event {
+
+    private static final EventType TYPE = EventType.getEventType(DatabaseQueryEvent.class);
+
+    @Label("Statement")
+    @Description("Verb and table, e.g. select boards")
+    public String statement;
+
+    @Label("SQL")
+    public String sql;
+
+    @Label("Rows")
+    @Description("Rows read or affected; -1 if unknown")
+    public long rows = -1;
+
+    @Label("Failed")
+    public boolean failed;
+
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
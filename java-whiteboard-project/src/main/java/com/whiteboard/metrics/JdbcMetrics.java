@@ -0,0 +1,240 @@
+package com.whiteboard.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Times JDBC statements without touching the DAOs.
+ * {@link #wrap(Connection)} returns a connection whose statements record the
+ * duration of every execute call in whiteboard_db_query_seconds, labelled by a
+ * short statement name such as "select drawing_events" or "update boards".
+ * While a flight recording has it enabled, each execution also emits a
+ * {@link DatabaseQueryEvent}; otherwise no event or result set wrapper is created.
+ */
+public final class JdbcMetrics {
+
+    // SQL text -> statement label; DAO statements are constants, so this stays small
+    private static final ConcurrentHashMap<String, String> labels = new ConcurrentHashMap<>();
+
+    // Statement label -> its query time histogram, looked up once per label
+    private static final ConcurrentHashMap<String, Histogram> queryTimes = new ConcurrentHashMap<>();
+
+    private static final Counter queryErrors =
+        Metrics.counter("whiteboard_db_query_errors_total", "JDBC statement executions that threw");
+
+    private JdbcMetrics() {
+    }
+
+    public static Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(
+            JdbcMetrics.class.getClassLoader(), new Class<?>[] { Connection.class },
+            new ConnectionHandler(connection));
+    }
+
+    /**
+     * Short, low-cardinality name for a statement: verb plus table
+     */
+    public static String statementLabel(String sql) {
+        if (sql == null) {
+            return "unknown";
+        }
+        String label = labels.get(sql);
+        if (label == null) {
+            label = computeLabel(sql);
+            if (labels.size() < 1000) {
+                labels.put(sql, label);
+            }
+        }
+        return label;
+    }
+
+    private static Histogram queryTime(String label) {
+        Histogram histogram = queryTimes.get(label);
+        if (histogram == null) {
+            histogram = queryTimes.computeIfAbsent(label, l ->
+                Metrics.histogram("whiteboard_db_query_seconds", "JDBC statement execution time", "statement", l));
+        }
+        return histogram;
+    }
+
+    private static String computeLabel(String sql) {
+        String[] tokens = sql.trim().toLowerCase(Locale.ROOT).split("[\\s(),]+");
+        if (tokens.length == 0 || tokens[0].isEmpty()) {
+            return "unknown";
+        }
+        String verb = tokens[0];
+        String marker;
+        switch (verb) {
+            case "select":
+            case "delete":
+                marker = "from";
+                break;
+            case "insert":
+                marker = "into";
+                break;
+            case "update":
+                return tokens.length > 1 ? verb + " " + tokens[1] : verb;
+            default:
+                marker = "table";
+                break;
+        }
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals(marker)) {
+                return verb + " " + tokens[i + 1];
+            }
+        }
+        return verb;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = JdbcMetrics.invoke(connection, method, args);
+            if (result instanceof PreparedStatement && method.getName().equals("prepareStatement")) {
+                return wrapStatement((Statement) result, PreparedStatement.class, (String) args[0]);
+            }
+            if (result instanceof Statement && method.getName().equals("createStatement")) {
+                return wrapStatement((Statement) result, Statement.class, null);
+            }
+            return result;
+        }
+    }
+
+    private static Statement wrapStatement(Statement statement, Class<? extends Statement> type, String sql) {
+        return (Statement) Proxy.newProxyInstance(
+            JdbcMetrics.class.getClassLoader(), new Class<?>[] { type },
+            new StatementHandler(statement, sql));
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+        private final String sql;
+
+        StatementHandler(Statement statement, String sql) {
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return JdbcMetrics.invoke(statement, method, args);
+            }
+            // Plain statements carry their SQL in the execute call
+            String text = sql != null ? sql : (args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null);
+            DatabaseQueryEvent event = null;
+            if (DatabaseQueryEvent.isRecording()) {
+                event = new DatabaseQueryEvent();
+                event.begin();
+            }
+            long start = System.nanoTime();
+            Object result = null;
+            boolean failed = true;
+            try {
+                result = JdbcMetrics.invoke(statement, method, args);
+                failed = false;
+            } finally {
+                long nanos = System.nanoTime() - start;
+                queryTime(statementLabel(text)).observeNanos(nanos);
+                if (failed) {
+                    queryErrors.inc();
+                }
+                if (event != null) {
+                    event.end();
+                    event.statement = statementLabel(text);
+                    event.sql = text;
+                    event.failed = failed;
+                }
+            }
+            if (event == null) {
+                return result;
+            }
+            if (result instanceof ResultSet) {
+                // Rows are only known once the caller has read them
+                return countRows((ResultSet) result, event);
+            }
+            event.rows = affectedRows(result);
+            commit(event);
+            return result;
+        }
+    }
+
+    private static long affectedRows(Object result) {
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long total = 0;
+            for (int count : (int[]) result) {
+                if (count > 0) {
+                    total += count;
+                }
+            }
+            return total;
+        }
+        return -1;
+    }
+
+    private static void commit(DatabaseQueryEvent event) {
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+
+    private static ResultSet countRows(ResultSet resultSet, DatabaseQueryEvent event) {
+        event.rows = 0;
+        return (ResultSet) Proxy.newProxyInstance(
+            JdbcMetrics.class.getClassLoader(), new Class<?>[] { ResultSet.class },
+            new ResultSetHandler(resultSet, event));
+    }
+
+    /**
+     * Counts rows as they are read and commits the query event when the result set closes
+     */
+    private static final class ResultSetHandler implements InvocationHandler {
+        private final ResultSet resultSet;
+        private DatabaseQueryEvent event;
+
+        ResultSetHandler(ResultSet resultSet, DatabaseQueryEvent event) {
+            this.resultSet = resultSet;
+            this.event = event;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = JdbcMetrics.invoke(resultSet, method, args);
+            if (event != null) {
+                String name = method.getName();
+                if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                    event.rows++;
+                } else if (name.equals("close")) {
+                    commit(event);
+                    event = null;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.whiteboard.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight Recorder event for one inbound message, from dispatch to handler return.
+ * Only created while a recording has the event enabled, see {@link #isRecording()}.
+ */
+@Name("whiteboard.MessageHandled")
+@Label("Message Handled")
+@Category({ "Whiteboard", "WebSocket" })
+@Description("An inbound WebSocket message dispatched to its handler")
+@StackTrace(false)
+public final class MessageHandledEvent extends jdk.jfr.Event {
+
+    private static final EventType TYPE = EventType.getEventType(MessageHandledEvent.class);
+
+    @Label("Message Type")
+    public String messageType;
+
+    @Label("Size")
+    @DataAmount
+    public long size;
+
+    @Label("Session")
+    public String sessionId;
+
+    @Label("Result")
+    public String result;
+
+    /**
+     * True while a recording has this event enabled; check before allocating one
+     */
+    public static boolean isRecording() {
+        return TYPE.isEnabled();
+    }
+}
@@ -0,0 +1,172 @@
+package com.whiteboard.metrics;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics registry, exported in Prometheus text format by {@link MetricsServlet}.
+ * A metric family has a name, help text, a type and at most one label; each label
+ * value gets its own counter or histogram. Lookups are map reads, so callers on
+ * hot paths should keep the returned instance rather than look it up per event.
+ */
+public final class Metrics {
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), HISTOGRAM("histogram");
+
+        private final String exposition;
+
+        Type(String exposition) {
+            this.exposition = exposition;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Family> families = new ConcurrentHashMap<>();
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help) {
+        return counter(name, help, null, null);
+    }
+
+    /**
+     * Get (or create) the counter for one label value of a family
+     */
+    public static Counter counter(String name, String help, String label, String value) {
+        return (Counter) family(name, help, Type.COUNTER, label).child(value, Counter::new);
+    }
+
+    public static Histogram histogram(String name, String help) {
+        return histogram(name, help, null, null);
+    }
+
+    /**
+     * Get (or create) the histogram for one label value of a family
+     */
+    public static Histogram histogram(String name, String help, String label, String value) {
+        return (Histogram) family(name, help, Type.HISTOGRAM, label).child(value, Histogram::new);
+    }
+
+    /**
+     * Register a gauge read at export time (replaces an earlier one of the same name)
+     */
+    public static void gauge(String name, String help, DoubleSupplier supplier) {
+        family(name, help, Type.GAUGE, null).gauge = supplier;
+    }
+
+    private static Family family(String name, String help, Type type, String label) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type, label));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as a " + family.type.exposition);
+        }
+        return family;
+    }
+
+    /**
+     * Write every metric in Prometheus text exposition format (version 0.0.4)
+     */
+    public static void writeTo(StringBuilder out) {
+        List<Family> sorted = new ArrayList<>(families.values());
+        sorted.sort((a, b) -> a.name.compareTo(b.name));
+        for (Family family : sorted) {
+            family.writeTo(out);
+        }
+    }
+
+    private static final class Family {
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final String label;
+        // Label value ("" when unlabelled) -> Counter or Histogram
+        private final ConcurrentHashMap<String, Object> children = new ConcurrentHashMap<>();
+        private volatile DoubleSupplier gauge;
+
+        Family(String name, String help, Type type, String label) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.label = label;
+        }
+
+        Object child(String value, Supplier<Object> factory) {
+            String key = value != null ? value : "";
+            Object child = children.get(key);
+            return child != null ? child : children.computeIfAbsent(key, k -> factory.get());
+        }
+
+        void writeTo(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type.exposition).append('\n');
+            if (type == Type.GAUGE) {
+                DoubleSupplier supplier = gauge;
+                if (supplier != null) {
+                    double value;
+                    try {
+                        value = supplier.getAsDouble();
+                    } catch (RuntimeException e) {
+                        value = Double.NaN;
+                    }
+                    out.append(name).append(' ').append(format(value)).append('\n');
+                }
+                return;
+            }
+            List<Map.Entry<String, Object>> entries = new ArrayList<>(children.entrySet());
+            entries.sort(Map.Entry.comparingByKey());
+            for (Map.Entry<String, Object> entry : entries) {
+                String labels = labels(entry.getKey());
+                if (type == Type.COUNTER) {
+                    out.append(name).append(labels).append(' ')
+                       .append(((Counter) entry.getValue()).get()).append('\n');
+                } else {
+                    writeHistogram(out, entry.getKey(), (Histogram) entry.getValue());
+                }
+            }
+        }
+
+        private void writeHistogram(StringBuilder out, String value, Histogram histogram) {
+            long[] cumulative = histogram.cumulativeCounts();
+            for (int i = 0; i < cumulative.length; i++) {
+                String le = i < Histogram.BOUNDS_SECONDS.length ? format(Histogram.BOUNDS_SECONDS[i]) : "+Inf";
+                out.append(name).append("_bucket{");
+                if (label != null) {
+                    out.append(label).append("=\"").append(escape(value)).append("\",");
+                }
+                out.append("le=\"").append(le).append("\"} ").append(cumulative[i]).append('\n');
+            }
+            String labels = labels(value);
+            out.append(name).append("_sum").append(labels).append(' ')
+               .append(format(histogram.getSumNanos() / 1e9)).append('\n');
+            out.append(name).append("_count").append(labels).append(' ')
+               .append(cumulative[cumulative.length - 1]).append('\n');
+        }
+
+        private String labels(String value) {
+            return label == null ? "" : "{" + label + "=\"" + escape(value) + "\"}";
+        }
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        // Plain notation, so bucket bounds read 0.00005 rather than 5.0E-5
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,33 @@
+package com.whiteboard.metrics;
+
+import com.whiteboard.websocket.WhiteboardHub;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves every registered metric at /metrics in Prometheus text format.
+ */
+public class MetricsServlet extends HttpServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Override
+    public void init() {
+        // Load the hub so its gauges are registered before the first scrape
+        WhiteboardHub.getConnectedClientCount();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        StringBuilder out = new StringBuilder(16 * 1024);
+        Metrics.writeTo(out);
+        response.setContentType(CONTENT_TYPE);
+        response.setHeader("Cache-Control", "no-store");
+        response.getWriter().write(out.toString());
+    }
+}
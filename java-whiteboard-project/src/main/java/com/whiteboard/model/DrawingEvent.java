@@ -1,5 +1,8 @@
 package com.whiteboard.model;
 
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+
 import java.sql.Timestamp;
 
 /**
@@ -171,97 +174,61 @@ public class DrawingEvent {
      * Convert to JSON string for WebSocket transmission
      */
     public String toJson() {
-        return String.format(
-            "{\"type\":\"draw\",\"x1\":%d,\"y1\":%d,\"x2\":%d,\"y2\":%d," +
-            "\"color\":\"%s\",\"tool\":\"%s\",\"strokeWidth\":%d,\"lineStyle\":\"%s\"," +
-            "\"sessionId\":\"%s\",\"username\":\"%s\",\"boardId\":%s}",
-            x1, y1, x2, y2,
-            color != null ? color : "#000000",
-            tool != null ? tool : "pen",
-            strokeWidth,
-            lineStyle != null ? lineStyle : "solid",
-            sessionId != null ? sessionId : "",
-            username != null ? username : "",
-            boardId != null ? boardId.toString() : "null"
-        );
+        return writeJson(JsonWriter.get()).build();
+    }
+
+    /**
+     * Write this event as a draw message
+     */
+    public JsonWriter writeJson(JsonWriter out) {
+        return out.beginObject()
+            .field("type", "draw")
+            .field("x1", x1)
+            .field("y1", y1)
+            .field("x2", x2)
+            .field("y2", y2)
+            .field("color", color != null ? color : "#000000")
+            .field("tool", tool != null ? tool : "pen")
+            .field("strokeWidth", strokeWidth)
+            .field("lineStyle", lineStyle != null ? lineStyle : "solid")
+            .field("sessionId", sessionId != null ? sessionId : "")
+            .field("username", username != null ? username : "")
+            .field("boardId", boardId)
+            .endObject();
     }
     
     /**
      * Parse JSON string to create DrawingEvent object
      */
     public static DrawingEvent fromJson(String json) {
-        DrawingEvent event = new DrawingEvent();
-        
-        try {
-            // Simple JSON parsing without external libraries
-            event.setX1(extractInt(json, "x1"));
-            event.setY1(extractInt(json, "y1"));
-            event.setX2(extractInt(json, "x2"));
-            event.setY2(extractInt(json, "y2"));
-            event.setColor(extractString(json, "color"));
-            event.setTool(extractString(json, "tool"));
-            event.setStrokeWidth(extractInt(json, "strokeWidth"));
-            event.setSessionId(extractString(json, "sessionId"));
-            event.setUsername(extractString(json, "username"));
-            Long boardId = extractLong(json, "boardId");
-            if (boardId != null) {
-                event.setBoardId(boardId);
-            }
-            String style = extractString(json, "lineStyle");
-            event.setLineStyle(style);
-        } catch (Exception e) {
-            System.err.println("Error parsing JSON: " + e.getMessage());
-        }
-        
-        return event;
-    }
-    
-    private static int extractInt(String json, String key) {
-        String pattern = "\"" + key + "\":";
-        int start = json.indexOf(pattern);
-        if (start == -1) return 0;
-        
-        start += pattern.length();
-        int end = start;
-        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) {
-            end++;
-        }
-        
-        try {
-            return Integer.parseInt(json.substring(start, end));
-        } catch (NumberFormatException e) {
-            return 0;
-        }
-    }
-    
-    private static String extractString(String json, String key) {
-        String pattern = "\"" + key + "\":\"";
-        int start = json.indexOf(pattern);
-        if (start == -1) return "";
-        
-        start += pattern.length();
-        int end = json.indexOf("\"", start);
-        if (end == -1) return "";
-        
-        return json.substring(start, end);
+        return fromMessage(JsonMessage.parse(json));
     }
 
-    private static Long extractLong(String json, String key) {
-        String pattern = "\"" + key + "\":";
-        int start = json.indexOf(pattern);
-        if (start == -1) return null;
+    /**
+     * Build a DrawingEvent from an already parsed message.
+     * Fields missing from the message keep their defaults.
+     */
+    public static DrawingEvent fromMessage(JsonMessage message) {
+        DrawingEvent event = new DrawingEvent();
+        event.setX1(message.getInt("x1"));
+        event.setY1(message.getInt("y1"));
+        event.setX2(message.getInt("x2"));
+        event.setY2(message.getInt("y2"));
+        event.setStrokeWidth(message.getInt("strokeWidth", event.getStrokeWidth()));
 
-        start += pattern.length();
-        int end = start;
-        while (end < json.length() && (Character.isDigit(json.charAt(end)) || json.charAt(end) == '-')) {
-            end++;
+        String color = message.getString("color");
+        if (color != null) {
+            event.setColor(color);
         }
-
-        try {
-            return Long.parseLong(json.substring(start, end));
-        } catch (NumberFormatException e) {
-            return null;
+        String tool = message.getString("tool");
+        if (tool != null) {
+            event.setTool(tool);
         }
+        event.setSessionId(message.getString("sessionId"));
+        event.setUsername(message.getString("username"));
+        event.setBoardId(message.getLong("boardId"));
+        event.setLineStyle(message.getString("lineStyle"));
+        return event;
     }
     
     @Override
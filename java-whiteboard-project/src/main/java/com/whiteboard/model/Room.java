@@ -1,13 +1,31 @@
 package com.whiteboard.model;
 
+import com.whiteboard.util.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.websocket.Session;
 
 /**
  * Represents a whiteboard room that users can join via invite link.
  * Supports approval-based access control.
+ *
+ * Approved members are also kept as an immutable array that is replaced on every
+ * membership change, so broadcasts iterate a plain array and member counts are
+ * O(1) reads instead of scans.
+ *
+ * The room also remembers its recent drawing events in a fixed-size ring, and
+ * which of them the cached canvas snapshot already covers. A joining member can
+ * then be sent the snapshot plus the newer events from memory instead of the
+ * board's full history from the database. Events are numbered in the order they
+ * are published (see {@link #inEventOrder}), so a member can report how far into
+ * the room's event stream its canvas is.
  */
 public class Room {
     
@@ -18,14 +36,42 @@ public class Room {
     private final Set<Session> approvedSessions;
     private final Set<Session> pendingApproval;
     private final ConcurrentHashMap<String, String> pendingUsernames; // sessionId -> username
+
+    // Copy-on-write snapshot of approvedSessions, swapped under membershipLock
+    private static final Session[] NO_SESSIONS = new Session[0];
+    private volatile Session[] recipients = NO_SESSIONS;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final Object membershipLock = new Object();
+
+    // Drawing events kept per room for snapshot-plus-tail joins
+    private static final int TAIL_CAPACITY = Math.max(0, Config.getInt("whiteboard.room.tailEvents", 5000));
+
+    // Ring of recent events, guarded by tailLock.
+    // Event number n (counting from 1) lives at index (n - 1) % TAIL_CAPACITY.
+    private final DrawingEvent[] tail = new DrawingEvent[TAIL_CAPACITY];
+    private long eventCount;
+    // Number of events the cached canvas covers, or -1 if unknown. A new room is blank.
+    private long snapshotCovers;
+    // Member whose canvas the snapshot is; its own events up to snapshotAt are in it too
+    private String snapshotAuthor;
+    private long snapshotAt;
+    private final Object tailLock = new Object();
     private final long createdAt;
     private volatile Long boardId;
     private volatile String boardTitle;
     private volatile String boardCanvas;
     
     public Room(Session ownerSession) {
+        this(ownerSession, "");
+    }
+
+    /**
+     * @param codePrefix Prepended to the generated room code, e.g. to keep codes
+     *                   from different cluster nodes apart
+     */
+    public Room(Session ownerSession, String codePrefix) {
         this.roomId = UUID.randomUUID().toString();
-        this.roomCode = generateRoomCode();
+        this.roomCode = codePrefix + generateRoomCode();
         this.ownerSession = ownerSession;
         this.ownerSessionId = ownerSession.getId();
         this.approvedSessions = ConcurrentHashMap.newKeySet();
@@ -35,6 +81,7 @@ public class Room {
         
         // Owner is automatically approved
         approvedSessions.add(ownerSession);
+        recipients = new Session[] { ownerSession };
     }
     
     /**
@@ -75,26 +122,50 @@ public class Room {
     }
     
     public void addPendingRequest(Session session, String username) {
-        pendingApproval.add(session);
-        pendingUsernames.put(session.getId(), username != null ? username : "Anonymous");
+        synchronized (membershipLock) {
+            if (pendingApproval.add(session)) {
+                pendingCount.incrementAndGet();
+            }
+            pendingUsernames.put(session.getId(), username != null ? username : "Anonymous");
+        }
     }
     
     public void approveSession(Session session) {
-        pendingApproval.remove(session);
-        pendingUsernames.remove(session.getId());
-        approvedSessions.add(session);
+        synchronized (membershipLock) {
+            removePending(session);
+            if (approvedSessions.add(session)) {
+                refreshRecipients();
+            }
+        }
     }
     
     public void rejectSession(Session session) {
-        pendingApproval.remove(session);
-        pendingUsernames.remove(session.getId());
+        synchronized (membershipLock) {
+            removePending(session);
+        }
     }
     
     public void removeSession(Session session) {
-        approvedSessions.remove(session);
-        pendingApproval.remove(session);
+        synchronized (membershipLock) {
+            if (approvedSessions.remove(session)) {
+                refreshRecipients();
+            }
+            removePending(session);
+        }
+    }
+
+    // Caller holds membershipLock
+    private void removePending(Session session) {
+        if (pendingApproval.remove(session)) {
+            pendingCount.decrementAndGet();
+        }
         pendingUsernames.remove(session.getId());
     }
+
+    // Caller holds membershipLock
+    private void refreshRecipients() {
+        recipients = approvedSessions.toArray(NO_SESSIONS);
+    }
     
     public boolean isApproved(Session session) {
         return approvedSessions.contains(session);
@@ -108,6 +179,14 @@ public class Room {
         return approvedSessions;
     }
     
+    /**
+     * Approved members as of the last membership change.
+     * The array is shared and must not be modified.
+     */
+    public Session[] getRecipients() {
+        return recipients;
+    }
+    
     public Set<Session> getPendingApproval() {
         return pendingApproval;
     }
@@ -117,11 +196,11 @@ public class Room {
     }
     
     public int getApprovedCount() {
-        return (int) approvedSessions.stream().filter(Session::isOpen).count();
+        return recipients.length;
     }
     
     public int getPendingCount() {
-        return (int) pendingApproval.stream().filter(Session::isOpen).count();
+        return pendingCount.get();
     }
     
     public long getCreatedAt() {
@@ -141,22 +220,152 @@ public class Room {
     }
 
     public void setBoardMetadata(Long boardId, String boardTitle, String boardCanvas) {
-        this.boardId = boardId;
-        this.boardTitle = boardTitle;
-        this.boardCanvas = boardCanvas;
+        synchronized (tailLock) {
+            this.boardId = boardId;
+            this.boardTitle = boardTitle;
+            this.boardCanvas = boardCanvas;
+            // The board is (re)loaded now; only later events are drawn on top of it
+            snapshotCovers = eventCount;
+            snapshotAuthor = null;
+        }
     }
 
+    /**
+     * Cache a canvas whose relation to the room's events is unknown (e.g. the saved
+     * board from the database). It is only used when nothing better is cached.
+     */
     public void setBoardCanvas(String boardCanvas) {
         this.boardCanvas = boardCanvas;
     }
 
+    /**
+     * Cache a live canvas snapshot sent by a member
+     * @param covers   How many of the room's events the member had received when it
+     *                 took the snapshot, or -1 if it did not say
+     * @param authorId The member; every event of its own recorded so far is on its canvas
+     */
+    public void setCanvasSnapshot(String canvas, long covers, String authorId) {
+        synchronized (tailLock) {
+            boardCanvas = canvas;
+            snapshotCovers = covers < 0 ? -1 : Math.min(covers, eventCount);
+            snapshotAuthor = authorId;
+            snapshotAt = eventCount;
+        }
+    }
+
+    /**
+     * Run an action while no other event can be numbered or published: publishing
+     * an event, clearing the canvas or admitting a member. Every member thus sees
+     * events in the order they are numbered, and a new member gets each event
+     * either in its replay or live, never both.
+     */
+    public void inEventOrder(Runnable action) {
+        synchronized (tailLock) {
+            action.run();
+        }
+    }
+
+    /**
+     * Number a drawing event that is being broadcast to the room; call it from
+     * {@link #inEventOrder} together with the broadcast
+     */
+    public void recordEvent(DrawingEvent event) {
+        synchronized (tailLock) {
+            eventCount++;
+            if (TAIL_CAPACITY > 0) {
+                tail[tailIndex(eventCount)] = event;
+            }
+        }
+    }
+
+    /**
+     * Events published to the room so far
+     */
+    public long getEventCount() {
+        synchronized (tailLock) {
+            return eventCount;
+        }
+    }
+
+    /**
+     * The canvas was cleared - the room is blank and all earlier events are gone
+     */
+    public void clearCanvas() {
+        synchronized (tailLock) {
+            boardCanvas = null;
+            Arrays.fill(tail, null);
+            snapshotCovers = eventCount;
+            snapshotAuthor = null;
+        }
+    }
+
+    /**
+     * The cached snapshot plus every event since, if both are in memory
+     * @return The replay, or null if a join has to fall back to the database
+     */
+    public CanvasReplay getCanvasReplay() {
+        synchronized (tailLock) {
+            if (TAIL_CAPACITY == 0 || snapshotCovers < 0 || eventCount - snapshotCovers > TAIL_CAPACITY) {
+                return null;
+            }
+            List<DrawingEvent> events = new ArrayList<>((int) (eventCount - snapshotCovers));
+            for (long n = snapshotCovers + 1; n <= eventCount; n++) {
+                DrawingEvent event = tail[tailIndex(n)];
+                // The author drew its own events before they came back from the room
+                if (n <= snapshotAt && snapshotAuthor != null && snapshotAuthor.equals(event.getSessionId())) {
+                    continue;
+                }
+                events.add(event);
+            }
+            return new CanvasReplay(boardCanvas, events, eventCount);
+        }
+    }
+
+    private static int tailIndex(long eventNumber) {
+        return (int) ((eventNumber - 1) % TAIL_CAPACITY);
+    }
+
     public void setBoardTitle(String boardTitle) {
         this.boardTitle = boardTitle;
     }
 
     public void clearBoardMetadata() {
-        this.boardId = null;
-        this.boardTitle = null;
-        this.boardCanvas = null;
+        synchronized (tailLock) {
+            this.boardId = null;
+            this.boardTitle = null;
+            this.boardCanvas = null;
+            snapshotCovers = -1;
+            snapshotAuthor = null;
+        }
+    }
+
+    /**
+     * A canvas snapshot (null for a blank canvas) and the events drawn after it, oldest first
+     */
+    public static final class CanvasReplay {
+        private final String canvas;
+        private final List<DrawingEvent> events;
+        private final long eventCount;
+
+        CanvasReplay(String canvas, List<DrawingEvent> events, long eventCount) {
+            this.canvas = canvas;
+            this.events = Collections.unmodifiableList(events);
+            this.eventCount = eventCount;
+        }
+
+        public String getCanvas() {
+            return canvas;
+        }
+
+        public List<DrawingEvent> getEvents() {
+            return events;
+        }
+
+        /**
+         * Events of the room the replay brings a member up to
+         */
+        public long getEventCount() {
+            return eventCount;
+        }
     }
 }
@@ -0,0 +1,229 @@
+package com.whiteboard.util;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes log records on a background thread.
+ * Producers only append to a lock-free queue and never wait: once the queue holds
+ * whiteboard.log.queueSize records, new ones are dropped and counted instead.
+ * Records go to whiteboard.log.file (rolled over at whiteboard.log.maxFileBytes,
+ * keeping whiteboard.log.maxFiles old files) or to the console if no file is set.
+ *
+ * Problems inside the appender itself are reported on System.err, since there is
+ * nothing else left to report them through.
+ */
+final class AsyncLogAppender {
+
+    private static final int QUEUE_SIZE = Math.max(16, Config.getInt("whiteboard.log.queueSize", 8192));
+    private static final String FILE = Config.getString("whiteboard.log.file", "");
+    private static final long MAX_FILE_BYTES = Math.max(1024, Config.getLong("whiteboard.log.maxFileBytes", 10L * 1024 * 1024));
+    private static final int MAX_FILES = Math.max(1, Config.getInt("whiteboard.log.maxFiles", 5));
+
+    // How long the writer sleeps when idle before looking at the queue again
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final ConcurrentLinkedQueue<Record> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Thread writerThread;
+    private volatile boolean idle;
+
+    private Writer out;
+    private long fileBytes;
+
+    AsyncLogAppender() {
+        writerThread = new Thread(this::run, "whiteboard-log");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::drainAndFlush, "whiteboard-log-flush"));
+    }
+
+    /**
+     * Queue a record; never blocks
+     * @return false if the record was dropped because the queue is full
+     */
+    boolean append(Record record) {
+        if (depth.incrementAndGet() > QUEUE_SIZE) {
+            depth.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.offer(record);
+        if (idle) {
+            LockSupport.unpark(writerThread);
+        }
+        return true;
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    long getWritten() {
+        return written.get();
+    }
+
+    int getQueued() {
+        return depth.get();
+    }
+
+    private void run() {
+        long reportedDrops = 0;
+        while (true) {
+            try {
+                if (!writeQueued()) {
+                    long drops = dropped.get();
+                    if (drops != reportedDrops) {
+                        write(new Record(System.currentTimeMillis(), Log.Level.WARN, "log",
+                                         Thread.currentThread().getName(),
+                                         (drops - reportedDrops) + " log records dropped (queue full)", null));
+                        reportedDrops = drops;
+                    }
+                    flush();
+                    idle = true;
+                    if (queue.isEmpty()) {
+                        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                    }
+                    idle = false;
+                }
+            } catch (RuntimeException e) {
+                System.err.println("Log writer error: " + e);
+            }
+        }
+    }
+
+    // Write everything queued; returns false if there was nothing to write
+    private boolean writeQueued() {
+        Record record = queue.poll();
+        if (record == null) {
+            return false;
+        }
+        do {
+            depth.decrementAndGet();
+            write(record);
+        } while ((record = queue.poll()) != null);
+        return true;
+    }
+
+    private synchronized void drainAndFlush() {
+        writeQueued();
+        flush();
+    }
+
+    private synchronized void write(Record record) {
+        String line = format(record);
+        try {
+            Writer writer = writer();
+            writer.write(line);
+            fileBytes += line.length();
+            written.incrementAndGet();
+            if (!FILE.isEmpty() && fileBytes >= MAX_FILE_BYTES) {
+                roll();
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot write log file " + FILE + ": " + e.getMessage());
+            System.err.print(line);
+            out = null;
+        }
+    }
+
+    private synchronized void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                System.err.println("Cannot flush log file " + FILE + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private Writer writer() throws IOException {
+        if (out == null) {
+            if (FILE.isEmpty()) {
+                out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 8192);
+            } else {
+                File file = new File(FILE);
+                File parent = file.getAbsoluteFile().getParentFile();
+                if (parent != null) {
+                    parent.mkdirs();
+                }
+                fileBytes = file.length();
+                out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+            }
+        }
+        return out;
+    }
+
+    // whiteboard.log -> whiteboard.log.1 -> ... -> whiteboard.log.<MAX_FILES> (deleted)
+    private void roll() throws IOException {
+        out.close();
+        out = null;
+        File oldest = new File(FILE + "." + MAX_FILES);
+        if (oldest.exists() && !oldest.delete()) {
+            System.err.println("Cannot delete old log file " + oldest);
+        }
+        for (int i = MAX_FILES - 1; i >= 1; i--) {
+            File from = new File(FILE + "." + i);
+            if (from.exists()) {
+                from.renameTo(new File(FILE + "." + (i + 1)));
+            }
+        }
+        new File(FILE).renameTo(new File(FILE + ".1"));
+        fileBytes = 0;
+    }
+
+    private static String format(Record record) {
+        StringBuilder line = new StringBuilder(64 + record.message.length());
+        line.append(Instant.ofEpochMilli(record.millis)).append(' ')
+            .append(record.level.name());
+        for (int i = record.level.name().length(); i < 5; i++) {
+            line.append(' ');
+        }
+        line.append(" [").append(record.category).append("] (")
+            .append(record.thread).append(") ")
+            .append(record.message).append(System.lineSeparator());
+        if (record.error != null) {
+            StringWriter trace = new StringWriter();
+            record.error.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        return line.toString();
+    }
+
+    /**
+     * One log statement, captured on the caller's thread and formatted on the writer's
+     */
+    static final class Record {
+        private final long millis;
+        private final Log.Level level;
+        private final String category;
+        private final String thread;
+        private final String message;
+        private final Throwable error;
+
+        Record(long millis, Log.Level level, String category, String thread, String message, Throwable error) {
+            this.millis = millis;
+            this.level = level;
+            this.category = category;
+            this.thread = thread;
+            this.message = message != null ? message : "null";
+            this.error = error;
+        }
+    }
+}
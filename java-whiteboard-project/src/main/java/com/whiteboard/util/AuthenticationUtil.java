@@ -10,6 +10,8 @@ import java.util.Base64;
  * Provides password hashing, token generation, and validation.
  */
 public class AuthenticationUtil {
+
+    private static final Log log = Log.get(AuthenticationUtil.class);
     
     private static final int SALT_LENGTH = 16;
     private static final String HASH_ALGORITHM = "SHA-256";
@@ -67,7 +69,7 @@ public class AuthenticationUtil {
             // Compare hashes
             return MessageDigest.isEqual(computedHash, storedHash);
         } catch (Exception e) {
-            System.err.println("Error verifying password: " + e.getMessage());
+            log.error("Error verifying password: " + e.getMessage());
             return false;
         }
     }
@@ -0,0 +1,61 @@
+package com.whiteboard.util;
+
+/**
+ * Server tuning configuration.
+ * Values are read from JVM system properties first (e.g. -Dwhiteboard.outbound.highWaterMark=512),
+ * then from environment variables (WHITEBOARD_OUTBOUND_HIGHWATERMARK), then the supplied default.
+ */
+public class Config {
+
+    private Config() {
+    }
+
+    /**
+     * Look up a raw configuration value
+     * @param key Dotted property name
+     * @return The configured value, or null if not set
+     */
+    public static String get(String key) {
+        String value = System.getProperty(key);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(key.replace('.', '_').toUpperCase());
+        }
+        return (value == null || value.isEmpty()) ? null : value.trim();
+    }
+
+    public static String getString(String key, String defaultValue) {
+        String value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public static int getInt(String key, int defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid integer for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    public static long getLong(String key, long defaultValue) {
+        String value = get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid long for " + key + ": " + value + " (using " + defaultValue + ")");
+            return defaultValue;
+        }
+    }
+
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = get(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+}
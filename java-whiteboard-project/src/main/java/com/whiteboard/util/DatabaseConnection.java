@@ -1,5 +1,10 @@
 package com.whiteboard.util;
 
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Histogram;
+import com.whiteboard.metrics.JdbcMetrics;
+import com.whiteboard.metrics.Metrics;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
@@ -9,24 +14,36 @@ import java.sql.SQLException;
  * Manages MySQL connections for the whiteboard application.
  */
 public class DatabaseConnection {
+
+    private static final Log log = Log.get(DatabaseConnection.class);
     
-    // Database configuration - UPDATE THESE VALUES
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/whiteboard_db";
-    private static final String DB_USER = "root";
-    private static final String DB_PASSWORD = ""; // No password for local development
+    // Database configuration - override with whiteboard.db.url / .user / .password
+    private static final String DB_URL = Config.getString("whiteboard.db.url", "jdbc:mysql://localhost:3306/whiteboard_db");
+    private static final String DB_USER = Config.getString("whiteboard.db.user", "root");
+    private static final String DB_PASSWORD = Config.getString("whiteboard.db.password", ""); // No password for local development
     
     // Connection pool settings
     private static final String DRIVER_CLASS = "com.mysql.cj.jdbc.Driver";
+
+    private static final Histogram connectTime =
+        Metrics.histogram("whiteboard_db_connect_seconds", "Time to open a database connection");
+    private static final Counter connectErrors =
+        Metrics.counter("whiteboard_db_connect_errors_total", "Failed attempts to open a database connection");
     
-    // Static block to load the JDBC driver
+    // Static block to load the JDBC driver (other drivers, e.g. H2 for benchmarks, register themselves)
     static {
+        if (DB_URL.startsWith("jdbc:mysql:")) {
+            loadMySqlDriver();
+        }
+    }
+
+    private static void loadMySqlDriver() {
         try {
             Class.forName(DRIVER_CLASS);
-            System.out.println("MySQL JDBC Driver loaded successfully");
+            log.info("MySQL JDBC Driver loaded successfully");
         } catch (ClassNotFoundException e) {
-            System.err.println("MySQL JDBC Driver not found!");
-            System.err.println("Make sure mysql-connector-java-8.x.x.jar is in the classpath");
-            e.printStackTrace();
+            log.error("MySQL JDBC Driver not found!");
+            log.error("Make sure mysql-connector-java-8.x.x.jar is in the classpath", e);
         }
     }
     
@@ -36,12 +53,16 @@ public class DatabaseConnection {
      * @throws SQLException if connection fails
      */
     public static Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
         try {
             Connection connection = DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
-            System.out.println("Database connection established");
-            return connection;
+            connectTime.observeNanos(System.nanoTime() - start);
+            log.debug("Database connection established");
+            // Statements made from this connection report to whiteboard_db_query_seconds
+            return JdbcMetrics.wrap(connection);
         } catch (SQLException e) {
-            System.err.println("Failed to connect to database: " + e.getMessage());
+            connectErrors.inc();
+            log.error("Failed to connect to database: " + e.getMessage());
             throw e;
         }
     }
@@ -54,9 +75,9 @@ public class DatabaseConnection {
         if (connection != null) {
             try {
                 connection.close();
-                System.out.println("Database connection closed");
+                log.debug("Database connection closed");
             } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
+                log.error("Error closing connection: " + e.getMessage());
             }
         }
     }
@@ -69,7 +90,7 @@ public class DatabaseConnection {
         try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
-            System.err.println("Connection test failed: " + e.getMessage());
+            log.error("Connection test failed: " + e.getMessage());
             return false;
         }
     }
@@ -0,0 +1,533 @@
+package com.whiteboard.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Read-only view over a flat JSON object message.
+ * The message is tokenized once, in a single linear pass, recording where each
+ * top-level field's key and value live in the source text. Numbers are decoded
+ * during that pass; strings are only materialized when a handler asks for them.
+ * Nested objects and arrays are skipped over and can be read back as raw JSON.
+ *
+ * Instances are reusable: {@link #reset(String)} re-parses in place, keeping the
+ * field arrays allocated from previous messages. {@link #acquire()} and
+ * {@link #release()} share them through a small bounded pool.
+ */
+public final class JsonMessage {
+
+    public static final byte TYPE_STRING = 1;
+    public static final byte TYPE_NUMBER = 2;
+    public static final byte TYPE_TRUE = 3;
+    public static final byte TYPE_FALSE = 4;
+    public static final byte TYPE_NULL = 5;
+    public static final byte TYPE_OBJECT = 6;
+    public static final byte TYPE_ARRAY = 7;
+
+    private static final int INITIAL_FIELDS = 16;
+
+    private static final int POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final ArrayBlockingQueue<JsonMessage> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private String source;
+    private int fieldCount;
+    private int[] keyStart = new int[INITIAL_FIELDS];
+    private int[] keyEnd = new int[INITIAL_FIELDS];
+    private int[] valueStart = new int[INITIAL_FIELDS];
+    private int[] valueEnd = new int[INITIAL_FIELDS];
+    private byte[] valueType = new byte[INITIAL_FIELDS];
+    private boolean[] escaped = new boolean[INITIAL_FIELDS];
+    private boolean[] integral = new boolean[INITIAL_FIELDS];
+    private long[] numbers = new long[INITIAL_FIELDS];
+    private boolean valid;
+    private boolean pooled;
+
+    /**
+     * Take an empty view from the pool, or a new one if the pool is empty.
+     * Hand it back with {@link #release()} once nothing reads it any more.
+     */
+    public static JsonMessage acquire() {
+        JsonMessage message = POOL.poll();
+        if (message == null) {
+            message = new JsonMessage();
+        }
+        message.pooled = false;
+        return message;
+    }
+
+    /**
+     * Return this view to the pool, dropping its message text
+     */
+    public void release() {
+        if (pooled) {
+            return;
+        }
+        reset(null);
+        pooled = true;
+        POOL.offer(this);
+    }
+
+    /**
+     * Parse a message into a new view
+     */
+    public static JsonMessage parse(String json) {
+        return new JsonMessage().reset(json);
+    }
+
+    /**
+     * Re-parse this view over a new message
+     * @return this, for chaining
+     */
+    public JsonMessage reset(String json) {
+        source = json;
+        fieldCount = 0;
+        valid = false;
+        if (json != null) {
+            try {
+                valid = parseObject();
+            } catch (IndexOutOfBoundsException e) {
+                // Truncated message - keep whatever fields were complete
+                valid = false;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Whether the whole message was a well-formed object
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * The original message text
+     */
+    public String source() {
+        return source;
+    }
+
+    public int size() {
+        return fieldCount;
+    }
+
+    public boolean has(String name) {
+        return indexOf(name) >= 0;
+    }
+
+    /**
+     * Value type of a field, or 0 if absent
+     */
+    public byte typeOf(String name) {
+        int i = indexOf(name);
+        return i >= 0 ? valueType[i] : 0;
+    }
+
+    /**
+     * Get a field as a string.
+     * Strings are unescaped; numbers and booleans are returned as their JSON text.
+     * @return The value, or null if the field is missing or JSON null
+     */
+    public String getString(String name) {
+        int i = indexOf(name);
+        return i >= 0 ? stringValue(i) : null;
+    }
+
+    /**
+     * Read only the top-level "type" field, scanning no further into the message than
+     * that field. Clients send the type first, so this costs the same for a 4 MB canvas
+     * as for a cursor update; it is what admission checks run before paying for
+     * {@link #reset(String)}. Returns what getString("type") would after a full parse.
+     * Leaves this view empty.
+     * @return The type, or null if there is none
+     */
+    public String peekType(String json) {
+        source = json;
+        fieldCount = 0;
+        valid = false;
+        if (json == null) {
+            return null;
+        }
+        try {
+            int pos = skipWhitespace(0);
+            if (pos >= json.length() || json.charAt(pos) != '{') {
+                return null;
+            }
+            pos = skipWhitespace(pos + 1);
+            // Scratch slot 0; nothing is recorded as a field
+            while (json.charAt(pos) == '"') {
+                int start = pos + 1;
+                pos = scanString(start, 0);
+                boolean isType = pos - start == 4 && json.startsWith("type", start);
+                pos = skipWhitespace(pos + 1);
+                if (json.charAt(pos) != ':') {
+                    return null;
+                }
+                pos = parseValue(skipWhitespace(pos + 1), 0);
+                if (isType) {
+                    return stringValue(0);
+                }
+                pos = skipWhitespace(pos);
+                if (json.charAt(pos) != ',') {
+                    return null;
+                }
+                pos = skipWhitespace(pos + 1);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // Truncated before the type
+        }
+        return null;
+    }
+
+    private String stringValue(int i) {
+        switch (valueType[i]) {
+            case TYPE_STRING:
+                return escaped[i] ? unescape(valueStart[i], valueEnd[i]) : source.substring(valueStart[i], valueEnd[i]);
+            case TYPE_NULL:
+                return null;
+            default:
+                return source.substring(valueStart[i], valueEnd[i]);
+        }
+    }
+
+    /**
+     * Get an integer field, returning 0 when missing or not numeric
+     */
+    public int getInt(String name) {
+        return getInt(name, 0);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        int i = indexOf(name);
+        if (i < 0) {
+            return defaultValue;
+        }
+        if (valueType[i] == TYPE_NUMBER) {
+            return integral[i] ? (int) numbers[i] : (int) parseDouble(i);
+        }
+        if (valueType[i] == TYPE_STRING && !escaped[i]) {
+            // Tolerate numbers sent as strings
+            try {
+                return Integer.parseInt(source, valueStart[i], valueEnd[i], 10);
+            } catch (NumberFormatException e) {
+                return defaultValue;
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Get a long field
+     * @return The value, or null if missing, JSON null or not numeric
+     */
+    public Long getLong(String name) {
+        int i = indexOf(name);
+        if (i < 0) {
+            return null;
+        }
+        if (valueType[i] == TYPE_NUMBER) {
+            return integral[i] ? numbers[i] : (long) parseDouble(i);
+        }
+        if (valueType[i] == TYPE_STRING && !escaped[i] && valueEnd[i] > valueStart[i]) {
+            try {
+                return Long.parseLong(source, valueStart[i], valueEnd[i], 10);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public double getDouble(String name, double defaultValue) {
+        int i = indexOf(name);
+        if (i < 0 || valueType[i] != TYPE_NUMBER) {
+            return defaultValue;
+        }
+        return integral[i] ? numbers[i] : parseDouble(i);
+    }
+
+    /**
+     * Get a boolean field; true only for JSON true or the string "true"
+     */
+    public boolean getBoolean(String name) {
+        int i = indexOf(name);
+        if (i < 0) {
+            return false;
+        }
+        return valueType[i] == TYPE_TRUE
+            || (valueType[i] == TYPE_STRING && source.regionMatches(valueStart[i], "true", 0, 4)
+                && valueEnd[i] - valueStart[i] == 4);
+    }
+
+    /**
+     * Write a field's value exactly as it appears in the message (quotes and escapes
+     * included), or null if absent. Lets large strings be re-embedded in outgoing JSON
+     * with a single copy instead of an unescape/escape round trip.
+     */
+    public JsonWriter writeRaw(String name, JsonWriter out) {
+        int i = indexOf(name);
+        if (i < 0) {
+            return out.rawValue(null);
+        }
+        if (valueType[i] == TYPE_STRING) {
+            return out.rawValue(source, valueStart[i] - 1, valueEnd[i] + 1);
+        }
+        return out.rawValue(source, valueStart[i], valueEnd[i]);
+    }
+
+    /**
+     * Length of a field's raw value text, or -1 if absent
+     */
+    public int rawLength(String name) {
+        int i = indexOf(name);
+        return i >= 0 ? valueEnd[i] - valueStart[i] : -1;
+    }
+
+    private int indexOf(String name) {
+        int length = name.length();
+        for (int i = 0; i < fieldCount; i++) {
+            if (keyEnd[i] - keyStart[i] == length && source.regionMatches(keyStart[i], name, 0, length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // ========================================
+    // Tokenizer
+    // ========================================
+
+    private boolean parseObject() {
+        int pos = skipWhitespace(0);
+        if (pos >= source.length() || source.charAt(pos) != '{') {
+            return false;
+        }
+        pos = skipWhitespace(pos + 1);
+        if (source.charAt(pos) == '}') {
+            return true;
+        }
+
+        while (true) {
+            if (source.charAt(pos) != '"') {
+                return false;
+            }
+            int field = addField();
+            keyStart[field] = pos + 1;
+            pos = scanString(pos + 1, field);
+            keyEnd[field] = pos;
+            // Keys with escapes are rare; the escape flag belongs to the value
+            escaped[field] = false;
+
+            pos = skipWhitespace(pos + 1);
+            if (source.charAt(pos) != ':') {
+                return false;
+            }
+            pos = skipWhitespace(pos + 1);
+            pos = parseValue(pos, field);
+
+            pos = skipWhitespace(pos);
+            char c = source.charAt(pos);
+            if (c == ',') {
+                pos = skipWhitespace(pos + 1);
+            } else {
+                return c == '}';
+            }
+        }
+    }
+
+    private int parseValue(int pos, int field) {
+        char c = source.charAt(pos);
+        switch (c) {
+            case '"': {
+                valueStart[field] = pos + 1;
+                int end = scanString(pos + 1, field);
+                valueEnd[field] = end;
+                valueType[field] = TYPE_STRING;
+                return end + 1;
+            }
+            case '{':
+            case '[': {
+                int end = skipNested(pos);
+                valueStart[field] = pos;
+                valueEnd[field] = end;
+                valueType[field] = c == '{' ? TYPE_OBJECT : TYPE_ARRAY;
+                return end;
+            }
+            case 't':
+                return literal(pos, field, "true", TYPE_TRUE);
+            case 'f':
+                return literal(pos, field, "false", TYPE_FALSE);
+            case 'n':
+                return literal(pos, field, "null", TYPE_NULL);
+            default:
+                return parseNumber(pos, field);
+        }
+    }
+
+    private int literal(int pos, int field, String text, byte type) {
+        if (!source.startsWith(text, pos)) {
+            throw new IndexOutOfBoundsException("Bad literal at " + pos);
+        }
+        valueStart[field] = pos;
+        valueEnd[field] = pos + text.length();
+        valueType[field] = type;
+        return pos + text.length();
+    }
+
+    private int parseNumber(int pos, int field) {
+        int start = pos;
+        boolean negative = false;
+        if (source.charAt(pos) == '-') {
+            negative = true;
+            pos++;
+        }
+        long value = 0;
+        int digits = 0;
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+            pos++;
+        }
+        boolean isIntegral = digits > 0 && digits <= 18;
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-' || (c >= '0' && c <= '9')) {
+                isIntegral = false;
+                pos++;
+            } else {
+                break;
+            }
+        }
+        if (pos == start) {
+            throw new IndexOutOfBoundsException("Bad value at " + pos);
+        }
+        valueStart[field] = start;
+        valueEnd[field] = pos;
+        valueType[field] = TYPE_NUMBER;
+        integral[field] = isIntegral;
+        numbers[field] = negative ? -value : value;
+        return pos;
+    }
+
+    /**
+     * Scan to the closing quote of a string starting at pos (just after the opening quote)
+     * @return Index of the closing quote
+     */
+    private int scanString(int pos, int field) {
+        boolean sawEscape = false;
+        while (true) {
+            char c = source.charAt(pos);
+            if (c == '"') {
+                escaped[field] = sawEscape;
+                return pos;
+            }
+            if (c == '\\') {
+                sawEscape = true;
+                pos += 2;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    private int skipNested(int pos) {
+        int depth = 0;
+        while (true) {
+            char c = source.charAt(pos);
+            if (c == '"') {
+                pos++;
+                while (source.charAt(pos) != '"') {
+                    pos += source.charAt(pos) == '\\' ? 2 : 1;
+                }
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                depth--;
+                if (depth == 0) {
+                    return pos + 1;
+                }
+            }
+            pos++;
+        }
+    }
+
+    private int skipWhitespace(int pos) {
+        int length = source.length();
+        while (pos < length) {
+            char c = source.charAt(pos);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private int addField() {
+        if (fieldCount == keyStart.length) {
+            int capacity = fieldCount * 2;
+            keyStart = Arrays.copyOf(keyStart, capacity);
+            keyEnd = Arrays.copyOf(keyEnd, capacity);
+            valueStart = Arrays.copyOf(valueStart, capacity);
+            valueEnd = Arrays.copyOf(valueEnd, capacity);
+            valueType = Arrays.copyOf(valueType, capacity);
+            escaped = Arrays.copyOf(escaped, capacity);
+            integral = Arrays.copyOf(integral, capacity);
+            numbers = Arrays.copyOf(numbers, capacity);
+        }
+        return fieldCount++;
+    }
+
+    private double parseDouble(int field) {
+        try {
+            return Double.parseDouble(source.substring(valueStart[field], valueEnd[field]));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private String unescape(int start, int end) {
+        StringBuilder value = new StringBuilder(end - start);
+        int i = start;
+        while (i < end) {
+            char c = source.charAt(i);
+            if (c != '\\') {
+                value.append(c);
+                i++;
+                continue;
+            }
+            char next = source.charAt(i + 1);
+            switch (next) {
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'u':
+                    if (i + 6 <= end) {
+                        try {
+                            value.append((char) Integer.parseInt(source, i + 2, i + 6, 16));
+                            i += 6;
+                            continue;
+                        } catch (NumberFormatException e) {
+                            value.append(next);
+                        }
+                    } else {
+                        value.append(next);
+                    }
+                    break;
+                default:
+                    // \" \\ \/ and anything unexpected map to the character itself
+                    value.append(next);
+                    break;
+            }
+            i += 2;
+        }
+        return value.toString();
+    }
+}
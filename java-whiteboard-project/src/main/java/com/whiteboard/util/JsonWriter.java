@@ -0,0 +1,304 @@
+package com.whiteboard.util;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Reusable JSON writer for outbound messages.
+ * Writes straight into a pooled char buffer, with typed appends
+ * (numbers are formatted without boxing or temporary strings) and proper string
+ * escaping. The only allocation for a finished message is the resulting String.
+ *
+ * Usage:
+ * <pre>
+ *   String json = JsonWriter.get().beginObject()
+ *       .field("type", "error")
+ *       .field("message", text)
+ *       .endObject().build();
+ * </pre>
+ * {@link #build()} hands the writer back to a small shared pool. The pool is not
+ * per thread because handlers run on virtual threads, which live for one task and
+ * would each fill their own ThreadLocal; when the pool is empty a fresh writer is
+ * created, and writers beyond its capacity are left to the garbage collector.
+ */
+public final class JsonWriter {
+
+    private static final int POOL_SIZE = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final ArrayBlockingQueue<JsonWriter> POOL = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private static final int INITIAL_CAPACITY = 512;
+
+    // Buffers grown past this (e.g. by canvas payloads) are not kept around
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private char[] buffer = new char[INITIAL_CAPACITY];
+    private int length;
+    private boolean inUse;
+
+    /**
+     * Take a writer from the pool (or a new one), emptied and ready for a new message
+     */
+    public static JsonWriter get() {
+        JsonWriter writer = POOL.poll();
+        if (writer == null) {
+            writer = new JsonWriter();
+        }
+        writer.inUse = true;
+        writer.length = 0;
+        return writer;
+    }
+
+    /**
+     * Ensure room for a message of roughly the given size (avoids regrowing for large payloads)
+     */
+    public JsonWriter reserve(int capacity) {
+        ensure(capacity);
+        return this;
+    }
+
+    public JsonWriter beginObject() {
+        separator();
+        return raw('{');
+    }
+
+    public JsonWriter endObject() {
+        return raw('}');
+    }
+
+    public JsonWriter beginArray() {
+        separator();
+        return raw('[');
+    }
+
+    public JsonWriter endArray() {
+        return raw(']');
+    }
+
+    /**
+     * Write a member name; the next value call writes its value
+     */
+    public JsonWriter name(String name) {
+        separator();
+        string(name);
+        return raw(':');
+    }
+
+    public JsonWriter value(String value) {
+        separator();
+        if (value == null) {
+            return rawText("null");
+        }
+        string(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) {
+        separator();
+        number(value);
+        return this;
+    }
+
+    public JsonWriter value(boolean value) {
+        separator();
+        return rawText(value ? "true" : "false");
+    }
+
+    /**
+     * Write a value that is already valid JSON (a nested document, or a quoted string
+     * copied from an inbound message)
+     */
+    public JsonWriter rawValue(CharSequence json) {
+        separator();
+        return rawText(json != null ? json : "null");
+    }
+
+    /**
+     * Write a slice of already valid JSON text
+     */
+    public JsonWriter rawValue(String json, int start, int end) {
+        separator();
+        appendRange(json, start, end);
+        return this;
+    }
+
+    public JsonWriter field(String name, String value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, long value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter field(String name, Long value) {
+        name(name);
+        return value != null ? value(value.longValue()) : rawText("null");
+    }
+
+    public JsonWriter field(String name, boolean value) {
+        return name(name).value(value);
+    }
+
+    public JsonWriter rawField(String name, CharSequence json) {
+        return name(name).rawValue(json);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Finish the message and release the writer
+     */
+    public String build() {
+        String json = new String(buffer, 0, length);
+        release();
+        return json;
+    }
+
+    /**
+     * Release the writer without producing a message (e.g. on error paths)
+     */
+    public void release() {
+        if (!inUse) {
+            // Already back in the pool; a second release must not add it twice
+            return;
+        }
+        inUse = false;
+        length = 0;
+        if (buffer.length > MAX_RETAINED_CAPACITY) {
+            buffer = new char[INITIAL_CAPACITY];
+        }
+        POOL.offer(this);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Quote and escape a single string as a JSON value
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        JsonWriter writer = get();
+        writer.string(value);
+        return writer.build();
+    }
+
+    // ========================================
+    // Internals
+    // ========================================
+
+    private void separator() {
+        if (length == 0) {
+            return;
+        }
+        char last = buffer[length - 1];
+        if (last != '{' && last != '[' && last != ':') {
+            raw(',');
+        }
+    }
+
+    private JsonWriter raw(char c) {
+        ensure(1);
+        buffer[length++] = c;
+        return this;
+    }
+
+    private JsonWriter rawText(CharSequence text) {
+        int n = text.length();
+        ensure(n);
+        if (text instanceof String) {
+            ((String) text).getChars(0, n, buffer, length);
+        } else {
+            for (int i = 0; i < n; i++) {
+                buffer[length + i] = text.charAt(i);
+            }
+        }
+        length += n;
+        return this;
+    }
+
+    private void string(String value) {
+        int n = value.length();
+        ensure(n + 2);
+        buffer[length++] = '"';
+        int runStart = 0;
+        for (int i = 0; i < n; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            // Copy the clean run, then the escape
+            appendRange(value, runStart, i);
+            runStart = i + 1;
+            switch (c) {
+                case '"': escape('"'); break;
+                case '\\': escape('\\'); break;
+                case '\n': escape('n'); break;
+                case '\r': escape('r'); break;
+                case '\t': escape('t'); break;
+                case '\b': escape('b'); break;
+                case '\f': escape('f'); break;
+                default:
+                    ensure(6);
+                    buffer[length++] = '\\';
+                    buffer[length++] = 'u';
+                    buffer[length++] = '0';
+                    buffer[length++] = '0';
+                    buffer[length++] = HEX[(c >> 4) & 0xF];
+                    buffer[length++] = HEX[c & 0xF];
+                    break;
+            }
+        }
+        appendRange(value, runStart, n);
+        raw('"');
+    }
+
+    private void appendRange(String value, int start, int end) {
+        if (end > start) {
+            ensure(end - start);
+            value.getChars(start, end, buffer, length);
+            length += end - start;
+        }
+    }
+
+    private void escape(char c) {
+        ensure(2);
+        buffer[length++] = '\\';
+        buffer[length++] = c;
+    }
+
+    private void number(long value) {
+        if (value == Long.MIN_VALUE) {
+            rawText("-9223372036854775808");
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buffer[length++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value / 10; v != 0; v /= 10) {
+            digits++;
+        }
+        int pos = length + digits;
+        length = pos;
+        do {
+            buffer[--pos] = (char) ('0' + (value % 10));
+            value /= 10;
+        } while (value != 0);
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.whiteboard.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server logging.
+ * Each category (usually a class name) has a level, from whiteboard.log.level.&lt;category&gt;
+ * or else whiteboard.log.level (default INFO). whiteboard.log.sample.&lt;category&gt;=N keeps
+ * only every Nth DEBUG/INFO record of a noisy category; warnings and errors are never
+ * sampled. Records are handed to an {@link AsyncLogAppender}, so logging never blocks
+ * the caller on I/O.
+ *
+ * Message payloads should go through {@link #truncate(String)}, and building an
+ * expensive message should be guarded with {@link #isDebugEnabled()}.
+ */
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final Level DEFAULT_LEVEL = parseLevel(Config.getString("whiteboard.log.level", "INFO"), Level.INFO);
+    private static final int MAX_PAYLOAD = Math.max(16, Config.getInt("whiteboard.log.maxPayload", 256));
+
+    private static final ConcurrentHashMap<String, Log> categories = new ConcurrentHashMap<>();
+    private static final AsyncLogAppender appender = new AsyncLogAppender();
+
+    private final String category;
+    private final Level level;
+    private final long sampleEvery;
+    private final AtomicLong sampleCounter = new AtomicLong();
+
+    private Log(String category) {
+        this.category = category;
+        this.level = parseLevel(Config.get("whiteboard.log.level." + category), DEFAULT_LEVEL);
+        this.sampleEvery = Math.max(1, Config.getLong("whiteboard.log.sample." + category, 1));
+    }
+
+    /**
+     * Get the logger for a category
+     */
+    public static Log get(String category) {
+        return categories.computeIfAbsent(category, Log::new);
+    }
+
+    /**
+     * Get the logger for a class (category is the simple class name)
+     */
+    public static Log get(Class<?> type) {
+        return get(type.getSimpleName());
+    }
+
+    public boolean isEnabled(Level level) {
+        return level.compareTo(this.level) >= 0 && level != Level.OFF;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void warn(String message, Throwable error) {
+        log(Level.WARN, message, error);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public void error(String message, Throwable error) {
+        log(Level.ERROR, message, error);
+    }
+
+    private void log(Level level, String message, Throwable error) {
+        if (!isEnabled(level)) {
+            return;
+        }
+        if (sampleEvery > 1 && level.compareTo(Level.WARN) < 0
+                && sampleCounter.getAndIncrement() % sampleEvery != 0) {
+            return;
+        }
+        appender.append(new AsyncLogAppender.Record(System.currentTimeMillis(), level, category,
+                                                    Thread.currentThread().getName(), message, error));
+    }
+
+    /**
+     * Shorten a payload for logging to whiteboard.log.maxPayload characters
+     */
+    public static String truncate(String payload) {
+        if (payload == null || payload.length() <= MAX_PAYLOAD) {
+            return payload;
+        }
+        return payload.substring(0, MAX_PAYLOAD) + "...(" + payload.length() + " chars)";
+    }
+
+    /**
+     * Records dropped because the appender queue was full
+     */
+    public static long getDroppedCount() {
+        return appender.getDropped();
+    }
+
+    public static long getWrittenCount() {
+        return appender.getWritten();
+    }
+
+    public static int getQueuedCount() {
+        return appender.getQueued();
+    }
+
+    private static Level parseLevel(String value, Level defaultLevel) {
+        if (value == null) {
+            return defaultLevel;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid log level: " + value + " (using " + defaultLevel + ")");
+            return defaultLevel;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.whiteboard.util;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs submitted tasks one at a time, in submission order, on a backing executor.
+ * Used to get ordering guarantees on top of a shared (e.g. virtual-thread) executor
+ * without dedicating a platform thread to each ordered stream.
+ */
+public class SerialExecutor implements Executor {
+
+    private static final Log log = Log.get(SerialExecutor.class);
+
+    private final Executor backing;
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    public SerialExecutor(Executor backing) {
+        this.backing = backing;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        pending.incrementAndGet();
+        tasks.offer(task);
+        schedule();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                backing.execute(this::drain);
+            } catch (RuntimeException e) {
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error("Error in serial task: " + e.getMessage(), e);
+                } finally {
+                    pending.decrementAndGet();
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            // A task offered after the last poll() but before the flag reset needs a new drain
+            if (!tasks.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    /**
+     * Number of tasks submitted but not yet finished
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+}
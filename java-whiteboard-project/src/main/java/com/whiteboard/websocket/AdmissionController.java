@@ -0,0 +1,229 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Sheds load before a backlog takes the whole node down.
+ *
+ * A few times a second the controller samples three signals - database tasks
+ * waiting for a permit, frames queued to clients, and the average handler time
+ * since the last sample - and divides each by its limit. The largest ratio is the
+ * node's pressure, which picks a mode. Each mode keeps the measures of the ones
+ * below it:
+ *
+ *   NORMAL             pressure below 1
+ *   CLOSED_TO_JOINS    from 1: new rooms and join requests are refused
+ *   BATCH_PERSISTENCE  from 1.5: draw and shape events are saved in batches, off the request path
+ *   SHEDDING           from 2: cursor updates are dropped
+ *
+ * Modes rise as soon as pressure does and fall one step at a time once pressure
+ * has stayed below the current mode for whiteboard.admission.recoveryMillis, so
+ * the node does not flap at a threshold.
+ */
+public class AdmissionController {
+
+    private static final Log log = Log.get(AdmissionController.class);
+
+    private static final boolean ENABLED = Config.getBoolean("whiteboard.admission.enabled", true);
+    private static final long INTERVAL_MILLIS = Math.max(10, Config.getLong("whiteboard.admission.intervalMillis", 250));
+    private static final long RECOVERY_NANOS =
+        TimeUnit.MILLISECONDS.toNanos(Config.getLong("whiteboard.admission.recoveryMillis", 5000));
+
+    // Limits at which each signal alone reaches pressure 1
+    private static final int DB_QUEUED_LIMIT = Math.max(1, Config.getInt("whiteboard.admission.dbQueued",
+                                                                         4 * BlockingWorkExecutor.getMaxConcurrent()));
+    private static final long OUTBOUND_QUEUED_LIMIT = Math.max(1, Config.getLong("whiteboard.admission.outboundQueued", 100_000));
+    private static final long HANDLER_NANOS_LIMIT =
+        TimeUnit.MILLISECONDS.toNanos(Math.max(1, Config.getLong("whiteboard.admission.handlerMillis", 250)));
+    // Fewer messages than this in a sample say nothing about load, however slow they were
+    private static final int MIN_HANDLED = 10;
+
+    // Shed messages per type; looked up once, not on every message while overloaded
+    private static final Counter shedCreateRoom = shedCounter("createRoom");
+    private static final Counter shedJoinRoom = shedCounter("joinRoom");
+    private static final Counter shedCursor = shedCounter("cursor");
+
+    /**
+     * Load shedding levels, least to most drastic
+     */
+    public enum Mode {
+        NORMAL(0),
+        CLOSED_TO_JOINS(1),
+        BATCH_PERSISTENCE(1.5),
+        SHEDDING(2);
+
+        private final double pressure;
+
+        Mode(double pressure) {
+            this.pressure = pressure;
+        }
+
+        static Mode forPressure(double pressure) {
+            Mode mode = NORMAL;
+            for (Mode candidate : values()) {
+                if (pressure >= candidate.pressure) {
+                    mode = candidate;
+                }
+            }
+            return mode;
+        }
+    }
+
+    /**
+     * What to do with an inbound message
+     */
+    public enum Decision {
+        ACCEPT,
+        // Answer with a busy error
+        REFUSE,
+        // Ignore silently
+        DROP
+    }
+
+    private final IntSupplier dbQueued;
+    private final LongSupplier outboundQueued;
+    private final LongAdder handledNanos = new LongAdder();
+    private final LongAdder handledCount = new LongAdder();
+
+    private volatile Mode mode = Mode.NORMAL;
+    private volatile double pressure;
+    // When pressure first dropped below the current mode; 0 while it has not
+    private long belowSince;
+
+    /**
+     * @param dbQueued Database tasks waiting for a permit
+     * @param outboundQueued Frames queued to all clients
+     */
+    public AdmissionController(IntSupplier dbQueued, LongSupplier outboundQueued) {
+        this.dbQueued = dbQueued;
+        this.outboundQueued = outboundQueued;
+        if (ENABLED) {
+            ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "whiteboard-admission");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ticker.scheduleAtFixedRate(this::sample, INTERVAL_MILLIS, INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } else {
+            log.info("Admission control disabled");
+        }
+        Metrics.gauge("whiteboard_admission_mode",
+                      "Load shedding mode: 0 normal, 1 closed to joins, 2 batch persistence, 3 shedding",
+                      () -> mode.ordinal());
+        Metrics.gauge("whiteboard_admission_pressure", "Largest signal-to-limit ratio at the last sample",
+                      () -> pressure);
+    }
+
+    /**
+     * Account a handled message's handler time
+     */
+    public void recordHandled(long nanos) {
+        handledNanos.add(nanos);
+        handledCount.increment();
+    }
+
+    /**
+     * Decide whether to take a message of the given type in the current mode
+     */
+    public Decision admit(String type) {
+        Mode current = mode;
+        if (current == Mode.NORMAL) {
+            return Decision.ACCEPT;
+        }
+        switch (type) {
+            case "createRoom":
+                return shed(shedCreateRoom, Decision.REFUSE);
+            case "joinRoom":
+                return shed(shedJoinRoom, Decision.REFUSE);
+            case "cursor":
+                return current == Mode.SHEDDING ? shed(shedCursor, Decision.DROP) : Decision.ACCEPT;
+            default:
+                return Decision.ACCEPT;
+        }
+    }
+
+    private static Decision shed(Counter counter, Decision decision) {
+        counter.inc();
+        return decision;
+    }
+
+    private static Counter shedCounter(String type) {
+        return Metrics.counter("whiteboard_admission_shed_total", "Messages refused or dropped by admission control",
+                               "type", type);
+    }
+
+    /**
+     * Whether drawing events should go through the batch writer instead of being saved one by one
+     */
+    public boolean isBatchPersistence() {
+        return mode.compareTo(Mode.BATCH_PERSISTENCE) >= 0;
+    }
+
+    /**
+     * Whether a message type's only database work is deferred to the batch writer
+     * right now, so it can be handled without waiting for a database permit
+     */
+    public boolean isDeferredWrite(String type) {
+        return isBatchPersistence() && (type.equals("draw") || type.equals("shape"));
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Pressure at the last sample; 1 means a signal is at its limit
+     */
+    public double getPressure() {
+        return pressure;
+    }
+
+    private void sample() {
+        try {
+            long count = handledCount.sumThenReset();
+            long nanos = handledNanos.sumThenReset();
+            double db = (double) dbQueued.getAsInt() / DB_QUEUED_LIMIT;
+            double outbound = (double) outboundQueued.getAsLong() / OUTBOUND_QUEUED_LIMIT;
+            double handler = count < MIN_HANDLED ? 0 : (double) nanos / count / HANDLER_NANOS_LIMIT;
+            pressure = Math.max(db, Math.max(outbound, handler));
+            update(Mode.forPressure(pressure), System.nanoTime(), db, outbound, handler);
+        } catch (RuntimeException e) {
+            log.error("Admission sample failed: " + e.getMessage(), e);
+        }
+    }
+
+    private void update(Mode target, long now, double db, double outbound, double handler) {
+        Mode current = mode;
+        if (target.compareTo(current) >= 0) {
+            belowSince = 0;
+            if (target != current) {
+                mode = target;
+                log.warn("Admission mode " + current + " -> " + target + signals(db, outbound, handler));
+            }
+            return;
+        }
+        if (belowSince == 0) {
+            belowSince = now;
+        } else if (now - belowSince >= RECOVERY_NANOS) {
+            Mode lower = Mode.values()[current.ordinal() - 1];
+            mode = lower;
+            // Give the next step down its own recovery period
+            belowSince = lower == target ? 0 : now;
+            log.info("Admission mode " + current + " -> " + lower + signals(db, outbound, handler));
+        }
+    }
+
+    private static String signals(double db, double outbound, double handler) {
+        return String.format(" (db queue %.2f, outbound %.2f, handler time %.2f of limit)", db, outbound, handler);
+    }
+}
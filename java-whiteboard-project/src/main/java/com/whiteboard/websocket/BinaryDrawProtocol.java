@@ -0,0 +1,118 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.model.DrawingEvent;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding for draw segments, used by clients that opt in during
+ * the welcome handshake (clientHello with "binaryDraw":true).
+ *
+ * A binary frame is a sequence of records, each starting with an opcode byte.
+ * JSON frames always start with '{' so the two never collide.
+ *
+ *   STYLE   0x01  varint styleId, string color, string tool, varint strokeWidth,
+ *                 string lineStyle, string sessionId, string username, varint boardId+1 (0 = none)
+ *   SEGMENT 0x02  varint styleId, zigzag x1, zigzag y1, zigzag (x2-x1), zigzag (y2-y1)
+ *
+ * Strings are a varint byte length followed by UTF-8 bytes. A style is sent to a
+ * client once, before the first segment that uses it; a typical segment is then
+ * 6-10 bytes instead of ~200 bytes of JSON.
+ */
+public final class BinaryDrawProtocol {
+
+    public static final byte OP_STYLE = 0x01;
+    public static final byte OP_SEGMENT = 0x02;
+
+    private BinaryDrawProtocol() {
+    }
+
+    /**
+     * Encode the style definition record for an interned style
+     */
+    public static ByteBuffer encodeStyle(int styleId, DrawingEvent event) {
+        Writer out = new Writer(64);
+        out.writeByte(OP_STYLE);
+        out.writeVarint(styleId);
+        out.writeString(event.getColor());
+        out.writeString(event.getTool());
+        out.writeVarint(Math.max(0, event.getStrokeWidth()));
+        out.writeString(event.getLineStyle());
+        out.writeString(event.getSessionId());
+        out.writeString(event.getUsername());
+        out.writeVarLong(event.getBoardId() != null ? event.getBoardId() + 1 : 0);
+        return out.toReadOnlyBuffer();
+    }
+
+    /**
+     * Encode a single segment record
+     */
+    public static ByteBuffer encodeSegment(int styleId, DrawingEvent event) {
+        Writer out = new Writer(16);
+        writeSegment(out, styleId, event);
+        return out.toReadOnlyBuffer();
+    }
+
+    static void writeSegment(Writer out, int styleId, DrawingEvent event) {
+        out.writeByte(OP_SEGMENT);
+        out.writeVarint(styleId);
+        out.writeZigZag(event.getX1());
+        out.writeZigZag(event.getY1());
+        out.writeZigZag(event.getX2() - event.getX1());
+        out.writeZigZag(event.getY2() - event.getY1());
+    }
+
+    /**
+     * Minimal growable byte writer for the record format
+     */
+    static final class Writer {
+        private byte[] bytes;
+        private int length;
+
+        Writer(int initialCapacity) {
+            bytes = new byte[initialCapacity];
+        }
+
+        void writeByte(int b) {
+            ensure(1);
+            bytes[length++] = (byte) b;
+        }
+
+        void writeVarint(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeZigZag(int value) {
+            writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        void writeString(String value) {
+            byte[] utf8 = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+            writeVarint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, length, utf8.length);
+            length += utf8.length;
+        }
+
+        ByteBuffer toReadOnlyBuffer() {
+            return ByteBuffer.wrap(bytes, 0, length).slice().asReadOnlyBuffer();
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+import com.whiteboard.util.SerialExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs blocking work (JDBC through the DAOs) on virtual threads so a slow query
+ * never holds a WebSocket I/O thread.
+ *
+ * Each session gets its own {@link SerialExecutor} lane, so its messages are still
+ * handled one at a time and in arrival order. Blocking tasks also take a permit
+ * from a semaphore sized to whiteboard.db.maxConcurrent, which caps the number of
+ * open database connections and keeps virtual threads pinned inside the JDBC
+ * driver from tying up every carrier thread.
+ *
+ * Work that only waits on a client (e.g. sending history) runs without a permit and
+ * takes one just for its queries, so a slow reader cannot hold a connection slot.
+ */
+public class BlockingWorkExecutor {
+
+    private static final Log log = Log.get(BlockingWorkExecutor.class);
+
+    private static final int MAX_CONCURRENT = Math.max(1, Config.getInt("whiteboard.db.maxConcurrent", 16));
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits = new Semaphore(MAX_CONCURRENT, true);
+
+    private final LongAdder tasksRun = new LongAdder();
+    private final LongAdder permitWaitNanos = new LongAdder();
+    private final AtomicLong maxPermitWaitNanos = new AtomicLong();
+
+    /**
+     * Create the ordered lane for a new session
+     */
+    public SerialExecutor newLane() {
+        return new SerialExecutor(workers);
+    }
+
+    /**
+     * Run a task on a session's lane, after everything already queued there
+     * @param blocking true if the task does database work and needs a permit
+     */
+    public void execute(SerialExecutor lane, Runnable task, boolean blocking) {
+        lane.execute(blocking ? () -> runWithPermit(task) : task);
+    }
+
+    /**
+     * Run work that has no ordering requirement on a virtual thread of its own,
+     * without a permit. Its database calls go through {@link #withPermit}.
+     */
+    public void executeWithoutPermit(Runnable task) {
+        workers.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Error in background task: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Run a database call on the calling thread while holding a permit
+     * @return What the call returned
+     */
+    public <T> T withPermit(Supplier<T> call) {
+        long start = System.nanoTime();
+        permits.acquireUninterruptibly();
+        long waited = System.nanoTime() - start;
+        permitWaitNanos.add(waited);
+        if (waited > maxPermitWaitNanos.get()) {
+            maxPermitWaitNanos.accumulateAndGet(waited, Math::max);
+        }
+        try {
+            return call.get();
+        } finally {
+            permits.release();
+            tasksRun.increment();
+        }
+    }
+
+    private void runWithPermit(Runnable task) {
+        withPermit(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    public long getTasksRun() {
+        return tasksRun.sum();
+    }
+
+    /**
+     * Tasks currently waiting for a permit
+     */
+    public int getQueuedForPermit() {
+        return permits.getQueueLength();
+    }
+
+    public long getPermitWaitNanos() {
+        return permitWaitNanos.sum();
+    }
+
+    public long getMaxPermitWaitNanos() {
+        return maxPermitWaitNanos.get();
+    }
+
+    public static int getMaxConcurrent() {
+        return MAX_CONCURRENT;
+    }
+}
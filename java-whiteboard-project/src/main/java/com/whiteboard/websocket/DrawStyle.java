@@ -0,0 +1,95 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.model.DrawingEvent;
+
+import javax.websocket.Session;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Everything about a draw segment except its coordinates, interned per drawing
+ * session so the binary protocol can refer to it by a small id.
+ */
+public final class DrawStyle {
+
+    private static final String USER_PROPERTY_KEY = "whiteboard.drawStyles";
+    private static final String LAST_STYLE_KEY = "whiteboard.lastDrawStyle";
+
+    // Style ids are unique across the server so receivers can cache definitions by id alone
+    private static final AtomicInteger nextId = new AtomicInteger(1);
+
+    // A sender cycling through more styles than this starts a fresh table
+    private static final int MAX_STYLES_PER_SESSION = 256;
+
+    private final int id;
+    private final String color;
+    private final String tool;
+    private final int strokeWidth;
+    private final String lineStyle;
+    private final String sessionId;
+    private final String username;
+    private final Long boardId;
+    private final OutboundFrame definition;
+
+    private DrawStyle(int id, DrawingEvent event) {
+        this.id = id;
+        this.color = event.getColor();
+        this.tool = event.getTool();
+        this.strokeWidth = event.getStrokeWidth();
+        this.lineStyle = event.getLineStyle();
+        this.sessionId = event.getSessionId();
+        this.username = event.getUsername();
+        this.boardId = event.getBoardId();
+        this.definition = OutboundFrame.binary(BinaryDrawProtocol.encodeStyle(id, event));
+    }
+
+    /**
+     * Find or create the style for a segment drawn by the given session
+     */
+    @SuppressWarnings("unchecked")
+    public static DrawStyle intern(Session sender, DrawingEvent event) {
+        // Consecutive segments of a stroke almost always share a style
+        DrawStyle last = (DrawStyle) sender.getUserProperties().get(LAST_STYLE_KEY);
+        if (last != null && last.matches(event)) {
+            return last;
+        }
+
+        ConcurrentHashMap<String, DrawStyle> styles = (ConcurrentHashMap<String, DrawStyle>)
+            sender.getUserProperties().computeIfAbsent(USER_PROPERTY_KEY, k -> new ConcurrentHashMap<String, DrawStyle>());
+
+        String key = event.getColor() + '|' + event.getTool() + '|' + event.getStrokeWidth() + '|' +
+                     event.getLineStyle() + '|' + event.getUsername() + '|' + event.getBoardId();
+        DrawStyle style = styles.get(key);
+        if (style == null || !style.matches(event)) {
+            if (styles.size() >= MAX_STYLES_PER_SESSION) {
+                styles.clear();
+            }
+            style = new DrawStyle(nextId.getAndIncrement(), event);
+            styles.put(key, style);
+        }
+        sender.getUserProperties().put(LAST_STYLE_KEY, style);
+        return style;
+    }
+
+    private boolean matches(DrawingEvent event) {
+        return strokeWidth == event.getStrokeWidth()
+            && Objects.equals(color, event.getColor())
+            && Objects.equals(tool, event.getTool())
+            && Objects.equals(lineStyle, event.getLineStyle())
+            && Objects.equals(sessionId, event.getSessionId())
+            && Objects.equals(username, event.getUsername())
+            && Objects.equals(boardId, event.getBoardId());
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Pre-encoded STYLE record, shared by every receiver that needs it
+     */
+    public OutboundFrame getDefinition() {
+        return definition;
+    }
+}
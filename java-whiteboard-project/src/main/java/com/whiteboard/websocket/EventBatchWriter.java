@@ -0,0 +1,151 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.dao.DrawingEventDAO;
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+import com.whiteboard.util.SerialExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind buffer for drawing events.
+ * Events are collected and stored with one saveEventsBatch per
+ * whiteboard.persistence.batchMillis (or per batchEvents, whichever comes first),
+ * which turns a connection and an insert per stroke into a connection per batch.
+ * Flushes run one at a time on their own lane, so events reach the database in
+ * the order they were offered.
+ *
+ * The buffer is bounded: once whiteboard.persistence.maxPendingEvents are waiting
+ * for a database that is not keeping up, further events are counted and not saved.
+ * They are still broadcast and kept in the room's in-memory tail.
+ */
+public final class EventBatchWriter {
+
+    private static final Log log = Log.get(EventBatchWriter.class);
+
+    private static final long FLUSH_MILLIS = Math.max(1, Config.getLong("whiteboard.persistence.batchMillis", 500));
+    private static final int MAX_BATCH = Math.max(1, Config.getInt("whiteboard.persistence.batchEvents", 500));
+    private static final int MAX_PENDING =
+        Math.max(MAX_BATCH, Config.getInt("whiteboard.persistence.maxPendingEvents", 100_000));
+
+    private static final Counter eventsWritten =
+        Metrics.counter("whiteboard_events_batched_total", "Drawing events stored by the batch writer");
+    private static final Counter eventsUnsaved =
+        Metrics.counter("whiteboard_events_unsaved_total", "Drawing events the batch writer dropped or failed to store");
+
+    private final DrawingEventDAO dao;
+    private final BlockingWorkExecutor executor;
+    private final SerialExecutor lane;
+    private final ScheduledExecutorService ticker;
+
+    // All guarded by lock
+    private final Object lock = new Object();
+    private List<DrawingEvent> buffer = new ArrayList<>();
+    // Events taken by a flush that has not finished yet
+    private int inFlight;
+    // A flush is waiting on the lane / the flush timer is running
+    private boolean flushQueued;
+    private boolean timerArmed;
+
+    public EventBatchWriter(DrawingEventDAO dao, BlockingWorkExecutor executor) {
+        this.dao = dao;
+        this.executor = executor;
+        this.lane = executor.newLane();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "whiteboard-event-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Metrics.gauge("whiteboard_events_pending", "Drawing events waiting in the batch writer", this::getPendingCount);
+    }
+
+    /**
+     * Queue an event for the next batch
+     * @return false if the buffer is full and the event will not be saved
+     */
+    public boolean offer(DrawingEvent event) {
+        boolean flushNow = false;
+        boolean armTimer = false;
+        synchronized (lock) {
+            if (buffer.size() + inFlight >= MAX_PENDING) {
+                eventsUnsaved.inc();
+                return false;
+            }
+            buffer.add(event);
+            if (!flushQueued) {
+                if (buffer.size() >= MAX_BATCH) {
+                    flushQueued = flushNow = true;
+                } else if (!timerArmed) {
+                    timerArmed = armTimer = true;
+                }
+            }
+        }
+        if (flushNow) {
+            executor.execute(lane, this::flush, true);
+        } else if (armTimer) {
+            ticker.schedule(this::timerExpired, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private void timerExpired() {
+        synchronized (lock) {
+            timerArmed = false;
+            if (flushQueued || buffer.isEmpty()) {
+                return;
+            }
+            flushQueued = true;
+        }
+        executor.execute(lane, this::flush, true);
+    }
+
+    /**
+     * Whether any offered event is not in the database yet
+     */
+    public boolean hasPending() {
+        synchronized (lock) {
+            return !buffer.isEmpty() || inFlight > 0;
+        }
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return buffer.size() + inFlight;
+        }
+    }
+
+    private void flush() {
+        List<DrawingEvent> events;
+        synchronized (lock) {
+            flushQueued = false;
+            if (buffer.isEmpty()) {
+                return;
+            }
+            events = buffer;
+            buffer = new ArrayList<>();
+            inFlight += events.size();
+        }
+        try {
+            for (int from = 0; from < events.size(); from += MAX_BATCH) {
+                List<DrawingEvent> batch = events.subList(from, Math.min(events.size(), from + MAX_BATCH));
+                int saved = dao.saveEventsBatch(batch);
+                eventsWritten.add(saved);
+                if (saved < batch.size()) {
+                    eventsUnsaved.add(batch.size() - saved);
+                    log.warn("Batch writer stored " + saved + " of " + batch.size() + " drawing events");
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                inFlight -= events.size();
+            }
+        }
+    }
+}
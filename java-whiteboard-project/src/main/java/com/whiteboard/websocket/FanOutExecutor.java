@@ -0,0 +1,179 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.metrics.BroadcastEvent;
+import com.whiteboard.metrics.Histogram;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.SerialExecutor;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Delivers one message to many recipients.
+ * Small recipient sets are handled inline on the caller's thread; large ones are
+ * split across a fixed set of lanes running on virtual threads. Each recipient is
+ * pinned to one lane, so messages to the same recipient keep their order.
+ *
+ * A parallel fan-out returns before its frames are queued to the recipients, so
+ * messages sent to a single session go through {@link #deliver} (or wait in
+ * {@link #awaitDelivered}) to stay behind broadcasts that were issued before them.
+ */
+public class FanOutExecutor {
+
+    // Recipient count at or below which delivery stays on the caller's thread
+    private static final int INLINE_THRESHOLD = Config.getInt("whiteboard.fanout.inlineThreshold", 32);
+
+    private static final int LANE_COUNT = Math.max(1, Config.getInt("whiteboard.fanout.lanes",
+        Runtime.getRuntime().availableProcessors()));
+
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final SerialExecutor[] lanes;
+
+    // Fan-out duration statistics (nanoseconds), measured until the last lane finishes
+    private final LongAdder fanOutCount = new LongAdder();
+    private final LongAdder fanOutTotalNanos = new LongAdder();
+    private final AtomicLong fanOutMaxNanos = new AtomicLong();
+    private final Histogram fanOutTime =
+        Metrics.histogram("whiteboard_fanout_seconds", "Time to deliver one message to every recipient");
+
+    public FanOutExecutor() {
+        lanes = new SerialExecutor[LANE_COUNT];
+        for (int i = 0; i < LANE_COUNT; i++) {
+            lanes[i] = new SerialExecutor(workers);
+        }
+    }
+
+    /**
+     * Deliver to every recipient
+     * @param target What is being broadcast to (room code, or "all"), for flight recordings
+     * @param recipients Target sessions
+     * @param delivery Action to run for each recipient (typically queueing a frame)
+     */
+    public void fanOut(String target, Collection<Session> recipients, Consumer<Session> delivery) {
+        fanOut(target, recipients.toArray(new Session[0]), delivery);
+    }
+
+    /**
+     * Deliver to every recipient of an array snapshot (not modified)
+     */
+    public void fanOut(String target, Session[] recipients, Consumer<Session> delivery) {
+        long start = System.nanoTime();
+        BroadcastEvent event = null;
+        if (BroadcastEvent.isRecording()) {
+            event = new BroadcastEvent();
+            event.begin();
+            event.target = target;
+            event.recipients = recipients.length;
+        }
+
+        if (recipients.length <= INLINE_THRESHOLD) {
+            for (Session session : recipients) {
+                // Earlier parallel fan-out may still hold frames for this recipient
+                deliver(session, delivery);
+            }
+            record(System.nanoTime() - start, event, true);
+            return;
+        }
+
+        List<List<Session>> batches = new ArrayList<>(LANE_COUNT);
+        for (int i = 0; i < LANE_COUNT; i++) {
+            batches.add(new ArrayList<>(recipients.length / LANE_COUNT + 1));
+        }
+        for (Session session : recipients) {
+            batches.get(laneIndex(session)).add(session);
+        }
+
+        BroadcastEvent pending = event;
+        AtomicInteger remaining = new AtomicInteger();
+        for (List<Session> batch : batches) {
+            if (!batch.isEmpty()) {
+                remaining.incrementAndGet();
+            }
+        }
+        for (int i = 0; i < LANE_COUNT; i++) {
+            List<Session> batch = batches.get(i);
+            if (batch.isEmpty()) {
+                continue;
+            }
+            lanes[i].execute(() -> {
+                for (Session session : batch) {
+                    delivery.accept(session);
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    record(System.nanoTime() - start, pending, false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Deliver to one recipient, after any fan-out still holding frames for it
+     */
+    public void deliver(Session session, Consumer<Session> delivery) {
+        SerialExecutor lane = laneFor(session);
+        if (lane.getPendingCount() > 0) {
+            lane.execute(() -> delivery.accept(session));
+        } else {
+            delivery.accept(session);
+        }
+    }
+
+    /**
+     * Wait until every fan-out and {@link #deliver} issued so far has reached the
+     * recipient, for senders that queue to its outbound directly
+     */
+    public void awaitDelivered(Session session) throws InterruptedException {
+        SerialExecutor lane = laneFor(session);
+        if (lane.getPendingCount() == 0) {
+            return;
+        }
+        CountDownLatch reached = new CountDownLatch(1);
+        lane.execute(reached::countDown);
+        reached.await();
+    }
+
+    private SerialExecutor laneFor(Session session) {
+        return lanes[laneIndex(session)];
+    }
+
+    private int laneIndex(Session session) {
+        return Math.floorMod(System.identityHashCode(session), LANE_COUNT);
+    }
+
+    private void record(long nanos, BroadcastEvent event, boolean inline) {
+        if (event != null) {
+            event.inline = inline;
+            event.commit();
+        }
+        fanOutTime.observeNanos(nanos);
+        fanOutCount.increment();
+        fanOutTotalNanos.add(nanos);
+        fanOutMaxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getFanOutCount() {
+        return fanOutCount.sum();
+    }
+
+    public long getFanOutTotalNanos() {
+        return fanOutTotalNanos.sum();
+    }
+
+    public long getFanOutMaxNanos() {
+        return fanOutMaxNanos.get();
+    }
+
+    public static int getInlineThreshold() {
+        return INLINE_THRESHOLD;
+    }
+}
@@ -0,0 +1,196 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.util.JsonWriter;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An outbound message shared by every recipient of a broadcast.
+ * The UTF-8 encoding is produced at most once and handed to each session as a
+ * read-only view, so broadcasting a large payload costs one encoding rather than
+ * one per recipient. Clients that have not negotiated binary frames still get
+ * the text form.
+ *
+ * Draw frames additionally carry a compact binary form (see {@link BinaryDrawProtocol});
+ * their JSON text is only built if some recipient still needs it.
+ *
+ * Batch frames wrap several frames as {"type":"batch","events":[...]}; when every
+ * part is a draw frame the batch also has a compact form made of the concatenated
+ * segment records.
+ */
+public final class OutboundFrame {
+
+    private volatile String text;
+    private volatile ByteBuffer encoded;
+    private final boolean binary;
+    private final DrawingEvent source;
+    private final List<OutboundFrame> parts;
+    private final DrawStyle[] compactStyles;
+    private final OutboundFrame compactForm;
+
+    private OutboundFrame(String text, ByteBuffer encoded, boolean binary, DrawingEvent source,
+                          List<OutboundFrame> parts, DrawStyle[] compactStyles, OutboundFrame compactForm) {
+        this.text = text;
+        this.encoded = encoded;
+        this.binary = binary;
+        this.source = source;
+        this.parts = parts;
+        this.compactStyles = compactStyles;
+        this.compactForm = compactForm;
+    }
+
+    /**
+     * Wrap a message; encoding happens lazily on first binary delivery
+     */
+    public static OutboundFrame of(String text) {
+        return new OutboundFrame(text, null, false, null, null, null, null);
+    }
+
+    /**
+     * Build a frame for a constant message, encoded up front so it can be reused forever
+     */
+    public static OutboundFrame constant(String text) {
+        return new OutboundFrame(text, encode(text), false, null, null, null, null);
+    }
+
+    /**
+     * Wrap a raw binary protocol payload (no text form)
+     */
+    public static OutboundFrame binary(ByteBuffer payload) {
+        return new OutboundFrame(null, payload.asReadOnlyBuffer(), true, null, null, null, null);
+    }
+
+    /**
+     * Build a draw frame: compact binary segment for negotiated clients, JSON for the rest
+     */
+    public static OutboundFrame draw(DrawingEvent event, DrawStyle style) {
+        OutboundFrame segment = binary(BinaryDrawProtocol.encodeSegment(style.getId(), event));
+        return new OutboundFrame(null, null, false, event, null, new DrawStyle[] {style}, segment);
+    }
+
+    /**
+     * Combine frames into one batch frame, preserving their order
+     */
+    public static OutboundFrame batch(List<OutboundFrame> frames) {
+        List<OutboundFrame> parts = new ArrayList<>(frames);
+
+        boolean allCompact = true;
+        int compactLength = 0;
+        int styleCount = 0;
+        for (OutboundFrame part : parts) {
+            if (part.compactForm == null) {
+                allCompact = false;
+                break;
+            }
+            compactLength += part.compactForm.encoded.remaining();
+            styleCount += part.compactStyles.length;
+        }
+        if (!allCompact) {
+            return new OutboundFrame(null, null, false, null, parts, null, null);
+        }
+
+        // Segment records are self-delimiting, so the compact batch is just their concatenation
+        ByteBuffer records = ByteBuffer.allocate(compactLength);
+        List<DrawStyle> styles = new ArrayList<>(Math.min(styleCount, 16));
+        for (OutboundFrame part : parts) {
+            records.put(part.compactForm.encoded.duplicate());
+            for (DrawStyle style : part.compactStyles) {
+                if (!styles.contains(style)) {
+                    styles.add(style);
+                }
+            }
+        }
+        records.flip();
+        return new OutboundFrame(null, null, false, null, parts, styles.toArray(new DrawStyle[0]), binary(records));
+    }
+
+    public String getText() {
+        String value = text;
+        if (value == null && (source != null || parts != null)) {
+            synchronized (this) {
+                value = text;
+                if (value == null) {
+                    value = source != null ? source.toJson() : batchJson();
+                    text = value;
+                }
+            }
+        }
+        return value;
+    }
+
+    private String batchJson() {
+        JsonWriter out = JsonWriter.get().beginObject()
+            .field("type", "batch")
+            .name("events").beginArray();
+        for (OutboundFrame part : parts) {
+            out.rawValue(part.getText());
+        }
+        return out.endArray().endObject().build();
+    }
+
+    /**
+     * Get an independent read-only view of the encoded frame for a single send
+     */
+    public ByteBuffer newBinaryView() {
+        ByteBuffer buffer = encoded;
+        if (buffer == null) {
+            synchronized (this) {
+                buffer = encoded;
+                if (buffer == null) {
+                    buffer = encode(getText());
+                    encoded = buffer;
+                }
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    /**
+     * Whether this frame is a binary protocol payload rather than JSON
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Compact binary alternative for clients that negotiated the binary draw protocol
+     * @return The segment frame, or null if this message has no compact form
+     */
+    public OutboundFrame getCompactForm() {
+        return compactForm;
+    }
+
+    /**
+     * Styles the compact form refers to; receivers need their definitions first
+     */
+    public DrawStyle[] getCompactStyles() {
+        return compactStyles;
+    }
+
+    /**
+     * Number of messages carried by this frame (1 unless it is a batch)
+     */
+    public int getMessageCount() {
+        return parts != null ? parts.size() : 1;
+    }
+
+    /**
+     * Whether the UTF-8 form has been produced yet
+     */
+    public boolean isEncoded() {
+        return encoded != null;
+    }
+
+    private static ByteBuffer encode(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String toString() {
+        return binary ? "binary[" + encoded.remaining() + "]" : getText();
+    }
+}
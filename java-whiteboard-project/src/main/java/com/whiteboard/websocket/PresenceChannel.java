@@ -0,0 +1,287 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Live cursor presence for rooms.
+ * Only the latest cursor position of each member is kept (in memory, never
+ * persisted). Whenever something changed, the room gets one update at most
+ * whiteboard.presence.maxRate times per second, so the outbound rate per member is
+ * fixed no matter how many members are moving. An update carries only the cursors
+ * that moved and the members that left since the previous one:
+ *
+ *   {"type":"presence","seq":41,"cursors":[{"sessionId":"..","username":"..","x":10,"y":20}, ...],
+ *    "removed":["..", ...]}
+ *
+ * A member gets every cursor once, when it joins, as a snapshot marked "full":true.
+ * Updates are numbered per channel; a client ignores updates numbered at or below
+ * its latest snapshot's seq, which already covers them. If a member still has an
+ * update waiting when the next one is delivered, the waiting one is replaced by a
+ * snapshot, so a slow client never has to receive more than one presence frame.
+ */
+public class PresenceChannel {
+
+    private static final Log log = Log.get(PresenceChannel.class);
+
+    private static final int MAX_RATE = Math.max(1, Config.getInt("whiteboard.presence.maxRate", 10));
+    private static final long INTERVAL_MILLIS = Math.max(1, 1000 / MAX_RATE);
+
+    /**
+     * Sends a room's update to every member of the room
+     */
+    public interface Delivery {
+        /**
+         * @param update   The changes since the previous update
+         * @param snapshot Every cursor in the room, for members whose previous
+         *                 update has not been sent yet; built on first use
+         */
+        void deliver(Room room, OutboundFrame update, Supplier<OutboundFrame> snapshot);
+    }
+
+    private final ConcurrentHashMap<Room, RoomPresence> rooms = new ConcurrentHashMap<>();
+    private final Delivery delivery;
+    private final ScheduledExecutorService ticker;
+
+    // Number of the latest update of any room
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder updatesReceived = new LongAdder();
+    private final LongAdder updatesSent = new LongAdder();
+    private final LongAdder snapshotsSent = new LongAdder();
+
+    /**
+     * @param delivery Sends updates to the members of a room
+     */
+    public PresenceChannel(Delivery delivery) {
+        this.delivery = delivery;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "whiteboard-presence");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Record a member's latest cursor position
+     */
+    public void update(Room room, String sessionId, String username, int x, int y) {
+        updatesReceived.increment();
+        while (true) {
+            RoomPresence presence = rooms.computeIfAbsent(room, r -> new RoomPresence());
+            synchronized (presence) {
+                // A flush that emptied the room may have dropped it since the lookup
+                if (rooms.get(room) != presence) {
+                    continue;
+                }
+                Cursor cursor = presence.cursors.get(sessionId);
+                if (cursor == null) {
+                    cursor = new Cursor();
+                    presence.cursors.put(sessionId, cursor);
+                } else if (cursor.x == x && cursor.y == y && Objects.equals(cursor.username, username)) {
+                    return;
+                }
+                cursor.username = username;
+                cursor.x = x;
+                cursor.y = y;
+                presence.changed.add(sessionId);
+                presence.removed.remove(sessionId);
+                markDirty(room, presence);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forget a member's cursor (left the room or disconnected)
+     */
+    public void remove(Room room, String sessionId) {
+        RoomPresence presence = rooms.get(room);
+        if (presence == null) {
+            return;
+        }
+        synchronized (presence) {
+            if (presence.cursors.remove(sessionId) != null) {
+                presence.changed.remove(sessionId);
+                presence.removed.add(sessionId);
+                markDirty(room, presence);
+            }
+        }
+    }
+
+    /**
+     * Every cursor in the room, for a member that just joined; sent conflated so it
+     * replaces any update the member has not received yet
+     */
+    public OutboundFrame snapshotOf(Room room) {
+        RoomPresence presence = rooms.get(room);
+        OutboundFrame snapshot;
+        if (presence == null) {
+            // Still clears cursors the client kept from an earlier room
+            snapshot = OutboundFrame.of(JsonWriter.get().beginObject()
+                .field("type", "presence")
+                .field("seq", sequence.get())
+                .field("full", true)
+                .name("cursors").beginArray().endArray()
+                .endObject().build());
+        } else {
+            snapshot = snapshot(presence);
+        }
+        snapshotsSent.increment();
+        return snapshot;
+    }
+
+    /**
+     * Drop all presence state for a room that is closing
+     */
+    public void discard(Room room) {
+        rooms.remove(room);
+    }
+
+    // Caller holds the presence lock
+    private void markDirty(Room room, RoomPresence presence) {
+        presence.dirty = true;
+        if (presence.scheduled) {
+            return;
+        }
+        presence.scheduled = true;
+        long delay = Math.max(0, presence.lastFlush + INTERVAL_MILLIS - System.currentTimeMillis());
+        ticker.schedule(() -> flush(room, presence), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(Room room, RoomPresence presence) {
+        String update;
+        synchronized (presence) {
+            presence.scheduled = false;
+            if (!presence.dirty) {
+                return;
+            }
+            presence.dirty = false;
+            presence.lastFlush = System.currentTimeMillis();
+            presence.seq = sequence.incrementAndGet();
+
+            JsonWriter out = JsonWriter.get().beginObject()
+                .field("type", "presence")
+                .field("seq", presence.seq)
+                .name("cursors").beginArray();
+            for (String sessionId : presence.changed) {
+                writeCursor(out, sessionId, presence.cursors.get(sessionId));
+            }
+            out.endArray();
+            if (!presence.removed.isEmpty()) {
+                out.name("removed").beginArray();
+                for (String sessionId : presence.removed) {
+                    out.value(sessionId);
+                }
+                out.endArray();
+            }
+            update = out.endObject().build();
+            presence.changed.clear();
+            presence.removed.clear();
+
+            if (presence.cursors.isEmpty()) {
+                rooms.remove(room, presence);
+            }
+        }
+        // One snapshot per update at most, shared by every member that needs it
+        Supplier<OutboundFrame> snapshot = new Supplier<OutboundFrame>() {
+            private OutboundFrame built;
+
+            @Override
+            public synchronized OutboundFrame get() {
+                if (built == null) {
+                    built = snapshot(presence);
+                    snapshotsSent.increment();
+                }
+                return built;
+            }
+        };
+        try {
+            delivery.deliver(room, OutboundFrame.of(update), snapshot);
+            updatesSent.increment();
+        } catch (Exception e) {
+            log.error("Failed to send presence for room " + room.getRoomCode() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Every cursor of the room, numbered as the room's latest update
+     */
+    private OutboundFrame snapshot(RoomPresence presence) {
+        synchronized (presence) {
+            JsonWriter out = JsonWriter.get().beginObject()
+                .field("type", "presence")
+                .field("seq", presence.seq)
+                .field("full", true)
+                .name("cursors").beginArray();
+            for (Map.Entry<String, Cursor> entry : presence.cursors.entrySet()) {
+                writeCursor(out, entry.getKey(), entry.getValue());
+            }
+            return OutboundFrame.of(out.endArray().endObject().build());
+        }
+    }
+
+    private static void writeCursor(JsonWriter out, String sessionId, Cursor cursor) {
+        out.beginObject()
+           .field("sessionId", sessionId)
+           .field("username", cursor.username)
+           .field("x", cursor.x)
+           .field("y", cursor.y)
+           .endObject();
+    }
+
+    public long getUpdatesReceived() {
+        return updatesReceived.sum();
+    }
+
+    /**
+     * Updates delivered to rooms
+     */
+    public long getUpdatesSent() {
+        return updatesSent.sum();
+    }
+
+    /**
+     * Full snapshots built, for joining members and for members that fell behind
+     */
+    public long getSnapshotsSent() {
+        return snapshotsSent.sum();
+    }
+
+    public static int getMaxRate() {
+        return MAX_RATE;
+    }
+
+    private static final class RoomPresence {
+        private final Map<String, Cursor> cursors = new LinkedHashMap<>();
+        // Members whose cursor moved / who left since the last update
+        private final Set<String> changed = new LinkedHashSet<>();
+        private final Set<String> removed = new LinkedHashSet<>();
+        // Number of the last update sent for this room
+        private long seq;
+        private boolean dirty;
+        private boolean scheduled;
+        private long lastFlush;
+    }
+
+    private static final class Cursor {
+        private String username;
+        private int x;
+        private int y;
+    }
+}
@@ -0,0 +1,196 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-session token buckets, one per message type.
+ * Every message costs one token; a type's bucket refills at whiteboard.rateLimit.&lt;type&gt;.rate
+ * tokens per second up to whiteboard.rateLimit.&lt;type&gt;.burst. The endpoint asks before
+ * parsing anything but the type, so a runaway client's floods of draws, chats or
+ * canvas states are dropped before they reach a handler, the database or a room.
+ *
+ * Each bucket is a single timestamp (the time it will next be full, as in GCRA)
+ * rather than a token count and a refill time, so a check is one comparison.
+ * A limiter is only used from its session's onMessage, which the container never
+ * runs concurrently for one session, so it is not synchronized.
+ */
+public final class RateLimiter {
+
+    private static final Log log = Log.get(RateLimiter.class);
+
+    // At most one rateLimited notice per type per session in this interval
+    private static final long NOTICE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Policy policy;
+    // Per bucket: when the bucket would have refilled up to now (earlier = more tokens)
+    private final long[] fullAt;
+    private final long[] noticeAt;
+
+    private RateLimiter(Policy policy) {
+        this.policy = policy;
+        this.fullAt = new long[policy.buckets];
+        this.noticeAt = new long[policy.buckets];
+        Arrays.fill(fullAt, Long.MIN_VALUE);
+        Arrays.fill(noticeAt, Long.MIN_VALUE);
+    }
+
+    /**
+     * Take a token for a message of the given type
+     * @return false if the bucket is empty and the message should be dropped
+     */
+    public boolean tryAcquire(String type) {
+        Limit limit = policy.limitFor(type);
+        if (limit == null) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long tat = Math.max(fullAt[limit.bucket], now);
+        if (tat - now > limit.toleranceNanos) {
+            limit.dropped.inc();
+            return false;
+        }
+        fullAt[limit.bucket] = tat + limit.intervalNanos;
+        return true;
+    }
+
+    /**
+     * After a drop: whether the client should be told, at most once a second per type
+     * @return Milliseconds until the next message of the type would be accepted, or -1 for no notice
+     */
+    public long takeNotice(String type) {
+        Limit limit = policy.limitFor(type);
+        if (limit == null || !policy.notify) {
+            return -1;
+        }
+        long now = System.nanoTime();
+        long last = noticeAt[limit.bucket];
+        if (last != Long.MIN_VALUE && now - last < NOTICE_INTERVAL_NANOS) {
+            return -1;
+        }
+        noticeAt[limit.bucket] = now;
+        long waitNanos = Math.max(fullAt[limit.bucket], now) - now - limit.toleranceNanos;
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    /**
+     * Limits for every message type, shared by all sessions.
+     * Registered types get their own bucket; anything else shares one "other" bucket,
+     * so unknown types sent by a client cannot grow the table.
+     */
+    public static final class Policy {
+
+        /**
+         * No limits at all; what sessions registered without a policy get
+         */
+        public static final Policy UNLIMITED = new Policy(false);
+
+        private final Map<String, Limit> limits = new HashMap<>();
+        private final Limit other;
+        private final boolean notify;
+        private int buckets;
+
+        private Policy(boolean enabled) {
+            this.notify = Config.getBoolean("whiteboard.rateLimit.notify", true);
+            this.other = enabled ? configure("other", defaultLimit("other")) : null;
+        }
+
+        /**
+         * Build limits for the given message types from whiteboard.rateLimit.* settings.
+         * A rate of 0 leaves a type unlimited; whiteboard.rateLimit.enabled=false turns everything off.
+         */
+        public static Policy fromConfig(Collection<String> types) {
+            if (!Config.getBoolean("whiteboard.rateLimit.enabled", true)) {
+                log.info("Message rate limits disabled");
+                return UNLIMITED;
+            }
+            Policy policy = new Policy(true);
+            for (String type : types) {
+                Limit limit = policy.configure(type, defaultLimit(type));
+                if (limit != null) {
+                    policy.limits.put(type, limit);
+                }
+            }
+            return policy;
+        }
+
+        /**
+         * A limiter with full buckets for a new session
+         */
+        public RateLimiter newLimiter() {
+            return new RateLimiter(this);
+        }
+
+        private Limit limitFor(String type) {
+            Limit limit = limits.get(type);
+            return limit != null ? limit : other;
+        }
+
+        private Limit configure(String type, int[] defaults) {
+            String prefix = "whiteboard.rateLimit." + type;
+            int rate = Config.getInt(prefix + ".rate", defaults[0]);
+            int burst = Math.max(1, Config.getInt(prefix + ".burst", Math.max(defaults[1], rate)));
+            if (rate <= 0) {
+                return null;
+            }
+            return new Limit(buckets++, rate, burst,
+                             Metrics.counter("whiteboard_messages_rate_limited_total",
+                                             "Messages dropped by per-session rate limits", "type", type));
+        }
+
+        /**
+         * Built-in {rate per second, burst}; defaults allow any person at a browser,
+         * only scripted or stuck clients reach them
+         */
+        private static int[] defaultLimit(String type) {
+            switch (type) {
+                case "draw":
+                    // Pointer events arrive at up to the display refresh rate
+                    return new int[] { 300, 600 };
+                case "cursor":
+                    return new int[] { 60, 120 };
+                case "shape":
+                case "text":
+                    return new int[] { 20, 60 };
+                case "chat":
+                    return new int[] { 5, 20 };
+                case "canvasState":
+                case "saveBoard":
+                case "clear":
+                    return new int[] { 2, 10 };
+                case "login":
+                case "register":
+                case "restoreSession":
+                case "guestMode":
+                    // Password hashing is deliberately slow
+                    return new int[] { 2, 5 };
+                default:
+                    return new int[] { Config.getInt("whiteboard.rateLimit.default.rate", 20),
+                                       Config.getInt("whiteboard.rateLimit.default.burst", 50) };
+            }
+        }
+    }
+
+    private static final class Limit {
+        private final int bucket;
+        private final long intervalNanos;
+        // How far ahead of now a bucket may be booked: burst - 1 intervals
+        private final long toleranceNanos;
+        private final Counter dropped;
+
+        private Limit(int bucket, int rate, int burst, Counter dropped) {
+            this.bucket = bucket;
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+            this.toleranceNanos = intervalNanos * (burst - 1);
+            this.dropped = dropped;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Coalesces draw and shape broadcasts per room on a short tick.
+ * The first event for an idle room starts its tick; everything that arrives
+ * before the tick ends is delivered to each member as one batch frame. A batch
+ * that reaches the size limit is sent immediately, so added latency is bounded
+ * by the tick length.
+ *
+ * Other room messages must call {@link #flush(Room)} before they are sent, so a
+ * batch never overtakes a message (e.g. a clear) that was sent after it.
+ *
+ * Disabled unless whiteboard.batch.tickMillis is greater than zero.
+ */
+public class RoomBatcher {
+
+    private static final Log log = Log.get(RoomBatcher.class);
+
+    private static final long TICK_MILLIS = Config.getLong("whiteboard.batch.tickMillis", 0);
+    private static final int MAX_BATCH = Math.max(1, Config.getInt("whiteboard.batch.maxEvents", 256));
+
+    // Flushes of the same room are serialized so batches reach members in order
+    private static final int LOCK_STRIPES = 64;
+
+    private final ConcurrentHashMap<Room, Batch> pending = new ConcurrentHashMap<>();
+    private final Object[] flushLocks = new Object[LOCK_STRIPES];
+    private final BiConsumer<Room, OutboundFrame> delivery;
+    private final ScheduledExecutorService ticker;
+
+    // Frames delivered and frames they were coalesced from
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder eventsBatched = new LongAdder();
+
+    /**
+     * @param delivery Sends a (batched) frame to every member of a room
+     */
+    public RoomBatcher(BiConsumer<Room, OutboundFrame> delivery) {
+        this.delivery = delivery;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            flushLocks[i] = new Object();
+        }
+        if (TICK_MILLIS > 0) {
+            ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "whiteboard-room-tick");
+                thread.setDaemon(true);
+                return thread;
+            });
+            log.info("Room batching enabled: tick=" + TICK_MILLIS + "ms, maxEvents=" + MAX_BATCH);
+        } else {
+            ticker = null;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return TICK_MILLIS > 0;
+    }
+
+    /**
+     * Queue a frame for the room's next tick (or deliver it directly if batching is off)
+     */
+    public void submit(Room room, OutboundFrame frame) {
+        if (ticker == null) {
+            delivery.accept(room, frame);
+            return;
+        }
+
+        while (true) {
+            Batch batch = pending.computeIfAbsent(room, r -> new Batch());
+            boolean full;
+            boolean first;
+            synchronized (batch) {
+                if (batch.taken) {
+                    // Lost a race with a flush - start a new batch
+                    continue;
+                }
+                first = batch.frames.isEmpty();
+                batch.frames.add(frame);
+                full = batch.frames.size() >= MAX_BATCH;
+            }
+            if (full) {
+                flush(room);
+            } else if (first) {
+                ticker.schedule(() -> flush(room), TICK_MILLIS, TimeUnit.MILLISECONDS);
+            }
+            return;
+        }
+    }
+
+    /**
+     * Deliver whatever is pending for a room right now
+     */
+    public void flush(Room room) {
+        if (ticker == null || !pending.containsKey(room)) {
+            return;
+        }
+        synchronized (flushLocks[Math.floorMod(System.identityHashCode(room), LOCK_STRIPES)]) {
+            Batch batch = pending.remove(room);
+            if (batch == null) {
+                return;
+            }
+            List<OutboundFrame> frames;
+            synchronized (batch) {
+                batch.taken = true;
+                frames = batch.frames;
+            }
+            if (frames.isEmpty()) {
+                return;
+            }
+            try {
+                delivery.accept(room, frames.size() == 1 ? frames.get(0) : OutboundFrame.batch(frames));
+                batchesSent.increment();
+                eventsBatched.add(frames.size());
+            } catch (Exception e) {
+                log.error("Failed to deliver batch for room " + room.getRoomCode() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Drop anything pending for a room that is closing
+     */
+    public void discard(Room room) {
+        Batch batch = pending.remove(room);
+        if (batch != null) {
+            synchronized (batch) {
+                batch.taken = true;
+            }
+        }
+    }
+
+    public long getBatchesSent() {
+        return batchesSent.sum();
+    }
+
+    public long getEventsBatched() {
+        return eventsBatched.sum();
+    }
+
+    private static final class Batch {
+        private final List<OutboundFrame> frames = new ArrayList<>();
+        private boolean taken;
+    }
+}
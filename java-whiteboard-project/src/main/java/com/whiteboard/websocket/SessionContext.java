@@ -0,0 +1,166 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.util.SerialExecutor;
+
+import javax.websocket.Session;
+
+/**
+ * Everything the server tracks for one connection: who is signed in, which
+ * board and room the connection is on, guest mode, its outbound queue, the
+ * lane its messages are handled on, and its inbound rate limits.
+ * One instance per session, attached to the session's user properties and held
+ * in the hub's id-keyed registry, so handlers read connection state with a plain
+ * field access instead of several map lookups.
+ *
+ * Sign-in state changes as a unit ({@link #signIn}, {@link #signOut}), so a
+ * concurrent reader never sees a user id paired with another user's name. The
+ * board is only changed by the hub, which keeps its board index in step.
+ */
+public final class SessionContext {
+
+    private static final String USER_PROPERTY_KEY = "whiteboard.context";
+
+    private final Session session;
+    private final String sessionId;
+    private final SessionOutbound outbound;
+    private final SerialExecutor lane;
+    private final RateLimiter rateLimiter;
+
+    private volatile Long userId;
+    private volatile String username;
+    private volatile boolean guest;
+    private volatile String roomCode;
+
+    // Guarded by this; written through WhiteboardHub.setSessionBoard/clearSessionBoard
+    private volatile Long boardId;
+
+    private SessionContext(Session session, SessionOutbound outbound, SerialExecutor lane, RateLimiter rateLimiter) {
+        this.session = session;
+        this.sessionId = session.getId();
+        this.outbound = outbound;
+        this.lane = lane;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * Create the context (and outbound queue) for a newly opened session and attach it to the session
+     */
+    static SessionContext attach(Session session, SerialExecutor lane, RateLimiter rateLimiter) {
+        SessionContext context = new SessionContext(session, SessionOutbound.attach(session), lane, rateLimiter);
+        session.getUserProperties().put(USER_PROPERTY_KEY, context);
+        return context;
+    }
+
+    /**
+     * Get the context attached to a session
+     * @return The context, or null if the session was never attached
+     */
+    public static SessionContext of(Session session) {
+        return (SessionContext) session.getUserProperties().get(USER_PROPERTY_KEY);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public SessionOutbound getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * Runs this session's offloaded messages one at a time, in arrival order
+     */
+    public SerialExecutor getLane() {
+        return lane;
+    }
+
+    /**
+     * Per-type token buckets checked before each inbound message is parsed
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public boolean isAuthenticated() {
+        return userId != null;
+    }
+
+    /**
+     * Record the signed-in user (login, session restore)
+     */
+    public synchronized void signIn(Long userId, String username) {
+        this.userId = userId;
+        this.username = username;
+    }
+
+    /**
+     * Forget the signed-in user and guest mode.
+     * The caller clears the board through the hub.
+     * @return The user that was signed in, or null
+     */
+    public synchronized Long signOut() {
+        Long previous = userId;
+        userId = null;
+        username = null;
+        guest = false;
+        return previous;
+    }
+
+    public boolean isGuest() {
+        return guest;
+    }
+
+    public void setGuest(boolean guest) {
+        this.guest = guest;
+    }
+
+    public String getRoomCode() {
+        return roomCode;
+    }
+
+    public synchronized void setRoomCode(String roomCode) {
+        this.roomCode = roomCode;
+    }
+
+    /**
+     * Leave whatever room this session is in
+     * @return The room code it was in, or null
+     */
+    public synchronized String leaveRoom() {
+        String previous = roomCode;
+        roomCode = null;
+        return previous;
+    }
+
+    /**
+     * Leave a specific room; does nothing if the session has since moved to another one
+     */
+    public synchronized void leaveRoom(String expectedRoomCode) {
+        if (expectedRoomCode != null && expectedRoomCode.equals(roomCode)) {
+            roomCode = null;
+        }
+    }
+
+    public Long getBoardId() {
+        return boardId;
+    }
+
+    // Caller holds the context lock
+    Long swapBoardId(Long boardId) {
+        Long previous = this.boardId;
+        this.boardId = boardId;
+        return previous;
+    }
+}
@@ -0,0 +1,388 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.Log;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Bounded outbound message queue owned by a single WebSocket session.
+ * Messages are drained one at a time through the async remote, so the thread that
+ * produced a broadcast never waits on a slow client and a Session never sees two
+ * concurrent writes. Clients that negotiated binary frames receive the shared,
+ * pre-encoded form of each frame instead of having the container re-encode text.
+ */
+public class SessionOutbound implements SendHandler {
+
+    private static final Log log = Log.get(SessionOutbound.class);
+
+    /**
+     * What to do with a client whose queue has reached the high-water mark
+     */
+    public enum SlowConsumerPolicy {
+        /** Drop non-critical messages, disconnect only once critical ones overflow */
+        DROP,
+        /** Disconnect as soon as the high-water mark is reached */
+        DISCONNECT
+    }
+
+    private static final String USER_PROPERTY_KEY = "whiteboard.outbound";
+
+    // Queue depth at which the slow-consumer policy kicks in
+    private static final int HIGH_WATER_MARK = Config.getInt("whiteboard.outbound.highWaterMark", 256);
+
+    // Hard cap - a session this far behind is disconnected regardless of policy
+    private static final int MAX_QUEUED = Math.max(HIGH_WATER_MARK,
+        Config.getInt("whiteboard.outbound.maxQueued", 1024));
+
+    // Receivers forget style definitions past this many and get them re-sent on demand
+    private static final int MAX_KNOWN_STYLES = 4096;
+
+    // Queue placeholder standing in for whatever conflated frame is latest when it is reached
+    private static final OutboundFrame CONFLATED_SLOT = OutboundFrame.constant("{}");
+
+    // Outbound volume across all sessions; text frames are counted in chars
+    private static final Counter framesSent =
+        Metrics.counter("whiteboard_frames_sent_total", "Frames handed to the container for sending");
+    private static final Counter bytesSent =
+        Metrics.counter("whiteboard_bytes_sent_total", "Size of frames handed to the container for sending");
+
+    private static final SlowConsumerPolicy POLICY =
+        parsePolicy(Config.getString("whiteboard.outbound.slowConsumerPolicy", "DROP"));
+
+    private final Session session;
+    private final ConcurrentLinkedQueue<OutboundFrame> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicBoolean sending = new AtomicBoolean();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong conflatedCount = new AtomicLong();
+    private final AtomicReference<OutboundFrame> latestConflated = new AtomicReference<>();
+    private final Object capacityLock = new Object();
+    private final AtomicInteger capacityWaiters = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean binaryFrames;
+    private volatile boolean binaryDraw;
+
+    // Style ids this client has already received a definition for (guarded by itself)
+    private final Set<Integer> knownStyles = new HashSet<>();
+
+    // Send completions can run inline on the draining thread; these let the
+    // drain loop pick them up instead of recursing through onResult
+    private volatile Thread drainingThread;
+    private boolean completedInline;
+
+    public SessionOutbound(Session session) {
+        this.session = session;
+    }
+
+    /**
+     * Create the outbound queue for a newly opened session and attach it to the session
+     */
+    public static SessionOutbound attach(Session session) {
+        SessionOutbound outbound = new SessionOutbound(session);
+        session.getUserProperties().put(USER_PROPERTY_KEY, outbound);
+        return outbound;
+    }
+
+    /**
+     * Get the outbound queue attached to a session
+     * @return The queue, or null if the session was never attached or already closed
+     */
+    public static SessionOutbound of(Session session) {
+        return (SessionOutbound) session.getUserProperties().get(USER_PROPERTY_KEY);
+    }
+
+    /**
+     * Queue a message for delivery
+     * @param frame The frame to send
+     * @param critical false if the message may be dropped when the client falls behind
+     * @return true if the message was queued
+     */
+    public boolean send(OutboundFrame frame, boolean critical) {
+        if (closed || !session.isOpen()) {
+            return false;
+        }
+
+        int queued = depth.get();
+        if (queued >= HIGH_WATER_MARK) {
+            if (queued >= MAX_QUEUED || POLICY == SlowConsumerPolicy.DISCONNECT) {
+                disconnect("Slow consumer: " + queued + " messages queued");
+                return false;
+            }
+            if (!critical) {
+                droppedCount.incrementAndGet();
+                return false;
+            }
+        }
+
+        OutboundFrame compact = binaryDraw ? frame.getCompactForm() : null;
+        if (compact != null) {
+            // Definition and segment must be queued back to back, ahead of any other
+            // segment using the same style
+            synchronized (knownStyles) {
+                for (DrawStyle style : frame.getCompactStyles()) {
+                    if (!knownStyles.contains(style.getId())) {
+                        if (knownStyles.size() >= MAX_KNOWN_STYLES) {
+                            knownStyles.clear();
+                        }
+                        knownStyles.add(style.getId());
+                        enqueue(style.getDefinition());
+                    }
+                }
+                enqueue(compact);
+            }
+        } else {
+            enqueue(frame);
+        }
+        drain();
+        return true;
+    }
+
+    /**
+     * Queue a frame that supersedes any earlier conflated frame not yet sent (e.g. presence).
+     * At most one conflated frame is ever waiting, so these never pile up behind a slow client.
+     * @return true if the frame was queued or replaced a waiting one
+     */
+    public boolean sendConflated(OutboundFrame frame) {
+        return sendConflated(frame, () -> frame);
+    }
+
+    /**
+     * Queue a conflated frame that only adds to the one before it (e.g. a presence
+     * delta). If an earlier conflated frame is still waiting, it is replaced by
+     * the merged frame instead, which must cover both.
+     * @return true if the frame was queued or replaced a waiting one
+     */
+    public boolean sendConflated(OutboundFrame frame, Supplier<OutboundFrame> merged) {
+        if (closed || !session.isOpen()) {
+            return false;
+        }
+        while (true) {
+            OutboundFrame waiting = latestConflated.get();
+            if (waiting == null) {
+                if (latestConflated.compareAndSet(null, frame)) {
+                    break;
+                }
+            } else if (latestConflated.compareAndSet(waiting, merged.get())) {
+                conflatedCount.incrementAndGet();
+                return true;
+            }
+        }
+        enqueue(CONFLATED_SLOT);
+        drain();
+        return true;
+    }
+
+    private void enqueue(OutboundFrame frame) {
+        depth.incrementAndGet();
+        queue.offer(frame);
+    }
+
+    /**
+     * Queue a message from a bulk producer (e.g. history replay), waiting for the
+     * client to drain below the high-water mark instead of overflowing the queue
+     * @param frame The frame to send
+     * @param timeoutMillis Maximum time to wait for capacity
+     * @return true if the message was queued, false on timeout or close
+     */
+    public boolean sendAwaitingCapacity(OutboundFrame frame, long timeoutMillis) throws InterruptedException {
+        return sendAwaitingCapacity(frame, HIGH_WATER_MARK, timeoutMillis);
+    }
+
+    /**
+     * Queue a message from a bulk producer once fewer than maxQueued messages are
+     * waiting, so large frames (e.g. history chunks) are only produced as fast as
+     * the client takes them
+     * @param maxQueued Queue depth to wait below (capped at the high-water mark)
+     */
+    public boolean sendAwaitingCapacity(OutboundFrame frame, int maxQueued, long timeoutMillis)
+            throws InterruptedException {
+        int limit = Math.max(1, Math.min(maxQueued, HIGH_WATER_MARK));
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        if (depth.get() >= limit) {
+            capacityWaiters.incrementAndGet();
+            try {
+                synchronized (capacityLock) {
+                    while (!closed && depth.get() >= limit) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            return false;
+                        }
+                        capacityLock.wait(remaining);
+                    }
+                }
+            } finally {
+                capacityWaiters.decrementAndGet();
+            }
+        }
+        return send(frame, true);
+    }
+
+    private void drain() {
+        while (!closed && sending.compareAndSet(false, true)) {
+            OutboundFrame next = queue.poll();
+            if (next == null) {
+                sending.set(false);
+                // Re-check so a message offered between poll() and set(false) is not stranded
+                if (queue.isEmpty()) {
+                    return;
+                }
+                continue;
+            }
+            depth.decrementAndGet();
+            if (capacityWaiters.get() > 0) {
+                synchronized (capacityLock) {
+                    capacityLock.notifyAll();
+                }
+            }
+            if (next == CONFLATED_SLOT) {
+                next = latestConflated.getAndSet(null);
+                if (next == null) {
+                    sending.set(false);
+                    continue;
+                }
+            }
+
+            completedInline = false;
+            drainingThread = Thread.currentThread();
+            try {
+                if (next.isBinary() || binaryFrames) {
+                    ByteBuffer view = next.newBinaryView();
+                    bytesSent.add(view.remaining());
+                    session.getAsyncRemote().sendBinary(view, this);
+                } else {
+                    String text = next.getText();
+                    bytesSent.add(text.length());
+                    session.getAsyncRemote().sendText(text, this);
+                }
+                framesSent.inc();
+            } catch (RuntimeException e) {
+                // Container rejected the write (session closing or in an invalid state)
+                drainingThread = null;
+                sending.set(false);
+                log.error("Error queueing send to " + session.getId() + ": " + e.getMessage());
+                return;
+            }
+            drainingThread = null;
+
+            if (!completedInline) {
+                // Completion will arrive on a container thread and continue draining there
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void onResult(SendResult result) {
+        if (!result.isOK()) {
+            Throwable error = result.getException();
+            log.error("Error sending to " + session.getId() + ": " +
+                               (error != null ? error.getMessage() : "unknown"));
+        }
+
+        if (drainingThread == Thread.currentThread()) {
+            completedInline = true;
+            sending.set(false);
+            return;
+        }
+
+        sending.set(false);
+        drain();
+    }
+
+    private void disconnect(String reason) {
+        if (closed) {
+            return;
+        }
+        close();
+        log.error("Disconnecting " + session.getId() + " - " + reason);
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "Client too slow"));
+        } catch (IOException e) {
+            log.error("Error closing slow session " + session.getId() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop delivering and discard anything still queued
+     */
+    public void close() {
+        closed = true;
+        queue.clear();
+        latestConflated.set(null);
+        depth.set(0);
+        synchronized (capacityLock) {
+            capacityLock.notifyAll();
+        }
+    }
+
+    /**
+     * Switch this session to binary delivery of JSON frames (negotiated by the client)
+     */
+    public void setBinaryFrames(boolean binaryFrames) {
+        this.binaryFrames = binaryFrames;
+    }
+
+    public boolean isBinaryFrames() {
+        return binaryFrames;
+    }
+
+    /**
+     * Switch this session to the compact binary draw protocol (negotiated by the client)
+     */
+    public void setBinaryDraw(boolean binaryDraw) {
+        this.binaryDraw = binaryDraw;
+    }
+
+    public boolean isBinaryDraw() {
+        return binaryDraw;
+    }
+
+    public int getQueueDepth() {
+        return depth.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /**
+     * Conflated frames replaced by a newer one before they were sent
+     */
+    public long getConflatedCount() {
+        return conflatedCount.get();
+    }
+
+    public static int getHighWaterMark() {
+        return HIGH_WATER_MARK;
+    }
+
+    public static SlowConsumerPolicy getPolicy() {
+        return POLICY;
+    }
+
+    private static SlowConsumerPolicy parsePolicy(String value) {
+        try {
+            return SlowConsumerPolicy.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid whiteboard.outbound.slowConsumerPolicy " + value + " (using DROP)");
+            return SlowConsumerPolicy.DROP;
+        }
+    }
+}
@@ -0,0 +1,682 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.cluster.ClusterBus;
+import com.whiteboard.cluster.ClusterMessage;
+import com.whiteboard.dao.BoardDAO;
+import com.whiteboard.dao.DrawingEventDAO;
+import com.whiteboard.dao.GuestSessionDAO;
+import com.whiteboard.dao.UserDAO;
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.model.Room;
+import com.whiteboard.model.User;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+
+import javax.websocket.Session;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shared server state and messaging helpers used by the endpoint and the
+ * message handlers: the connection registry, rooms, DAOs, and the
+ * send/broadcast primitives. Per-connection state lives in {@link SessionContext}.
+ *
+ * With a {@link ClusterBus} configured, board and server-wide broadcasts are also
+ * published to the other nodes, and theirs are delivered to the sessions here.
+ * Rooms (membership, approval, broadcasts) stay on the node that created them;
+ * their codes carry the node id so they cannot collide across the cluster.
+ */
+public final class WhiteboardHub {
+
+    private static final Log log = Log.get(WhiteboardHub.class);
+
+    // Connection registry - sessionId -> context of every open session
+    private static final ConcurrentHashMap<String, SessionContext> contexts = new ConcurrentHashMap<>();
+    
+    // Room management - roomCode -> Room
+    public static final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+
+    // Auth token tracking - token -> userId and userId -> token
+    public static final ConcurrentHashMap<String, Long> authTokens = new ConcurrentHashMap<>();
+    public static final ConcurrentHashMap<Long, String> userToToken = new ConcurrentHashMap<>();
+    
+    // Reverse index - boardId -> sessions currently on that board
+    // Only changed through setSessionBoard/clearSessionBoard so it stays in step with the contexts
+    private static final ConcurrentHashMap<Long, Set<Session>> boardSessions = new ConcurrentHashMap<>();
+    
+    // DAOs for database operations
+    public static final BoardDAO boardDAO = new BoardDAO();
+    public static final DrawingEventDAO drawingEventDAO = new DrawingEventDAO();
+    public static final GuestSessionDAO guestSessionDAO = new GuestSessionDAO();
+    public static final UserDAO userDAO = new UserDAO();
+
+    // Splits large broadcasts across virtual threads while keeping per-recipient order
+    private static final FanOutExecutor fanOut = new FanOutExecutor();
+
+    // Optional per-room tick that coalesces draw/shape broadcasts into batch frames
+    private static final RoomBatcher batcher =
+        new RoomBatcher((room, frame) -> deliverToRoom(room, frame, null, true));
+
+    // Live cursor positions, conflated and rate limited per room (never persisted)
+    public static final PresenceChannel presence = new PresenceChannel(WhiteboardHub::deliverPresence);
+    
+    // Enable/disable database persistence (set to false if DB not configured)
+    public static final boolean PERSIST_TO_DATABASE = true;
+
+    // How long history replay waits for a client's outbound queue to drain
+    private static final long HISTORY_SEND_TIMEOUT_MS = 30_000;
+
+    // Events per historyChunk frame, and chunks queued ahead of the client at a time
+    private static final int HISTORY_CHUNK_EVENTS =
+        Math.max(1, Config.getInt("whiteboard.history.chunkEvents", 2000));
+    private static final int HISTORY_WINDOW = 2;
+
+    // Database work and history replay run here, never on a WebSocket I/O thread
+    public static final BlockingWorkExecutor blockingWork = new BlockingWorkExecutor();
+
+    // Drawing events saved in batches while admission control has persistence degraded
+    private static final EventBatchWriter eventWriter = new EventBatchWriter(drawingEventDAO, blockingWork);
+
+    // Watches the database backlog, outbound queues and handler time; sheds load when they are over limits
+    public static final AdmissionController admission =
+        new AdmissionController(blockingWork::getQueuedForPermit, WhiteboardHub::getOutboundQueueDepth);
+
+    private static final Counter clusterPublished =
+        Metrics.counter("whiteboard_cluster_published_total", "Broadcasts published to other nodes");
+    private static final Counter clusterReceived =
+        Metrics.counter("whiteboard_cluster_received_total", "Broadcasts received from other nodes");
+
+    // Relays broadcasts to and from the other nodes; null when running as a single node
+    private static final ClusterBus cluster = startCluster();
+
+    // Pre-encoded frames for constant messages sent from shared helpers
+    private static final OutboundFrame HISTORY_START = OutboundFrame.constant("{\"type\":\"historyStart\"}");
+    private static final OutboundFrame HISTORY_START_OVER_SNAPSHOT =
+        OutboundFrame.constant("{\"type\":\"historyStart\",\"base\":\"snapshot\"}");
+    private static final OutboundFrame HISTORY_END = OutboundFrame.constant("{\"type\":\"historyEnd\"}");
+    private static final OutboundFrame ROOM_CLOSED =
+        OutboundFrame.constant("{\"type\":\"roomClosed\",\"reason\":\"Owner left the room\"}");
+    
+    // Live counts exported at /metrics
+    static {
+        Metrics.gauge("whiteboard_sessions", "Open WebSocket sessions", contexts::size);
+        Metrics.gauge("whiteboard_rooms", "Active collaboration rooms", rooms::size);
+        Metrics.gauge("whiteboard_boards_open", "Boards open in at least one session", boardSessions::size);
+        Metrics.gauge("whiteboard_blocking_queued", "Blocking tasks waiting for a database permit",
+                      blockingWork::getQueuedForPermit);
+        Metrics.gauge("whiteboard_outbound_queued", "Frames queued to clients across all sessions",
+                      WhiteboardHub::getOutboundQueueDepth);
+        Metrics.gauge("whiteboard_log_dropped", "Log records dropped because the log queue was full",
+                      Log::getDroppedCount);
+    }
+
+    // Check database connectivity on class load
+    static {
+        if (PERSIST_TO_DATABASE) {
+            try {
+                boolean dbConnected = DatabaseConnection.testConnection();
+                if (dbConnected) {
+                    log.info("Database connection test successful");
+                } else {
+                    log.warn("Database connection test failed - some features may not work");
+                }
+            } catch (Exception e) {
+                log.error("Database connection test failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private WhiteboardHub() {
+    }
+
+    /**
+     * Prefix for the codes of rooms created here: the node id when clustered,
+     * since all of a room's members live on the node that created it
+     */
+    public static String roomCodePrefix() {
+        return cluster == null ? "" : cluster.getNodeId().toUpperCase(Locale.ROOT) + "-";
+    }
+
+    private static ClusterBus startCluster() {
+        ClusterBus bus = ClusterBus.fromConfig();
+        if (bus == null) {
+            return null;
+        }
+        try {
+            bus.start(WhiteboardHub::deliverFromCluster);
+            return bus;
+        } catch (RuntimeException e) {
+            log.error("Could not join the cluster - running as a single node: " + e.getMessage(), e);
+            bus.close();
+            return null;
+        }
+    }
+
+    /**
+     * Register a newly opened session: attach its context and outbound queue
+     */
+    public static SessionContext register(Session session) {
+        return register(session, RateLimiter.Policy.UNLIMITED);
+    }
+
+    /**
+     * Register a newly opened session whose inbound messages are limited by the given policy
+     */
+    public static SessionContext register(Session session, RateLimiter.Policy rateLimits) {
+        SessionContext context = SessionContext.attach(session, blockingWork.newLane(), rateLimits.newLimiter());
+        contexts.put(context.getSessionId(), context);
+        return context;
+    }
+
+    /**
+     * Remove a closed session from the registry and stop its outbound queue.
+     * Board and room cleanup is left to the caller, which runs it after any
+     * messages still queued on the session's lane.
+     * @return The context that was registered, or null
+     */
+    public static SessionContext unregister(Session session) {
+        SessionContext context = contexts.remove(session.getId());
+        if (context == null) {
+            return null;
+        }
+        context.getOutbound().close();
+        return context;
+    }
+
+    /**
+     * Sign a session out: forget its user, guest mode and board in one step
+     * @return The user that was signed in, or null
+     */
+    public static Long signOut(SessionContext context) {
+        synchronized (context) {
+            Long userId = context.signOut();
+            clearSessionBoard(context);
+            return userId;
+        }
+    }
+
+    /**
+     * Replay canvas history to a newly approved client without holding up the caller.
+     * The start marker is queued right away so live events that follow are not wiped
+     * by it; loading and sending the events happens on a background thread, which
+     * holds a database permit only while loading.
+     * @param canvas Sent instead if the history turns out to be empty (may be null)
+     */
+    public static void sendCanvasHistoryAsync(SessionContext context, String roomCode, String canvas) {
+        send(context.getSession(), HISTORY_START);
+        blockingWork.executeWithoutPermit(() -> {
+            try {
+                sendHistoryEvents(context, roomCode, canvas);
+            } catch (Exception e) {
+                log.error("Failed to send history to " + context.getSessionId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Send a room's in-memory replay to a newly approved client: the events drawn
+     * after the canvas snapshot it already received in its approval. Nothing is
+     * read from the database.
+     */
+    public static void sendCanvasReplay(SessionContext context, Room.CanvasReplay replay) {
+        // With a snapshot as the base the client keeps its canvas instead of clearing it
+        send(context.getSession(), replay.getCanvas() != null ? HISTORY_START_OVER_SNAPSHOT : HISTORY_START);
+        blockingWork.executeWithoutPermit(() -> {
+            try {
+                sendHistoryChunks(context, replay.getEvents(), " from room " + context.getRoomCode() + " memory",
+                                  HISTORY_END);
+            } catch (Exception e) {
+                log.error("Failed to send history to " + context.getSessionId() + ": " + e.getMessage());
+            }
+        });
+    }
+
+    private static void sendHistoryEvents(SessionContext context, String roomCode, String canvas) {
+        Long boardId = context.getBoardId();
+        // The permit covers the query only; sending waits on the client, not the database
+        List<DrawingEvent> events = blockingWork.withPermit(() -> loadHistory(boardId, roomCode));
+        // Nothing to replay (e.g. a board that was only ever saved whole) - the canvas comes with the end marker
+        OutboundFrame end = HISTORY_END;
+        if (events.isEmpty() && canvas != null) {
+            end = OutboundFrame.of(JsonWriter.get().reserve(canvas.length() + 48).beginObject()
+                .field("type", "historyEnd")
+                .field("canvasData", canvas)
+                .endObject().build());
+        }
+        sendHistoryChunks(context, events,
+                          boardId != null ? (" for board " + boardId) : (roomCode != null ? (" for room " + roomCode) : ""),
+                          end);
+    }
+
+    private static List<DrawingEvent> loadHistory(Long boardId, String roomCode) {
+        if (boardId != null) {
+            return drawingEventDAO.getEventsByBoard(boardId);
+        } else if (roomCode != null) {
+            // Send only events for this room
+            return drawingEventDAO.getEventsByRoom(roomCode);
+        } else {
+            // Fallback to all events if no room code (shouldn't happen in normal operation)
+            return drawingEventDAO.getAllEvents();
+        }
+    }
+
+    /**
+     * Send the events as historyChunk frames of up to HISTORY_CHUNK_EVENTS each,
+     * then the end marker:
+     *
+     *   {"type":"historyChunk","sent":2000,"total":5300,"events":[{"type":"draw",...}, ...]}
+     *
+     * Only HISTORY_WINDOW chunks are queued ahead of the client at a time.
+     */
+    private static void sendHistoryChunks(SessionContext context, List<DrawingEvent> events, String source,
+                                          OutboundFrame end) {
+        Session session = context.getSession();
+        int total = events.size();
+        int chunks = 0;
+        SessionOutbound outbound = context.getOutbound();
+        try {
+            // Chunks go straight to the outbound queue; the start marker must be in it first
+            fanOut.awaitDelivered(session);
+            for (int from = 0; from < total; from += HISTORY_CHUNK_EVENTS) {
+                int to = Math.min(total, from + HISTORY_CHUNK_EVENTS);
+                JsonWriter chunk = JsonWriter.get().beginObject()
+                    .field("type", "historyChunk")
+                    .field("sent", to)
+                    .field("total", total)
+                    .name("events").beginArray();
+                for (int i = from; i < to; i++) {
+                    events.get(i).writeJson(chunk);
+                }
+                OutboundFrame frame = OutboundFrame.of(chunk.endArray().endObject().build());
+                if (!outbound.sendAwaitingCapacity(frame, HISTORY_WINDOW, HISTORY_SEND_TIMEOUT_MS)) {
+                    log.error("Gave up sending history to " + session.getId() + " - client not draining");
+                    return;
+                }
+                chunks++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        
+        // Send history end marker
+        send(session, end);
+        
+        log.info("Sent " + total + " historical events in " + chunks + " frames" + source +
+                           " to " + session.getId());
+    }
+    
+    /**
+     * Broadcast user count to room
+     */
+    public static void broadcastRoomUserCount(Room room) {
+        String message = JsonWriter.get().beginObject()
+            .field("type", "userCount")
+            .field("count", room.getApprovedCount())
+            .endObject().build();
+        broadcastToRoom(room, message, null, false);
+    }
+    
+    /**
+     * Notify all room members that room is closed
+     */
+    public static void notifyRoomClosed(Room room, String roomCode) {
+        for (Session session : room.getRecipients()) {
+            if (session.isOpen() && !room.isOwner(session)) {
+                send(session, ROOM_CLOSED);
+                leaveRoom(session, roomCode);
+            }
+        }
+        
+        // Also notify pending users
+        for (Session session : room.getPendingApproval()) {
+            if (session.isOpen()) {
+                send(session, ROOM_CLOSED);
+                leaveRoom(session, roomCode);
+            }
+        }
+
+        batcher.discard(room);
+        presence.discard(room);
+        room.clearBoardMetadata();
+    }
+
+    private static void leaveRoom(Session session, String roomCode) {
+        SessionContext context = SessionContext.of(session);
+        if (context != null) {
+            context.leaveRoom(roomCode);
+        }
+    }
+    
+    /**
+     * Broadcast a message to all approved room members
+     */
+    public static void broadcastToRoom(Room room, String message, Session excludeSession) {
+        broadcastToRoom(room, OutboundFrame.of(message), excludeSession, true);
+    }
+
+    public static void broadcastToRoom(Room room, String message, Session excludeSession, boolean critical) {
+        broadcastToRoom(room, OutboundFrame.of(message), excludeSession, critical);
+    }
+
+    /**
+     * Broadcast a frame to all approved room members.
+     * The frame is shared, so its encoding happens once for the whole room.
+     * Non-critical frames may be dropped for members that have fallen behind.
+     */
+    public static void broadcastToRoom(Room room, OutboundFrame frame, Session excludeSession, boolean critical) {
+        // Anything still waiting for the room tick was sent first
+        batcher.flush(room);
+        deliverToRoom(room, frame, excludeSession, critical);
+    }
+
+    /**
+     * Broadcast a draw or shape frame to all approved room members on the room's
+     * next tick, coalesced with other events from the same tick
+     */
+    public static void broadcastToRoomBatched(Room room, OutboundFrame frame) {
+        batcher.submit(room, frame);
+    }
+
+    /**
+     * Deliver the room's batched events now instead of on its next tick
+     */
+    public static void flushRoomBatch(Room room) {
+        batcher.flush(room);
+    }
+
+    /**
+     * Number a draw or shape event in the room and broadcast it like
+     * {@link #broadcastToRoomBatched}, so members receive events in numbering order
+     */
+    public static void broadcastRoomEvent(Room room, DrawingEvent event, OutboundFrame frame) {
+        room.inEventOrder(() -> {
+            room.recordEvent(event);
+            batcher.submit(room, frame);
+        });
+    }
+
+    /**
+     * Deliver a presence update to all approved room members. A member that has not
+     * received the previous update yet gets the room's snapshot in its place.
+     */
+    private static void deliverPresence(Room room, OutboundFrame update, Supplier<OutboundFrame> snapshot) {
+        fanOut.fanOut(room.getRoomCode(), room.getRecipients(), session -> {
+            SessionOutbound outbound = SessionOutbound.of(session);
+            if (outbound != null && session.isOpen()) {
+                outbound.sendConflated(update, snapshot);
+            }
+        });
+    }
+
+    private static void deliverToRoom(Room room, OutboundFrame frame, Session excludeSession, boolean critical) {
+        fanOut.fanOut(room.getRoomCode(), room.getRecipients(), session -> {
+            if (session.isOpen() && (excludeSession == null || !session.equals(excludeSession))) {
+                enqueue(session, frame, critical);
+            }
+        });
+    }
+
+    /**
+     * Broadcast a message to all clients currently working on the same board
+     */
+    public static void broadcastToBoard(Long boardId, String message, Session excludeSession) {
+        broadcastToBoard(boardId, OutboundFrame.of(message), excludeSession);
+    }
+
+    public static void broadcastToBoard(Long boardId, OutboundFrame frame, Session excludeSession) {
+        deliverToBoard(boardId, frame, excludeSession);
+        publish(ClusterMessage.Scope.BOARD, boardId.toString(), frame, true);
+    }
+
+    private static void deliverToBoard(Long boardId, OutboundFrame frame, Session excludeSession) {
+        Set<Session> boardMembers = boardSessions.get(boardId);
+        if (boardMembers == null) {
+            return;
+        }
+        for (Session session : boardMembers) {
+            if (!session.isOpen()) {
+                continue;
+            }
+            if (excludeSession != null && session.equals(excludeSession)) {
+                continue;
+            }
+            send(session, frame, true);
+        }
+    }
+
+    /**
+     * Set the board a session is working on, moving it in the board index
+     */
+    public static void setSessionBoard(SessionContext context, Long boardId) {
+        Session session = context.getSession();
+        synchronized (context) {
+            Long previous = context.swapBoardId(boardId);
+            if (previous != null && !previous.equals(boardId)) {
+                removeFromBoardIndex(previous, session);
+            }
+            boardSessions.compute(boardId, (id, members) -> {
+                if (members == null) {
+                    members = ConcurrentHashMap.newKeySet();
+                }
+                members.add(session);
+                return members;
+            });
+        }
+    }
+
+    /**
+     * Detach a session from its board (logout, disconnect)
+     */
+    public static void clearSessionBoard(SessionContext context) {
+        synchronized (context) {
+            Long previous = context.swapBoardId(null);
+            if (previous != null) {
+                removeFromBoardIndex(previous, context.getSession());
+            }
+        }
+    }
+
+    private static void removeFromBoardIndex(Long boardId, Session session) {
+        boardSessions.computeIfPresent(boardId, (id, members) -> {
+            members.remove(session);
+            return members.isEmpty() ? null : members;
+        });
+    }
+    
+    /**
+     * Broadcast a message to all connected clients (legacy - no room)
+     */
+    public static void broadcast(String message) {
+        broadcast(OutboundFrame.of(message));
+    }
+
+    public static void broadcast(OutboundFrame frame) {
+        deliverToAll(frame);
+        publish(ClusterMessage.Scope.ALL, null, frame, true);
+    }
+
+    private static void deliverToAll(OutboundFrame frame) {
+        List<Session> recipients = new ArrayList<>(contexts.size());
+        for (SessionContext context : contexts.values()) {
+            recipients.add(context.getSession());
+        }
+        fanOut.fanOut("all", recipients, session -> {
+            if (session.isOpen()) {
+                enqueue(session, frame, true);
+            }
+        });
+    }
+
+    /**
+     * Hand a broadcast that was just delivered locally to the other nodes.
+     * Draw frames go out as their JSON text; other nodes have no style ids for them.
+     */
+    private static void publish(ClusterMessage.Scope scope, String key, OutboundFrame frame, boolean critical) {
+        if (cluster == null) {
+            return;
+        }
+        String text = frame.getText();
+        if (text == null) {
+            // Raw binary frames have no form another node could deliver
+            return;
+        }
+        cluster.publish(new ClusterMessage(cluster.getNodeId(), scope, key, text, critical));
+        clusterPublished.inc();
+    }
+
+    /**
+     * Deliver another node's broadcast to the matching sessions on this node
+     */
+    private static void deliverFromCluster(ClusterMessage message) {
+        clusterReceived.inc();
+        OutboundFrame frame = OutboundFrame.of(message.getPayload());
+        switch (message.getScope()) {
+            case BOARD:
+                try {
+                    deliverToBoard(Long.valueOf(message.getKey()), frame, null);
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring cluster message for board " + message.getKey());
+                }
+                return;
+            case ALL:
+                deliverToAll(frame);
+                return;
+        }
+    }
+
+    /**
+     * Queue a message on a session's outbound queue, behind any broadcast to the
+     * session that a parallel fan-out has not queued yet.
+     * Never blocks: delivery happens asynchronously in queue order.
+     */
+    public static void send(Session session, String message) {
+        send(session, OutboundFrame.of(message), true);
+    }
+
+    public static void send(Session session, OutboundFrame frame) {
+        send(session, frame, true);
+    }
+
+    public static void send(Session session, OutboundFrame frame, boolean critical) {
+        fanOut.deliver(session, recipient -> enqueue(recipient, frame, critical));
+    }
+
+    // Straight to the outbound queue; for fan-out deliveries, which already run in order
+    private static void enqueue(Session session, OutboundFrame frame, boolean critical) {
+        SessionOutbound outbound = SessionOutbound.of(session);
+        if (outbound != null) {
+            outbound.send(frame, critical);
+        }
+    }
+
+    /**
+     * Queue a frame that replaces any conflated frame the session has not received
+     * yet (e.g. a presence snapshot), in order with {@link #send}
+     */
+    public static void sendConflated(Session session, OutboundFrame frame) {
+        fanOut.deliver(session, recipient -> {
+            SessionOutbound outbound = SessionOutbound.of(recipient);
+            if (outbound != null && recipient.isOpen()) {
+                outbound.sendConflated(frame);
+            }
+        });
+    }
+    
+    /**
+     * Frames waiting in every session's outbound queue
+     */
+    public static long getOutboundQueueDepth() {
+        long queued = 0;
+        for (SessionContext context : contexts.values()) {
+            queued += context.getOutbound().getQueueDepth();
+        }
+        return queued;
+    }
+
+    /**
+     * Save a drawing event: directly, or through the batch writer while admission
+     * control has persistence in batch mode and until the writer has drained, so
+     * events are stored in the order they arrived
+     */
+    public static void persistEvent(DrawingEvent event) {
+        if (admission.isBatchPersistence() || eventWriter.hasPending()) {
+            eventWriter.offer(event);
+        } else {
+            drawingEventDAO.saveEvent(event);
+        }
+    }
+
+    /**
+     * Find a connected session's context by its ID
+     */
+    public static SessionContext findContext(String sessionId) {
+        return sessionId != null ? contexts.get(sessionId) : null;
+    }
+
+    /**
+     * Find a connected session by its ID
+     */
+    public static Session findSessionById(String sessionId) {
+        SessionContext context = findContext(sessionId);
+        return context != null ? context.getSession() : null;
+    }
+    
+    /**
+     * Send error message to a session
+     */
+    public static void sendError(Session session, String errorMessage) {
+        sendMessage(session, "error", errorMessage);
+    }
+    
+    public static void sendAuthError(Session session, String errorType, String errorMessage) {
+        sendMessage(session, errorType, errorMessage);
+    }
+
+    public static void sendSessionRestoreFailed(Session session, String errorMessage) {
+        sendMessage(session, "sessionRestoreFailed", errorMessage);
+    }
+
+    /**
+     * Send a {"type":...,"message":...} notice to a session
+     */
+    public static void sendMessage(Session session, String type, String text) {
+        send(session, JsonWriter.get().beginObject()
+            .field("type", type)
+            .field("message", text)
+            .endObject().build());
+    }
+    
+    public static String userLeftMessage(String sessionId, Room room) {
+        return JsonWriter.get().beginObject()
+            .field("type", "userLeft")
+            .field("sessionId", sessionId)
+            .field("userCount", room.getApprovedCount())
+            .endObject().build();
+    }
+
+    public static String userSessionMessage(String type, User user, String token) {
+        return JsonWriter.get().beginObject()
+            .field("type", type)
+            .field("userId", user.getId())
+            .field("username", user.getUsername())
+            .field("displayName", user.getDisplayName())
+            .field("token", token)
+            .endObject().build();
+    }
+
+    /**
+     * Get the number of connected clients
+     */
+    public static int getConnectedClientCount() {
+        return contexts.size();
+    }
+}
@@ -0,0 +1,112 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Board;
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles user approval by room owner
+ * Message type: "approveUser"
+ */
+public class ApproveUserHandler implements MessageHandler {
+
+    private static final Log log = Log.get(ApproveUserHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session ownerSession = context.getSession();
+        String roomCode = context.getRoomCode();
+        if (roomCode == null) {
+            sendError(ownerSession, "You are not in a room");
+            return;
+        }
+        
+        Room room = rooms.get(roomCode);
+        if (room == null || !room.isOwner(ownerSession)) {
+            sendError(ownerSession, "Only room owner can approve users");
+            return;
+        }
+        
+        String targetSessionId = message.getString("sessionId");
+        SessionContext target = findContext(targetSessionId);
+        Session targetSession = target != null ? target.getSession() : null;
+        
+        if (targetSession == null || !room.isPending(targetSession)) {
+            sendError(ownerSession, "User request not found or already processed");
+            return;
+        }
+        
+        Long boardId = room.getBoardId();
+        String boardTitle = room.getBoardTitle();
+        if ((boardTitle == null || boardTitle.isEmpty()) && boardId != null) {
+            Optional<Board> latestBoard = boardDAO.getBoardById(boardId);
+            if (latestBoard.isPresent()) {
+                boardTitle = latestBoard.get().getTitle();
+            }
+        }
+        String title = boardTitle;
+        
+        // Approve and queue the canvas while no event can be published to the room,
+        // so the new user gets each event exactly once: in its catch-up or live
+        room.inEventOrder(() -> {
+            // Batched events still pending were numbered before the user joined
+            flushRoomBatch(room);
+            room.approveSession(targetSession);
+            if (boardId != null) {
+                setSessionBoard(target, boardId);
+            }
+            
+            // Live snapshot plus the events drawn since, straight from memory when the room
+            // has them. Otherwise the board's history - or without a database, the canvas.
+            Room.CanvasReplay replay = room.getCanvasReplay();
+            String canvas = replay != null ? replay.getCanvas() : (PERSIST_TO_DATABASE ? null : room.getBoardCanvas());
+            
+            // Notify the approved user; eventCount is where its canvas stands in the room's events
+            String approvedResponse = JsonWriter.get()
+                .reserve(canvas != null ? canvas.length() + 180 : 180)
+                .beginObject()
+                .field("type", "approved")
+                .field("roomCode", roomCode)
+                .field("userCount", room.getApprovedCount())
+                .field("boardId", boardId)
+                .field("boardTitle", title)
+                .field("canvasData", canvas)
+                .field("eventCount", replay != null ? replay.getEventCount() : room.getEventCount())
+                .endObject().build();
+            send(targetSession, approvedResponse);
+            
+            // Send canvas history to the new user (in the background)
+            if (replay != null) {
+                sendCanvasReplay(target, replay);
+            } else if (PERSIST_TO_DATABASE) {
+                sendCanvasHistoryAsync(target, roomCode, room.getBoardCanvas());
+            }
+        });
+        // Every cursor once; the room's presence updates only carry changes
+        sendConflated(targetSession, presence.snapshotOf(room));
+        
+        // Notify all room members about new user
+        broadcastToRoom(room, JsonWriter.get().beginObject()
+            .field("type", "userJoined")
+            .field("sessionId", targetSessionId)
+            .field("userCount", room.getApprovedCount())
+            .endObject().build(), null, false);
+        
+        // Update owner's pending count
+        String pendingUpdate = JsonWriter.get().beginObject()
+            .field("type", "pendingUpdate")
+            .field("pendingCount", room.getPendingCount())
+            .endObject().build();
+        send(ownerSession, pendingUpdate);
+        
+        log.info("User " + targetSessionId + " approved for room " + roomCode);
+    }
+}
@@ -0,0 +1,76 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles synchronized canvas state messages (undo, redo, clear, snapshot restores)
+ * Message type: "canvasState"
+ */
+public class CanvasStateHandler implements MessageHandler {
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session senderSession = context.getSession();
+        String action = message.getString("action");
+        if (action == null || action.isEmpty()) {
+            return;
+        }
+
+        String roomCodeFromMessage = message.getString("roomCode");
+        if (roomCodeFromMessage != null && "null".equalsIgnoreCase(roomCodeFromMessage.trim())) {
+            roomCodeFromMessage = null;
+        }
+        String mappedRoomCode = context.getRoomCode();
+        String roomCode = roomCodeFromMessage != null ? roomCodeFromMessage : mappedRoomCode;
+
+        Long boardId = message.getLong("boardId");
+        if (boardId == null) {
+            boardId = context.getBoardId();
+        }
+
+        if (roomCode == null && boardId == null) {
+            return;
+        }
+
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+        if (room != null && !room.isApproved(senderSession)) {
+            return;
+        }
+
+        String canvasData = message.getString("canvasData");
+
+        if (room != null && canvasData != null) {
+            Long covers = message.getLong("covers");
+            room.setCanvasSnapshot(canvasData, covers != null ? covers : -1, context.getSessionId());
+        }
+
+        // Canvas payloads can be megabytes - size the builder once instead of regrowing it
+        JsonWriter builder = JsonWriter.get()
+            .reserve(128 + (canvasData != null ? message.rawLength("canvasData") + 16 : 0))
+            .beginObject()
+            .field("type", "canvasState")
+            .field("action", action)
+            .field("boardId", boardId)
+            .field("roomCode", roomCode);
+
+        if (canvasData != null) {
+            // Already valid JSON string text in the inbound message - copy it as is
+            message.writeRaw("canvasData", builder.name("canvasData"));
+        }
+
+        String payload = builder.endObject().build();
+
+        if (room != null) {
+            broadcastToRoom(room, payload, senderSession);
+        } else if (boardId != null) {
+            broadcastToBoard(boardId, payload, senderSession);
+        }
+    }
+}
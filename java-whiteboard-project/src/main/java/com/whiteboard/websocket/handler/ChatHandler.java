@@ -0,0 +1,35 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles chat message
+ * Message type: "chat"
+ */
+public class ChatHandler implements MessageHandler {
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session senderSession = context.getSession();
+        String roomCode = context.getRoomCode();
+        
+        // Check if user is in a room and approved
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+        if (room != null && !room.isApproved(senderSession)) {
+            return; // Not approved, ignore chat
+        }
+        
+        // Broadcast chat message to all users in the room or globally
+        if (room != null) {
+            broadcastToRoom(room, message.source(), null);
+        } else {
+            broadcast(message.source());
+        }
+    }
+}
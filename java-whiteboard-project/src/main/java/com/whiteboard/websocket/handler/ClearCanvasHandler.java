@@ -0,0 +1,70 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles clear canvas request
+ * Message type: "clear"
+ */
+public class ClearCanvasHandler implements MessageHandler {
+
+    private static final Log log = Log.get(ClearCanvasHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session senderSession = context.getSession();
+        String roomCodeFromMessage = message.getString("roomCode");
+        if (roomCodeFromMessage != null && "null".equalsIgnoreCase(roomCodeFromMessage.trim())) {
+            roomCodeFromMessage = null;
+        }
+        String mappedRoomCode = context.getRoomCode();
+        String roomCode = roomCodeFromMessage != null ? roomCodeFromMessage : mappedRoomCode;
+        Long boardId = message.getLong("boardId");
+        if (boardId == null) {
+            boardId = context.getBoardId();
+        }
+
+        log.info("Canvas clear requested by: " + senderSession.getId() +
+                           (boardId != null ? (" | board=" + boardId) : "") +
+                           (roomCode != null ? (" | room=" + roomCode) : ""));
+        
+        if (PERSIST_TO_DATABASE) {
+            if (boardId != null) {
+                drawingEventDAO.clearEventsForBoard(boardId);
+            } else if (roomCode != null && !roomCode.isEmpty()) {
+                drawingEventDAO.clearEventsForRoom(roomCode);
+            } else {
+                drawingEventDAO.clearAllEvents();
+            }
+        }
+        
+        JsonWriter clearBuilder = JsonWriter.get().beginObject()
+            .field("type", "clear")
+            .field("boardId", boardId);
+        if (roomCode != null) {
+            clearBuilder.field("roomCode", roomCode);
+        }
+        String clearMessage = clearBuilder.endObject().build();
+
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+        if (room != null) {
+            // No draw may slip in between forgetting the events and members clearing
+            room.inEventOrder(() -> {
+                room.clearCanvas();
+                broadcastToRoom(room, clearMessage, null);
+            });
+        } else if (boardId != null) {
+            broadcastToBoard(boardId, clearMessage, senderSession);
+        } else {
+            send(senderSession, clearMessage);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+import com.whiteboard.websocket.SessionOutbound;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles the client's reply to the welcome handshake (protocol options it supports)
+ * Message type: "clientHello"
+ */
+public class ClientHelloHandler implements MessageHandler {
+
+    private static final Log log = Log.get(ClientHelloHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        SessionOutbound outbound = context.getOutbound();
+        if (message.getBoolean("binaryFrames")) {
+            outbound.setBinaryFrames(true);
+            log.debug("Binary frames enabled for " + session.getId());
+        }
+        if (message.getBoolean("binaryDraw")) {
+            outbound.setBinaryDraw(true);
+            log.debug("Binary draw protocol enabled for " + session.getId());
+        }
+    }
+}
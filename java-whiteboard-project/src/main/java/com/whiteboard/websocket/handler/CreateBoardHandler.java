@@ -0,0 +1,57 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Board;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles create board request
+ * Message type: "createBoard"
+ */
+public class CreateBoardHandler implements MessageHandler {
+
+    private static final Log log = Log.get(CreateBoardHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        log.debug("handleCreateBoard - sessionId: " + session.getId() + ", userId: " + userId);
+        
+        if (userId == null) {
+            log.debug("User not logged in for board creation - connected clients: " + getConnectedClientCount());
+            sendError(session, "You must be logged in to create a board");
+            return;
+        }
+        
+        String title = message.getString("title");
+        if (title == null || title.isEmpty()) {
+            title = "Untitled Board";
+        }
+        
+        String description = message.getString("description");
+        
+        Board board = new Board(userId, title);
+        board.setDescription(description);
+        long boardId = boardDAO.createBoard(board);
+        
+        if (boardId > 0) {
+            setSessionBoard(context, boardId);
+            String response = JsonWriter.get().beginObject()
+                .field("type", "boardCreated")
+                .field("boardId", boardId)
+                .field("title", title)
+                .endObject().build();
+            send(session, response);
+            log.info("Board created: " + boardId + " by user: " + userId);
+        } else {
+            sendError(session, "Failed to create board");
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Board;
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles room creation request
+ * Message type: "createRoom"
+ */
+public class CreateRoomHandler implements MessageHandler {
+
+    private static final Log log = Log.get(CreateRoomHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Room room = new Room(session, roomCodePrefix());
+        // Codes are random; draw again in the unlikely case this one is taken
+        while (rooms.putIfAbsent(room.getRoomCode(), room) != null) {
+            room = new Room(session, roomCodePrefix());
+        }
+        String roomCode = room.getRoomCode();
+
+        Long boardId = context.getBoardId();
+        String boardTitle = null;
+        String boardCanvas = null;
+        if (boardId != null) {
+            Optional<Board> boardOpt = boardDAO.getBoardById(boardId);
+            if (boardOpt.isPresent()) {
+                Board board = boardOpt.get();
+                boardTitle = board.getTitle();
+                boardCanvas = board.getCanvasData();
+                room.setBoardMetadata(boardId, boardTitle, boardCanvas);
+            } else {
+                room.setBoardMetadata(boardId, null, null);
+            }
+        }
+        
+        context.setRoomCode(roomCode);
+        
+        String response = JsonWriter.get().beginObject()
+            .field("type", "roomCreated")
+            .field("roomCode", roomCode)
+            .field("roomId", room.getRoomId())
+            .field("isOwner", true)
+            .field("boardId", boardId)
+            .field("boardTitle", boardTitle)
+            .endObject().build();
+        send(session, response);
+        
+        // Send room user count
+        broadcastRoomUserCount(room);
+        
+        log.info("Room created: " + roomCode + " by " + session.getId());
+    }
+}
@@ -0,0 +1,36 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles live cursor updates - recorded in the room's presence channel, which
+ * sends conflated snapshots to members at a capped rate. Never persisted.
+ * Message type: "cursor"
+ */
+public class CursorHandler implements MessageHandler {
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String roomCode = context.getRoomCode();
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+        if (room == null || !room.isApproved(session)) {
+            return; // Presence is only shared within rooms
+        }
+
+        String username = context.getUsername();
+        if (username == null || username.isEmpty()) {
+            username = message.getString("username");
+        }
+
+        int x = (int) Math.round(message.getDouble("x", 0));
+        int y = (int) Math.round(message.getDouble("y", 0));
+        presence.update(room, session.getId(), username, x, y);
+    }
+}
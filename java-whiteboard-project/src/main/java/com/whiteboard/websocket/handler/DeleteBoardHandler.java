@@ -0,0 +1,43 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles delete board
+ * Message type: "deleteBoard"
+ */
+public class DeleteBoardHandler implements MessageHandler {
+
+    private static final Log log = Log.get(DeleteBoardHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        
+        if (userId == null) {
+            sendError(session, "You must be logged in");
+            return;
+        }
+        
+        long boardId = message.getInt("boardId");
+        
+        if (boardDAO.deleteBoard(boardId, userId)) {
+            String response = JsonWriter.get().beginObject()
+                .field("type", "boardDeleted")
+                .field("boardId", boardId)
+                .endObject().build();
+            send(session, response);
+            log.info("Board deleted: " + boardId);
+        } else {
+            sendError(session, "Failed to delete board");
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.DrawStyle;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles a draw event - broadcast to room members and optionally save to database
+ * Message type: "draw"
+ */
+public class DrawHandler implements MessageHandler {
+
+    private static final Log log = Log.get(DrawHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session senderSession = context.getSession();
+        String roomCode = context.getRoomCode();
+        
+        // Check if user is in a room and approved
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+        if (room != null && !room.isApproved(senderSession)) {
+            return; // Not approved, ignore drawing
+        }
+        
+        // Parse the drawing event
+        DrawingEvent event = DrawingEvent.fromMessage(message);
+        event.setSessionId(senderSession.getId());
+        event.setRoomCode(roomCode); // Set room code for database filtering
+        Long boardId = context.getBoardId();
+        if (boardId != null) {
+            event.setBoardId(boardId);
+        }
+        if (event.getUsername() == null || event.getUsername().isEmpty()) {
+            String username = context.getUsername();
+            if (username != null) {
+                event.setUsername(username);
+            }
+        }
+        
+        // Save to database if enabled
+        if (PERSIST_TO_DATABASE) {
+            try {
+                persistEvent(event);
+            } catch (Exception e) {
+                log.error("Failed to save to database: " + e.getMessage());
+            }
+        }
+        
+        // Broadcast to room members only (coalesced on the room tick when enabled);
+        // JSON is only built if a recipient still needs it
+        OutboundFrame broadcastFrame = OutboundFrame.draw(event, DrawStyle.intern(senderSession, event));
+        if (room != null) {
+            broadcastRoomEvent(room, event, broadcastFrame);
+        } else if (boardId != null) {
+            broadcastToBoard(boardId, broadcastFrame, senderSession);
+        } else {
+            broadcast(broadcastFrame);
+        }
+    }
+}
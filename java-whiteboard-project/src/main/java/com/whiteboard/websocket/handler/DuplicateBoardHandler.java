@@ -0,0 +1,42 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles duplicate board
+ * Message type: "duplicateBoard"
+ */
+public class DuplicateBoardHandler implements MessageHandler {
+
+    private static final OutboundFrame BOARD_DUPLICATED = OutboundFrame.constant("{\"type\":\"boardDuplicated\"}");
+
+    // Sends the refreshed dashboard list after a copy
+    private final GetBoardsHandler boardsList = new GetBoardsHandler();
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        
+        if (userId == null) {
+            sendError(session, "You must be logged in");
+            return;
+        }
+        
+        long boardId = message.getInt("boardId");
+        
+        if (boardDAO.duplicateBoard(boardId, userId)) {
+            send(session, BOARD_DUPLICATED);
+            // Send updated boards list
+            boardsList.handle(message, context);
+        } else {
+            sendError(session, "Failed to duplicate board");
+        }
+    }
+}
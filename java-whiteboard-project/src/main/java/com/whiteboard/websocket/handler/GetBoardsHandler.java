@@ -0,0 +1,53 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Board;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.List;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles get boards request (for dashboard)
+ * Message type: "getBoards"
+ */
+public class GetBoardsHandler implements MessageHandler {
+
+    private static final Log log = Log.get(GetBoardsHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        log.debug("handleGetBoards - sessionId: " + session.getId() + ", userId: " + userId);
+        
+        if (userId == null) {
+            log.debug("User not logged in - connected clients: " + getConnectedClientCount());
+            sendError(session, "You must be logged in to view boards");
+            return;
+        }
+        
+        List<Board> boards = boardDAO.getBoardsByUserId(userId);
+        
+        JsonWriter response = JsonWriter.get().beginObject()
+            .field("type", "boardsList")
+            .name("boards").beginArray();
+        
+        for (Board board : boards) {
+            response.beginObject()
+                .field("id", board.getId())
+                .field("title", board.getTitle())
+                .field("description", board.getDescription() != null ? board.getDescription() : "")
+                .field("thumbnail", board.getThumbnail() != null ? board.getThumbnail() : "")
+                .field("updatedAt", board.getUpdatedAt() != null ? board.getUpdatedAt().toString() : "")
+                .endObject();
+        }
+        
+        send(session, response.endArray().endObject().build());
+        log.debug("Sent " + boards.size() + " boards to user: " + userId);
+    }
+}
@@ -0,0 +1,42 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.GuestSession;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.sql.Timestamp;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles guest mode activation
+ * Message type: "guestMode"
+ */
+public class GuestModeHandler implements MessageHandler {
+
+    private static final Log log = Log.get(GuestModeHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String sessionId = session.getId();
+        context.setGuest(true);
+        
+        // Create temporary guest session (expires in 24 hours)
+        Timestamp expiresAt = new Timestamp(System.currentTimeMillis() + (24 * 60 * 60 * 1000));
+        GuestSession guestSession = new GuestSession(sessionId, expiresAt);
+        guestSessionDAO.createGuestSession(guestSession);
+        
+        String response = JsonWriter.get().beginObject()
+            .field("type", "guestModeActivated")
+            .field("sessionId", sessionId)
+            .field("expiresAt", expiresAt.toString())
+            .field("message", "Login to save your work permanently")
+            .endObject().build();
+        send(session, response);
+        log.info("Guest mode activated for session: " + sessionId);
+    }
+}
@@ -0,0 +1,74 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.Log;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link HandlerControlMXBean} over a {@link HandlerRegistry}
+ */
+public final class HandlerControl implements HandlerControlMXBean {
+
+    private static final Log log = Log.get(HandlerControl.class);
+
+    public static final String OBJECT_NAME = "com.whiteboard:type=MessageHandlers";
+
+    private final HandlerRegistry registry;
+
+    HandlerControl(HandlerRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Register the registry's controls with the platform MBean server, replacing
+     * those of an earlier deployment in the same JVM
+     */
+    static void register(HandlerRegistry registry) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new HandlerControl(registry), name);
+        } catch (JMException e) {
+            log.warn("Message handler controls are not available over JMX: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public List<String> getTypes() {
+        return new ArrayList<>(registry.getTypes());
+    }
+
+    @Override
+    public List<String> getDisabledTypes() {
+        List<String> disabled = new ArrayList<>();
+        for (String type : registry.getTypes()) {
+            if (!registry.isEnabled(type)) {
+                disabled.add(type);
+            }
+        }
+        return disabled;
+    }
+
+    @Override
+    public List<HandlerRegistry.HandlerStats> getStats() {
+        return registry.getStats();
+    }
+
+    @Override
+    public boolean enable(String type) {
+        return registry.setEnabled(type, true);
+    }
+
+    @Override
+    public boolean disable(String type) {
+        return registry.setEnabled(type, false);
+    }
+}
@@ -0,0 +1,36 @@
+package com.whiteboard.websocket.handler;
+
+import java.util.List;
+
+/**
+ * JMX view of the message handlers, registered as com.whiteboard:type=MessageHandlers.
+ * Lets an operator switch message types off and on while the server runs, next
+ * to the per-type statistics that show which one is misbehaving.
+ */
+public interface HandlerControlMXBean {
+
+    /**
+     * Every registered message type, sorted
+     */
+    List<String> getTypes();
+
+    /**
+     * Message types currently ignored, sorted
+     */
+    List<String> getDisabledTypes();
+
+    /**
+     * Per-type statistics, sorted by type
+     */
+    List<HandlerRegistry.HandlerStats> getStats();
+
+    /**
+     * @return false if the type is not registered
+     */
+    boolean enable(String type);
+
+    /**
+     * @return false if the type is not registered
+     */
+    boolean disable(String type);
+}
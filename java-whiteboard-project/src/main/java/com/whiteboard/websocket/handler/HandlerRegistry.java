@@ -0,0 +1,307 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.metrics.Counter;
+import com.whiteboard.metrics.Histogram;
+import com.whiteboard.metrics.Metrics;
+import com.whiteboard.util.Config;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes inbound messages to their handler by message type.
+ * Every dispatch is accounted per type (invocations, errors, latency), and
+ * individual types can be switched off at runtime without a redeploy, through
+ * {@link HandlerControlMXBean} over JMX.
+ * Handlers that touch the database are registered as blocking so the endpoint
+ * runs them off the WebSocket I/O thread.
+ */
+public class HandlerRegistry {
+
+    private static final Log log = Log.get(HandlerRegistry.class);
+
+    /**
+     * Outcome of a dispatch
+     */
+    public enum Result {
+        HANDLED,
+        FAILED,
+        DISABLED,
+        UNKNOWN
+    }
+
+    private final Map<String, Registration> handlers = new ConcurrentHashMap<>();
+
+    /**
+     * Create a registry with every built-in message type.
+     * Types listed in whiteboard.handlers.disabled (comma separated) start disabled.
+     * The registry is also published over JMX as {@link HandlerControl#OBJECT_NAME}.
+     */
+    public static HandlerRegistry createDefault() {
+        HandlerRegistry registry = new HandlerRegistry();
+
+        // true marks handlers that do database work (run off the I/O thread)
+
+        // Connection setup
+        registry.register("clientHello", new ClientHelloHandler());
+        // Authentication & Guest
+        registry.register("guestMode", new GuestModeHandler(), true);
+        registry.register("register", new RegisterHandler(), true);
+        registry.register("login", new LoginHandler(), true);
+        registry.register("restoreSession", new RestoreSessionHandler(), true);
+        registry.register("logout", new LogoutHandler());
+        // Board Management
+        registry.register("createBoard", new CreateBoardHandler(), true);
+        registry.register("getBoards", new GetBoardsHandler(), true);
+        registry.register("openBoard", new OpenBoardHandler(), true);
+        registry.register("saveBoard", new SaveBoardHandler(), true);
+        registry.register("updateBoardTitle", new UpdateBoardTitleHandler(), true);
+        registry.register("deleteBoard", new DeleteBoardHandler(), true);
+        registry.register("duplicateBoard", new DuplicateBoardHandler(), true);
+        // Room management
+        registry.register("createRoom", new CreateRoomHandler(), true);
+        registry.register("joinRoom", new JoinRoomHandler(), true);
+        registry.register("approveUser", new ApproveUserHandler(), true);
+        registry.register("rejectUser", new RejectUserHandler());
+        registry.register("leaveRoom", new LeaveRoomHandler());
+        // Drawing
+        registry.register("draw", new DrawHandler(), true);
+        registry.register("shape", new ShapeHandler(), true);
+        registry.register("text", new TextHandler());
+        registry.register("chat", new ChatHandler());
+        registry.register("clear", new ClearCanvasHandler(), true);
+        registry.register("canvasState", new CanvasStateHandler());
+        registry.register("ping", new PingHandler());
+        // Presence
+        registry.register("cursor", new CursorHandler());
+
+        String disabled = Config.getString("whiteboard.handlers.disabled", "");
+        for (String type : disabled.split(",")) {
+            if (!type.trim().isEmpty()) {
+                registry.setEnabled(type.trim(), false);
+            }
+        }
+        HandlerControl.register(registry);
+        return registry;
+    }
+
+    /**
+     * Register (or replace) the handler for a message type
+     */
+    public void register(String type, MessageHandler handler) {
+        register(type, handler, false);
+    }
+
+    /**
+     * Register (or replace) the handler for a message type
+     * @param blocking true if the handler does database work and must run off the I/O thread
+     */
+    public void register(String type, MessageHandler handler, boolean blocking) {
+        handlers.put(type, new Registration(type, handler, blocking));
+    }
+
+    /**
+     * Whether a message type's handler blocks (unknown types do not)
+     */
+    public boolean isBlocking(String type) {
+        Registration registration = handlers.get(type);
+        return registration != null && registration.blocking;
+    }
+
+    /**
+     * Dispatch a message to its handler.
+     * Handler exceptions are logged and counted, never propagated.
+     */
+    public Result dispatch(String type, JsonMessage message, SessionContext context) {
+        Registration registration = handlers.get(type);
+        if (registration == null) {
+            return Result.UNKNOWN;
+        }
+        if (!registration.enabled) {
+            registration.rejected.increment();
+            return Result.DISABLED;
+        }
+
+        long start = System.nanoTime();
+        try {
+            registration.handler.handle(message, context);
+            return Result.HANDLED;
+        } catch (Exception e) {
+            registration.errors.increment();
+            registration.errorCount.inc();
+            log.error("Error processing " + type + " message: " + e.getMessage(), e);
+            return Result.FAILED;
+        } finally {
+            registration.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Enable or disable a message type
+     * @return false if the type is not registered
+     */
+    public boolean setEnabled(String type, boolean enabled) {
+        Registration registration = handlers.get(type);
+        if (registration == null) {
+            log.error("Cannot " + (enabled ? "enable" : "disable") + " unknown message type: " + type);
+            return false;
+        }
+        registration.enabled = enabled;
+        log.info("Message type " + type + (enabled ? " enabled" : " disabled"));
+        return true;
+    }
+
+    public boolean isEnabled(String type) {
+        Registration registration = handlers.get(type);
+        return registration != null && registration.enabled;
+    }
+
+    public boolean isRegistered(String type) {
+        return handlers.containsKey(type);
+    }
+
+    /**
+     * Every registered message type, sorted
+     */
+    public Set<String> getTypes() {
+        return Collections.unmodifiableSet(new TreeSet<>(handlers.keySet()));
+    }
+
+    /**
+     * Snapshot of per-type statistics, sorted by type name
+     */
+    public List<HandlerStats> getStats() {
+        List<HandlerStats> stats = new ArrayList<>(handlers.size());
+        for (Registration registration : handlers.values()) {
+            stats.add(registration.snapshot());
+        }
+        stats.sort((a, b) -> a.getType().compareTo(b.getType()));
+        return Collections.unmodifiableList(stats);
+    }
+
+    public HandlerStats getStats(String type) {
+        Registration registration = handlers.get(type);
+        return registration != null ? registration.snapshot() : null;
+    }
+
+    /**
+     * A registered handler and its counters
+     */
+    private static final class Registration {
+        private final String type;
+        private final MessageHandler handler;
+        private final boolean blocking;
+        private volatile boolean enabled = true;
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        // Exported copies; the histogram count doubles as messages handled per type
+        private final Histogram latency;
+        private final Counter errorCount;
+
+        Registration(String type, MessageHandler handler, boolean blocking) {
+            this.type = type;
+            this.handler = handler;
+            this.blocking = blocking;
+            this.latency = Metrics.histogram("whiteboard_message_handle_seconds",
+                                             "Time spent in the message handler", "type", type);
+            this.errorCount = Metrics.counter("whiteboard_message_errors_total",
+                                              "Messages whose handler threw", "type", type);
+        }
+
+        void record(long nanos) {
+            latency.observeNanos(nanos);
+            invocations.increment();
+            totalNanos.add(nanos);
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        HandlerStats snapshot() {
+            return new HandlerStats(type, enabled, invocations.sum(), errors.sum(), rejected.sum(),
+                                    totalNanos.sum(), maxNanos.get());
+        }
+    }
+
+    /**
+     * Point-in-time statistics for one message type
+     */
+    public static final class HandlerStats {
+        private final String type;
+        private final boolean enabled;
+        private final long invocations;
+        private final long errors;
+        private final long rejected;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        HandlerStats(String type, boolean enabled, long invocations, long errors, long rejected,
+                     long totalNanos, long maxNanos) {
+            this.type = type;
+            this.enabled = enabled;
+            this.invocations = invocations;
+            this.errors = errors;
+            this.rejected = rejected;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public long getInvocations() {
+            return invocations;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Messages dropped because the type was disabled
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public double getAverageMicros() {
+            return invocations == 0 ? 0 : totalNanos / 1000.0 / invocations;
+        }
+
+        @Override
+        public String toString() {
+            return type + (enabled ? "" : " (disabled)") +
+                   ": calls=" + invocations +
+                   ", errors=" + errors +
+                   ", rejected=" + rejected +
+                   ", avgMicros=" + String.format("%.1f", getAverageMicros()) +
+                   ", maxMicros=" + maxNanos / 1000;
+        }
+    }
+}
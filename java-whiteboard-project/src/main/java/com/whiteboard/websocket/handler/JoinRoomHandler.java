@@ -0,0 +1,90 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.model.User;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles join room request
+ * Message type: "joinRoom"
+ */
+public class JoinRoomHandler implements MessageHandler {
+
+    private static final Log log = Log.get(JoinRoomHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String roomCode = message.getString("roomCode");
+        String username = message.getString("username");
+        String email = null;
+
+        if (username == null || username.isEmpty()) {
+            String mappedUsername = context.getUsername();
+            if (mappedUsername != null && !mappedUsername.isEmpty()) {
+                username = mappedUsername;
+            }
+        }
+        
+        // Try to get user email if user is logged in
+        Long userId = context.getUserId();
+        if (userId != null) {
+            Optional<User> userOpt = userDAO.findById(userId);
+            if (userOpt.isPresent()) {
+                User user = userOpt.get();
+                email = user.getEmail();
+                if (username == null || username.isEmpty()) {
+                    username = user.getUsername();
+                }
+            }
+        }
+        
+        if (roomCode == null || roomCode.isEmpty()) {
+            sendError(session, "Room code is required");
+            return;
+        }
+        
+        roomCode = roomCode.toUpperCase();
+        Room room = rooms.get(roomCode);
+        
+        if (room == null) {
+            sendError(session, "Room not found. Please check the code and try again.");
+            return;
+        }
+        
+        // Add to pending approval
+        room.addPendingRequest(session, username);
+        context.setRoomCode(roomCode);
+        
+        // Notify the joining user they're waiting for approval
+        String waitingResponse = JsonWriter.get().beginObject()
+            .field("type", "waitingApproval")
+            .field("roomCode", roomCode)
+            .endObject().build();
+        send(session, waitingResponse);
+        
+        // Notify room owner about the pending request
+        Session ownerSession = room.getOwnerSession();
+        if (ownerSession != null && ownerSession.isOpen()) {
+            JsonWriter pendingRequest = JsonWriter.get().beginObject()
+                .field("type", "joinRequest")
+                .field("sessionId", session.getId())
+                .field("username", username != null ? username : "Anonymous");
+            if (email != null && !email.isEmpty()) {
+                pendingRequest.field("email", email);
+            }
+            pendingRequest.field("pendingCount", room.getPendingCount());
+            send(ownerSession, pendingRequest.endObject().build());
+        }
+        
+        log.info("Join request for room " + roomCode + " from " + session.getId() + " (" + username + ", " + email + ")");
+    }
+}
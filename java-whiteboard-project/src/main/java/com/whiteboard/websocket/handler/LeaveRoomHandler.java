@@ -0,0 +1,45 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles user leaving a room
+ * Message type: "leaveRoom"
+ */
+public class LeaveRoomHandler implements MessageHandler {
+
+    private static final OutboundFrame LEFT_ROOM = OutboundFrame.constant("{\"type\":\"leftRoom\"}");
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String sessionId = session.getId();
+        String roomCode = context.leaveRoom();
+        
+        if (roomCode == null) return;
+        
+        Room room = rooms.get(roomCode);
+        if (room == null) return;
+        
+        room.removeSession(session);
+        presence.remove(room, sessionId);
+        
+        if (room.isOwner(sessionId)) {
+            // Owner left - close the room
+            notifyRoomClosed(room, roomCode);
+            rooms.remove(roomCode);
+        } else {
+            // Regular user left
+            broadcastToRoom(room, userLeftMessage(sessionId, room), null, false);
+        }
+        
+        send(session, LEFT_ROOM);
+    }
+}
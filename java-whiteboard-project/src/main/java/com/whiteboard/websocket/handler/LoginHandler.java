@@ -0,0 +1,77 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.User;
+import com.whiteboard.util.AuthenticationUtil;
+import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles user login request
+ * Message type: "login"
+ */
+public class LoginHandler implements MessageHandler {
+
+    private static final Log log = Log.get(LoginHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String username = message.getString("username");
+        String password = message.getString("password");
+        
+        if (username == null || username.isEmpty()) {
+            sendAuthError(session, "loginFailed", "Username is required");
+            return;
+        }
+        if (password == null || password.isEmpty()) {
+            sendAuthError(session, "loginFailed", "Password is required");
+            return;
+        }
+        
+        // Check database connectivity
+        if (!DatabaseConnection.testConnection()) {
+            sendAuthError(session, "loginFailed", "Database connection error. Please try again later.");
+            return;
+        }
+        
+        // Find user by username
+        Optional<User> userOpt = userDAO.findByUsername(username);
+        if (!userOpt.isPresent()) {
+            sendAuthError(session, "loginFailed", "Invalid username or password");
+            return;
+        }
+        
+        User user = userOpt.get();
+        
+        // Verify password
+        if (!AuthenticationUtil.verifyPassword(password, user.getPasswordHash())) {
+            sendAuthError(session, "loginFailed", "Invalid username or password");
+            return;
+        }
+        
+        // Update last login
+        userDAO.updateLastLogin(user.getId());
+        
+        // Store session-to-user mapping
+        context.signIn(user.getId(), user.getUsername());
+        
+        String token = AuthenticationUtil.generateToken();
+
+        String existingToken = userToToken.put(user.getId(), token);
+        if (existingToken != null) {
+            authTokens.remove(existingToken);
+        }
+        authTokens.put(token, user.getId());
+
+        String response = userSessionMessage("loginSuccess", user, token);
+        send(session, response);
+        log.info("User logged in: " + username);
+    }
+}
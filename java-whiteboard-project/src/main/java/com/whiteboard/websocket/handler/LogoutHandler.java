@@ -0,0 +1,39 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles user logout request
+ * Message type: "logout"
+ */
+public class LogoutHandler implements MessageHandler {
+
+    private static final Log log = Log.get(LogoutHandler.class);
+
+    private static final OutboundFrame LOGOUT_SUCCESS = OutboundFrame.constant("{\"type\":\"logoutSuccess\"}");
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String sessionId = session.getId();
+        Long userId = signOut(context);
+
+        if (userId != null) {
+            String token = userToToken.remove(userId);
+            if (token != null) {
+                authTokens.remove(token);
+            }
+        }
+        
+        send(session, LOGOUT_SUCCESS);
+        
+        log.info("User logged out: " + sessionId);
+    }
+}
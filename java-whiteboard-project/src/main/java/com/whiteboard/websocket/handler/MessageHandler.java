@@ -0,0 +1,19 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.websocket.SessionContext;
+
+/**
+ * Handles one inbound message type.
+ * Implementations are registered by type name in a {@link HandlerRegistry}
+ * and must be safe to call from several sessions at once.
+ */
+public interface MessageHandler {
+
+    /**
+     * Handle a parsed message
+     * @param message The message view (only valid for the duration of the call)
+     * @param context State of the session the message came from
+     */
+    void handle(JsonMessage message, SessionContext context) throws Exception;
+}
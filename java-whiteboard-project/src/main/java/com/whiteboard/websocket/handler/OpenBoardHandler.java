@@ -0,0 +1,74 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Board;
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles open board request
+ * Message type: "openBoard"
+ */
+public class OpenBoardHandler implements MessageHandler {
+
+    private static final Log log = Log.get(OpenBoardHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        
+        if (userId == null) {
+            sendError(session, "You must be logged in to open a board");
+            return;
+        }
+        
+        long boardId = message.getInt("boardId");
+        Optional<Board> boardOpt = boardDAO.getBoardById(boardId);
+        
+        if (!boardOpt.isPresent()) {
+            sendError(session, "Board not found");
+            return;
+        }
+        
+        Board board = boardOpt.get();
+        
+        // Verify ownership
+        if (!board.getUserId().equals(userId)) {
+            sendError(session, "Unauthorized: You don't own this board");
+            return;
+        }
+        
+        // Update last accessed
+        boardDAO.updateLastAccessed(boardId);
+        
+        // Set current board for session
+        setSessionBoard(context, boardId);
+        String ownerRoomCode = context.getRoomCode();
+        if (ownerRoomCode != null) {
+            Room ownerRoom = rooms.get(ownerRoomCode);
+            if (ownerRoom != null && ownerRoom.isOwner(session)) {
+                ownerRoom.setBoardMetadata(boardId, board.getTitle(), board.getCanvasData());
+            }
+        }
+        
+        String canvasData = board.getCanvasData();
+        String response = JsonWriter.get()
+            .reserve(canvasData != null ? canvasData.length() + 128 : 128)
+            .beginObject()
+            .field("type", "boardOpened")
+            .field("boardId", board.getId())
+            .field("title", board.getTitle())
+            .field("canvasData", canvasData)
+            .endObject().build();
+        send(session, response);
+        log.info("Board opened: " + boardId + " by user: " + userId);
+    }
+}
@@ -0,0 +1,24 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles ping message (keep-alive)
+ * Message type: "ping"
+ */
+public class PingHandler implements MessageHandler {
+
+    private static final OutboundFrame PONG = OutboundFrame.constant("{\"type\":\"pong\"}");
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        send(session, PONG);
+    }
+}
@@ -0,0 +1,90 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.User;
+import com.whiteboard.util.AuthenticationUtil;
+import com.whiteboard.util.DatabaseConnection;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles user registration request
+ * Message type: "register"
+ */
+public class RegisterHandler implements MessageHandler {
+
+    private static final Log log = Log.get(RegisterHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String username = message.getString("username");
+        String email = message.getString("email");
+        String password = message.getString("password");
+        
+        // Validation
+        if (username == null || username.isEmpty()) {
+            sendAuthError(session, "registerFailed", "Username is required");
+            return;
+        }
+        if (!AuthenticationUtil.isValidUsername(username)) {
+            sendAuthError(session, "registerFailed", "Username must be 3-50 characters (alphanumeric and underscore only)");
+            return;
+        }
+        if (email == null || email.isEmpty()) {
+            sendAuthError(session, "registerFailed", "Email is required");
+            return;
+        }
+        if (!AuthenticationUtil.isValidEmail(email)) {
+            sendAuthError(session, "registerFailed", "Invalid email format");
+            return;
+        }
+        if (password == null || password.isEmpty()) {
+            sendAuthError(session, "registerFailed", "Password is required");
+            return;
+        }
+        if (!AuthenticationUtil.isValidPassword(password)) {
+            sendAuthError(session, "registerFailed", "Password must be at least 6 characters");
+            return;
+        }
+        
+        // Check database connectivity
+        if (!DatabaseConnection.testConnection()) {
+            sendAuthError(session, "registerFailed", "Database connection error. Please try again later.");
+            return;
+        }
+        
+        // Check if username/email already exists
+        if (userDAO.usernameExists(username)) {
+            sendAuthError(session, "registerFailed", "Username already exists");
+            return;
+        }
+        if (userDAO.emailExists(email)) {
+            sendAuthError(session, "registerFailed", "Email already registered");
+            return;
+        }
+        
+        // Hash password and register user
+        String passwordHash = AuthenticationUtil.hashPassword(password);
+        User user = new User(username, email, passwordHash);
+        long userId = userDAO.registerUser(user);
+        
+        if (userId > 0) {
+            String response = JsonWriter.get().beginObject()
+                .field("type", "registerSuccess")
+                .field("userId", userId)
+                .field("username", username)
+                .field("message", "Registration successful. Please log in.")
+                .endObject().build();
+            send(session, response);
+            log.info("User registered successfully: " + username);
+        } else {
+            sendAuthError(session, "registerFailed", "Registration failed. Please try again.");
+        }
+    }
+}
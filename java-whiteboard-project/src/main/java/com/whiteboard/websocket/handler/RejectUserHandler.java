@@ -0,0 +1,54 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles user rejection by room owner
+ * Message type: "rejectUser"
+ */
+public class RejectUserHandler implements MessageHandler {
+
+    private static final Log log = Log.get(RejectUserHandler.class);
+
+    private static final OutboundFrame REJECTED = OutboundFrame.constant("{\"type\":\"rejected\"}");
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session ownerSession = context.getSession();
+        String roomCode = context.getRoomCode();
+        if (roomCode == null) return;
+        
+        Room room = rooms.get(roomCode);
+        if (room == null || !room.isOwner(ownerSession)) return;
+        
+        String targetSessionId = message.getString("sessionId");
+        SessionContext target = findContext(targetSessionId);
+        
+        if (target == null) return;
+        
+        Session targetSession = target.getSession();
+        room.rejectSession(targetSession);
+        target.leaveRoom(roomCode);
+        
+        // Notify the rejected user
+        send(targetSession, REJECTED);
+        
+        // Update owner's pending count
+        String pendingUpdate = JsonWriter.get().beginObject()
+            .field("type", "pendingUpdate")
+            .field("pendingCount", room.getPendingCount())
+            .endObject().build();
+        send(ownerSession, pendingUpdate);
+        
+        log.info("User " + targetSessionId + " rejected from room " + roomCode);
+    }
+}
@@ -0,0 +1,52 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.User;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles session restore request (reconnect with token)
+ * Message type: "restoreSession"
+ */
+public class RestoreSessionHandler implements MessageHandler {
+
+    private static final Log log = Log.get(RestoreSessionHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        String token = message.getString("token");
+
+        if (token == null || token.isEmpty()) {
+            sendSessionRestoreFailed(session, "Session token missing. Please log in again.");
+            return;
+        }
+
+        Long userId = authTokens.get(token);
+        if (userId == null) {
+            sendSessionRestoreFailed(session, "Session expired. Please log in again.");
+            return;
+        }
+
+        Optional<User> userOpt = userDAO.findById(userId);
+        if (!userOpt.isPresent()) {
+            authTokens.remove(token);
+            userToToken.remove(userId);
+            sendSessionRestoreFailed(session, "Account not found. Please log in again.");
+            return;
+        }
+
+        User user = userOpt.get();
+        context.signIn(userId, user.getUsername());
+
+        String response = userSessionMessage("sessionRestored", user, token);
+        send(session, response);
+        log.info("Session restored for user: " + user.getUsername());
+    }
+}
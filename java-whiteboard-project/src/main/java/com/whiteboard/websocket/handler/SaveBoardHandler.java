@@ -0,0 +1,57 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles save board request
+ * Message type: "saveBoard"
+ */
+public class SaveBoardHandler implements MessageHandler {
+
+    private static final Log log = Log.get(SaveBoardHandler.class);
+
+    private static final OutboundFrame BOARD_SAVED = OutboundFrame.constant("{\"type\":\"boardSaved\"}");
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        Long boardId = context.getBoardId();
+        
+        if (userId == null) {
+            sendError(session, "You must be logged in to save a board");
+            return;
+        }
+        
+        if (boardId == null) {
+            sendError(session, "No active board to save");
+            return;
+        }
+        
+        String canvasData = message.getString("canvasData");
+        
+        if (boardDAO.updateBoardData(boardId, canvasData)) {
+            send(session, BOARD_SAVED);
+            log.info("Board saved: " + boardId);
+
+            String roomCode = context.getRoomCode();
+            if (roomCode != null) {
+                Room room = rooms.get(roomCode);
+                if (room != null && room.isOwner(session)) {
+                    Long covers = message.getLong("covers");
+                    room.setCanvasSnapshot(canvasData, covers != null ? covers : -1, context.getSessionId());
+                }
+            }
+        } else {
+            sendError(session, "Failed to save board");
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.DrawingEvent;
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.Log;
+import com.whiteboard.websocket.OutboundFrame;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles shape drawing event
+ * Message type: "shape"
+ */
+public class ShapeHandler implements MessageHandler {
+
+    private static final Log log = Log.get(ShapeHandler.class);
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session senderSession = context.getSession();
+        String roomCode = context.getRoomCode();
+        
+        // Check if user is in a room and approved
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+        if (room != null && !room.isApproved(senderSession)) {
+            return; // Not approved, ignore drawing
+        }
+        
+        // Rooms number every shape for joining members; the database keeps the known tools
+        String tool = message.getString("tool");
+        boolean persist = PERSIST_TO_DATABASE && tool != null &&
+            (tool.equals("line") || tool.equals("rectangle") || tool.equals("circle") || tool.equals("arrow"));
+        DrawingEvent event = room != null || persist ? shapeEvent(message, tool, context) : null;
+        
+        // Save shape event to database if enabled
+        if (persist) {
+            try {
+                persistEvent(event);
+            } catch (Exception e) {
+                log.error("Failed to save shape event to database: " + e.getMessage());
+            }
+        }
+        
+        // Broadcast to room members only (coalesced on the room tick when enabled)
+        if (room != null) {
+            broadcastRoomEvent(room, event, OutboundFrame.of(message.source()));
+        } else {
+            Long boardId = context.getBoardId();
+            if (boardId != null) {
+                broadcastToBoard(boardId, message.source(), senderSession);
+            } else {
+                broadcast(message.source());
+            }
+        }
+    }
+
+    private static DrawingEvent shapeEvent(JsonMessage message, String tool, SessionContext context) {
+        DrawingEvent event = new DrawingEvent();
+        event.setSessionId(context.getSessionId());
+        event.setRoomCode(context.getRoomCode());
+        event.setUsername(message.getString("username"));
+        Long boardId = context.getBoardId();
+        if (boardId != null) {
+            event.setBoardId(boardId);
+        }
+        event.setTool(tool);
+        event.setX1(message.getInt("x1"));
+        event.setY1(message.getInt("y1"));
+        event.setX2(message.getInt("x2"));
+        event.setY2(message.getInt("y2"));
+        event.setColor(message.getString("color"));
+        event.setStrokeWidth(message.getInt("strokeWidth"));
+        event.setLineStyle(message.getString("lineStyle"));
+        if (event.getUsername() == null || event.getUsername().isEmpty()) {
+            String username = context.getUsername();
+            if (username != null) {
+                event.setUsername(username);
+            }
+        }
+        return event;
+    }
+}
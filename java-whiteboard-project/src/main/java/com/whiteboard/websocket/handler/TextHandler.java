@@ -0,0 +1,63 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles text drawing events (labels) and broadcast to room/board peers
+ * Message type: "text"
+ */
+public class TextHandler implements MessageHandler {
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session senderSession = context.getSession();
+        String roomCode = context.getRoomCode();
+        Room room = roomCode != null ? rooms.get(roomCode) : null;
+
+        // Only allow approved users in rooms
+        if (room != null && !room.isApproved(senderSession)) {
+            return;
+        }
+
+        Long boardId = message.getLong("boardId");
+        if (boardId == null) {
+            boardId = context.getBoardId();
+        }
+
+        String username = message.getString("username");
+        if (username == null || username.isEmpty()) {
+            username = context.getUsername();
+        }
+
+        JsonWriter builder = JsonWriter.get().beginObject()
+            .field("type", "text")
+            .field("x", message.getInt("x"))
+            .field("y", message.getInt("y"))
+            .field("text", message.getString("text"))
+            .field("color", message.getString("color"))
+            .field("size", message.getInt("size"));
+        if (username != null) {
+            builder.field("username", username);
+        }
+        builder.field("boardId", boardId)
+               .field("roomCode", roomCode)
+               .endObject();
+
+        String payload = builder.build();
+
+        if (room != null) {
+            broadcastToRoom(room, payload, senderSession);
+        } else if (boardId != null) {
+            broadcastToBoard(boardId, payload, senderSession);
+        } else {
+            broadcast(payload);
+        }
+    }
+}
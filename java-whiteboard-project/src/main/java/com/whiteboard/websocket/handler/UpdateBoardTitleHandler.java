@@ -0,0 +1,61 @@
+package com.whiteboard.websocket.handler;
+
+import com.whiteboard.model.Board;
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import com.whiteboard.util.JsonWriter;
+import com.whiteboard.websocket.SessionContext;
+
+import javax.websocket.Session;
+import java.util.Optional;
+
+import static com.whiteboard.websocket.WhiteboardHub.*;
+
+/**
+ * Handles update board title
+ * Message type: "updateBoardTitle"
+ */
+public class UpdateBoardTitleHandler implements MessageHandler {
+
+    @Override
+    public void handle(JsonMessage message, SessionContext context) {
+        Session session = context.getSession();
+        Long userId = context.getUserId();
+        
+        if (userId == null) {
+            sendError(session, "You must be logged in");
+            return;
+        }
+        
+        long boardId = message.getInt("boardId");
+        String newTitle = message.getString("title");
+        
+        Optional<Board> boardOpt = boardDAO.getBoardById(boardId);
+        if (!boardOpt.isPresent() || !boardOpt.get().getUserId().equals(userId)) {
+            sendError(session, "Board not found or unauthorized");
+            return;
+        }
+        
+        Board board = boardOpt.get();
+        board.setTitle(newTitle);
+        
+        if (boardDAO.updateBoard(board)) {
+            String response = JsonWriter.get().beginObject()
+                .field("type", "boardTitleUpdated")
+                .field("boardId", boardId)
+                .field("title", newTitle)
+                .endObject().build();
+            send(session, response);
+
+            String roomCode = context.getRoomCode();
+            if (roomCode != null) {
+                Room room = rooms.get(roomCode);
+                if (room != null && room.isOwner(session)) {
+                    room.setBoardTitle(newTitle);
+                }
+            }
+        } else {
+            sendError(session, "Failed to update title");
+        }
+    }
+}
@@ -19,6 +19,9 @@
         AUTO_SAVE_INTERVAL: 20000
     };
 
+    // Decoder for binary frames (null on browsers without TextDecoder - stay on text frames)
+    const utf8Decoder = typeof TextDecoder !== 'undefined' ? new TextDecoder('utf-8') : null;
+
     // ========================================
     // State Management
     // ========================================
@@ -88,12 +91,22 @@
         // History
         isReceivingHistory: false,
         historyEventCount: 0,
+        isLoadingSnapshot: false,
+        isReplayingHistory: false,
+        // Canvas events that arrived while a snapshot image was loading: { data, history }
+        deferredEvents: [],
+        // Room draw/shape events this canvas holds, counted in the server's numbering
+        roomEventCount: 0,
         lastReceivedCanvasSnapshot: null,
         shouldRestoreSnapshotAfterHistory: false,
         isApplyingRemoteCanvasState: false,
         
+        // Binary draw protocol - style id -> style definition
+        drawStyles: {},
+
         // Collaboration - Live cursors
         userCursors: {},
+        presenceSeq: 0,
         
         // Chat
         chatMessages: [],
@@ -760,12 +773,53 @@
         });
     }
 
+    // Hold back an event that draws on the canvas while a snapshot is still loading,
+    // so it ends up on top of the snapshot instead of under it
+    function deferWhileSnapshotLoads(data) {
+        if (!state.isLoadingSnapshot) {
+            return false;
+        }
+        state.deferredEvents.push({ data: data, history: state.isReplayingHistory });
+        return true;
+    }
+
+    function replayDeferredEvents() {
+        state.isLoadingSnapshot = false;
+        const events = state.deferredEvents;
+        let applied = 0;
+        // Stops early if one of them is another snapshot, which has to load first
+        while (!state.isLoadingSnapshot && applied < events.length) {
+            const deferred = events[applied++];
+            const wasReplayingHistory = state.isReplayingHistory;
+            state.isReplayingHistory = deferred.history;
+            try {
+                handleServerMessage(deferred.data);
+            } finally {
+                state.isReplayingHistory = wasReplayingHistory;
+            }
+        }
+        events.splice(0, applied);
+    }
+
+    // A live room event is on the canvas now; history events are already counted in 'approved'
+    function countRoomEvent() {
+        if (!state.isReplayingHistory) {
+            state.roomEventCount++;
+        }
+    }
+
+    // How many room events the canvas holds, for snapshots sent to the server (-1: unknown)
+    function snapshotCovers() {
+        return state.isLoadingSnapshot ? -1 : state.roomEventCount;
+    }
+
     function applyBoardCanvasSnapshot(canvasData) {
         if (!canvasData) {
             return false;
         }
 
         state.lastReceivedCanvasSnapshot = canvasData;
+        state.isLoadingSnapshot = true;
         const img = new Image();
         img.onload = () => {
             state.isApplyingRemoteCanvasState = true;
@@ -780,6 +834,7 @@
             } finally {
                 state.isApplyingRemoteCanvasState = false;
             }
+            replayDeferredEvents();
         };
         img.onerror = () => {
             console.error('Failed to load board image');
@@ -787,6 +842,7 @@
             state.ctx.fillRect(0, 0, state.canvas.width, state.canvas.height);
             saveHistoryState();
             state.hasUnsavedChanges = false;
+            replayDeferredEvents();
         };
         img.src = canvasData;
         return true;
@@ -1519,6 +1575,8 @@
     function connectWebSocket() {
         try {
             state.socket = new WebSocket(CONFIG.WS_URL);
+            // Binary frames carry pre-encoded UTF-8 JSON once negotiated
+            state.socket.binaryType = 'arraybuffer';
             
             state.socket.onopen = handleSocketOpen;
             state.socket.onmessage = handleSocketMessage;
@@ -1560,366 +1618,527 @@
 
     function handleSocketMessage(event) {
         try {
-            const data = JSON.parse(event.data);
-            
-            switch (data.type) {
-                // Authentication
-                case 'registerSuccess':
-                    showAuthMessage(elements.registerMessage, 'Registration successful! Please log in.', 'success');
-                    setTimeout(() => {
-                        elements.registerModal.classList.add('hidden');
-                        elements.loginModal.classList.remove('hidden');
-                        elements.registerUsername.value = '';
-                        elements.registerEmail.value = '';
-                        elements.registerPassword.value = '';
-                        elements.registerPassword2.value = '';
-                        elements.loginUsername.focus();
-                    }, 1500);
-                    break;
-                    
-                case 'registerFailed':
-                    showAuthMessage(elements.registerMessage, data.message || 'Registration failed', 'error');
-                    break;
-                    
-                case 'loginSuccess':
-                    state.isLoggedIn = true;
-                    state.userId = data.userId;
-                    state.username = data.username;
-                    state.token = data.token;
-                    state.currentUser = {
-                        id: data.userId,
-                        username: data.username
-                    };
-                    
-                    // Save authentication state to localStorage
-                    localStorage.setItem('whiteboard_userId', data.userId);
-                    localStorage.setItem('whiteboard_username', data.username);
-                    localStorage.setItem('whiteboard_token', data.token);
-                    
-                    // Clear guest session if exists
-                    sessionStorage.removeItem('whiteboard_guest');
-                    
-                    // Hide guest banner
-                    const guestBannerLogin = document.getElementById('guestBanner');
-                    if (guestBannerLogin) {
-                        guestBannerLogin.classList.add('hidden');
-                    }
-                    
-                    // Ensure app container is visible
-                    const appContainerLogin = document.querySelector('.app-container');
-                    if (appContainerLogin) {
-                        appContainerLogin.classList.remove('hidden');
-                    }
-                    
-                    updateAuthUI();
-                    elements.loginModal.classList.add('hidden');
-                    showNotification(`Welcome, ${data.username}!`, 'success');
-                    startAutoSaveInterval();
-                    
-                    // Show boards dashboard
-                    showBoardsDashboard();
-                    break;
+            if (typeof event.data !== 'string') {
+                const bytes = new Uint8Array(event.data);
+                // JSON frames start with '{'; anything else is a binary draw record stream
+                if (bytes.length > 0 && bytes[0] !== 0x7B) {
+                    handleBinaryDrawFrame(bytes);
+                    return;
+                }
+            }
+            const raw = typeof event.data === 'string' ? event.data : utf8Decoder.decode(event.data);
+            const data = JSON.parse(raw);
+            handleServerMessage(data);
+        } catch (error) {
+            console.error('Error parsing message:', error);
+        }
+    }
 
-                case 'sessionRestored':
-                    state.isLoggedIn = true;
-                    state.userId = data.userId;
-                    state.username = data.username;
-                    state.token = data.token || state.token;
-                    state.currentUser = {
-                        id: data.userId,
-                        username: data.username
-                    };
-
-                    // Refresh auth UI and dashboard
-                    updateAuthUI();
-                    startAutoSaveInterval();
-                    showBoardsDashboard();
-                    requestBoardsList();
-                    break;
+    function handleServerMessage(data) {
+        switch (data.type) {
+            // Authentication
+            case 'registerSuccess':
+                showAuthMessage(elements.registerMessage, 'Registration successful! Please log in.', 'success');
+                setTimeout(() => {
+                    elements.registerModal.classList.add('hidden');
+                    elements.loginModal.classList.remove('hidden');
+                    elements.registerUsername.value = '';
+                    elements.registerEmail.value = '';
+                    elements.registerPassword.value = '';
+                    elements.registerPassword2.value = '';
+                    elements.loginUsername.focus();
+                }, 1500);
+                break;
+                
+            case 'registerFailed':
+                showAuthMessage(elements.registerMessage, data.message || 'Registration failed', 'error');
+                break;
+                
+            case 'loginSuccess':
+                state.isLoggedIn = true;
+                state.userId = data.userId;
+                state.username = data.username;
+                state.token = data.token;
+                state.currentUser = {
+                    id: data.userId,
+                    username: data.username
+                };
+                
+                // Save authentication state to localStorage
+                localStorage.setItem('whiteboard_userId', data.userId);
+                localStorage.setItem('whiteboard_username', data.username);
+                localStorage.setItem('whiteboard_token', data.token);
+                
+                // Clear guest session if exists
+                sessionStorage.removeItem('whiteboard_guest');
+                
+                // Hide guest banner
+                const guestBannerLogin = document.getElementById('guestBanner');
+                if (guestBannerLogin) {
+                    guestBannerLogin.classList.add('hidden');
+                }
+                
+                // Ensure app container is visible
+                const appContainerLogin = document.querySelector('.app-container');
+                if (appContainerLogin) {
+                    appContainerLogin.classList.remove('hidden');
+                }
+                
+                updateAuthUI();
+                elements.loginModal.classList.add('hidden');
+                showNotification(`Welcome, ${data.username}!`, 'success');
+                startAutoSaveInterval();
+                
+                // Show boards dashboard
+                showBoardsDashboard();
+                break;
 
-                case 'sessionRestoreFailed':
-                    clearStoredAuth();
-                    
-                    // Hide app container and show welcome modal
-                    const appContainerRestore = document.querySelector('.app-container');
-                    if (appContainerRestore) {
-                        appContainerRestore.classList.add('hidden');
-                    }
-                    const welcomeModalRestore = document.getElementById('welcomeModal');
-                    if (welcomeModalRestore) {
-                        welcomeModalRestore.classList.remove('hidden');
-                    }
-                    
-                    showNotification(data.message || 'Session expired. Please log in again.', 'error');
-                    break;
-                    
-                case 'loginFailed':
-                    showAuthMessage(elements.loginMessage, data.message || 'Login failed', 'error');
-                    break;
-                    
-                case 'logoutSuccess':
-                    // Logout already handled in handleLogout(), this is just server confirmation
-                    // Don't show duplicate notification since handleLogout() already showed one
-                    console.log('Logout confirmed by server');
-                    break;
+            case 'sessionRestored':
+                state.isLoggedIn = true;
+                state.userId = data.userId;
+                state.username = data.username;
+                state.token = data.token || state.token;
+                state.currentUser = {
+                    id: data.userId,
+                    username: data.username
+                };
+
+                // Refresh auth UI and dashboard
+                updateAuthUI();
+                startAutoSaveInterval();
+                showBoardsDashboard();
+                requestBoardsList();
+                break;
+
+            case 'sessionRestoreFailed':
+                clearStoredAuth();
                 
-                case 'guestModeActivated':
-                    console.log('Guest mode activated:', data);
-                    showNotification('Guest mode activated. Work will not be saved.', 'info');
-                    break;
+                // Hide app container and show welcome modal
+                const appContainerRestore = document.querySelector('.app-container');
+                if (appContainerRestore) {
+                    appContainerRestore.classList.add('hidden');
+                }
+                const welcomeModalRestore = document.getElementById('welcomeModal');
+                if (welcomeModalRestore) {
+                    welcomeModalRestore.classList.remove('hidden');
+                }
                 
-                // Board Management
-                case 'boardsList':
-                    renderBoards(data.boards);
-                    break;
-                    
-                case 'boardCreated':
-                    showNotification('Board created successfully!', 'success');
-                    requestBoardsList();
-                    if (data.boardId) {
-                        // Optionally open the newly created board
-                        openBoard(data.boardId);
-                    }
-                    break;
-                    
-                case 'boardOpened':
-                    console.log('Board opened:', data);
-                    if (data.boardId) {
-                        state.currentBoardId = data.boardId;
-                    }
-                    if (data.title) {
-                        state.currentBoardTitle = data.title;
-                    }
-                    const boardImage = data.canvasData || data.data;
-                    if (!applyBoardCanvasSnapshot(boardImage)) {
-                        // Clear canvas for new board
-                        state.ctx.fillStyle = '#FFFFFF';
-                        state.ctx.fillRect(0, 0, state.canvas.width, state.canvas.height);
-                        saveHistoryState();
-                    }
-                    if (state.isRoomOwner) {
-                        state.roomBoardTitle = state.currentBoardTitle;
-                    }
-                    if (state.pendingRoomCreation) {
-                        finalizePendingRoomCreation();
-                    }
-                    state.hasUnsavedChanges = false;
-                    hideBoardsDashboard();
-                    updateRoomUI();
-                    showNotification('Board opened', 'success');
-                    break;
+                showNotification(data.message || 'Session expired. Please log in again.', 'error');
+                break;
+                
+            case 'loginFailed':
+                showAuthMessage(elements.loginMessage, data.message || 'Login failed', 'error');
+                break;
+                
+            case 'logoutSuccess':
+                // Logout already handled in handleLogout(), this is just server confirmation
+                // Don't show duplicate notification since handleLogout() already showed one
+                console.log('Logout confirmed by server');
+                break;
+            
+            case 'guestModeActivated':
+                console.log('Guest mode activated:', data);
+                showNotification('Guest mode activated. Work will not be saved.', 'info');
+                break;
+            
+            // Board Management
+            case 'boardsList':
+                renderBoards(data.boards);
+                break;
+                
+            case 'boardCreated':
+                showNotification('Board created successfully!', 'success');
+                requestBoardsList();
+                if (data.boardId) {
+                    // Optionally open the newly created board
+                    openBoard(data.boardId);
+                }
+                break;
+                
+            case 'boardOpened':
+                console.log('Board opened:', data);
+                if (data.boardId) {
+                    state.currentBoardId = data.boardId;
+                }
+                if (data.title) {
+                    state.currentBoardTitle = data.title;
+                }
+                const boardImage = data.canvasData || data.data;
+                if (!applyBoardCanvasSnapshot(boardImage)) {
+                    // Clear canvas for new board
+                    state.ctx.fillStyle = '#FFFFFF';
+                    state.ctx.fillRect(0, 0, state.canvas.width, state.canvas.height);
+                    saveHistoryState();
+                }
+                if (state.isRoomOwner) {
+                    state.roomBoardTitle = state.currentBoardTitle;
+                }
+                if (state.pendingRoomCreation) {
+                    finalizePendingRoomCreation();
+                }
+                state.hasUnsavedChanges = false;
+                hideBoardsDashboard();
+                updateRoomUI();
+                showNotification('Board opened', 'success');
+                break;
 
-                case 'boardSaved':
-                    updateSaveStatus('saved');
-                    state.hasUnsavedChanges = false;
-                    if (state.awaitingRoomSaveForRoom && state.queuedRoomBoardId) {
-                        const queuedBoardId = state.queuedRoomBoardId;
-                        const queuedOptions = state.queuedRoomOptions || {};
-                        state.awaitingRoomSaveForRoom = false;
-                        state.queuedRoomBoardId = null;
-                        state.queuedRoomOptions = null;
-                        const nextOptions = Object.assign({}, queuedOptions, { skipSync: true });
-                        sendCreateRoomRequest(queuedBoardId, nextOptions);
-                    }
-                    break;
-                    
-                case 'boardUpdated':
-                    showNotification('Board updated successfully!', 'success');
-                    requestBoardsList();
-                    break;
+            case 'boardSaved':
+                updateSaveStatus('saved');
+                state.hasUnsavedChanges = false;
+                if (state.awaitingRoomSaveForRoom && state.queuedRoomBoardId) {
+                    const queuedBoardId = state.queuedRoomBoardId;
+                    const queuedOptions = state.queuedRoomOptions || {};
+                    state.awaitingRoomSaveForRoom = false;
+                    state.queuedRoomBoardId = null;
+                    state.queuedRoomOptions = null;
+                    const nextOptions = Object.assign({}, queuedOptions, { skipSync: true });
+                    sendCreateRoomRequest(queuedBoardId, nextOptions);
+                }
+                break;
+                
+            case 'boardUpdated':
+                showNotification('Board updated successfully!', 'success');
+                requestBoardsList();
+                break;
 
-                case 'boardTitleUpdated':
-                    if (data.boardId && state.currentBoardId && Number(data.boardId) === Number(state.currentBoardId)) {
-                        if (data.title) {
-                            state.currentBoardTitle = data.title;
-                            if (state.isInRoom && state.isApproved) {
-                                state.roomBoardTitle = data.title;
-                            }
-                            updateRoomUI();
+            case 'boardTitleUpdated':
+                if (data.boardId && state.currentBoardId && Number(data.boardId) === Number(state.currentBoardId)) {
+                    if (data.title) {
+                        state.currentBoardTitle = data.title;
+                        if (state.isInRoom && state.isApproved) {
+                            state.roomBoardTitle = data.title;
                         }
+                        updateRoomUI();
                     }
-                    requestBoardsList();
-                    showNotification('Board title updated', 'success');
-                    break;
-                    
-                case 'boardDeleted':
-                    showNotification('Board deleted', 'success');
-                    requestBoardsList();
-                    break;
-                    
-                case 'boardDuplicated':
-                    showNotification('Board duplicated successfully!', 'success');
-                    requestBoardsList();
-                    break;
+                }
+                requestBoardsList();
+                showNotification('Board title updated', 'success');
+                break;
+                
+            case 'boardDeleted':
+                showNotification('Board deleted', 'success');
+                requestBoardsList();
+                break;
+                
+            case 'boardDuplicated':
+                showNotification('Board duplicated successfully!', 'success');
+                requestBoardsList();
+                break;
 
-                case 'welcome':
-                    state.sessionId = data.sessionId;
-                    elements.sessionId.textContent = data.sessionId.substring(0, 8) + '...';
-                    break;
-                    
-                case 'draw':
-                    if (state.isReceivingHistory) {
-                        state.historyEventCount++;
-                    }
-                    drawRemoteStroke(data);
-                    break;
-                    
-                case 'shape':
-                    if (state.isReceivingHistory) {
-                        state.historyEventCount++;
-                    }
-                    drawRemoteShape(data);
-                    break;
-                    
-                case 'text':
-                    if (state.isReceivingHistory) {
-                        state.historyEventCount++;
-                    }
-                    if (!matchesCurrentBoard(data.boardId)) {
-                        break;
-                    }
-                    state.ctx.fillStyle = data.color;
-                    state.ctx.font = data.size + 'px Arial, sans-serif';
-                    state.ctx.fillText(data.text, data.x, data.y);
-                    break;
-                    
-                case 'chat':
-                    addChatMessage(data);
+            case 'welcome':
+                state.sessionId = data.sessionId;
+                elements.sessionId.textContent = data.sessionId.substring(0, 8) + '...';
+                sendClientHello(data.capabilities || []);
+                break;
+                
+            case 'draw':
+                if (deferWhileSnapshotLoads(data)) {
                     break;
-                    
-                case 'cursor':
-                    updateUserCursor(data);
+                }
+                countRoomEvent();
+                handleRemoteDraw(data);
+                break;
+                
+            case 'shape':
+                if (deferWhileSnapshotLoads(data)) {
                     break;
-                    
-                case 'clear':
-                    if (state.isReceivingHistory) {
-                        state.historyEventCount++;
-                    }
-                    const sameBoard = !data.boardId || !state.currentBoardId || Number(data.boardId) === Number(state.currentBoardId);
-                    const sameRoom = !data.roomCode || !state.roomCode || data.roomCode === state.roomCode;
-                    if (sameBoard && sameRoom) {
-                        clearCanvasLocal();
-                        saveHistoryState();
-                        showNotification('Canvas cleared', 'info');
-                    }
+                }
+                countRoomEvent();
+                if (state.isReceivingHistory) {
+                    state.historyEventCount++;
+                }
+                drawRemoteShape(data);
+                break;
+                
+            case 'text':
+                if (deferWhileSnapshotLoads(data)) {
                     break;
-                    
-                case 'userCount':
-                    updateUserCount(data.count);
+                }
+                if (state.isReceivingHistory) {
+                    state.historyEventCount++;
+                }
+                if (!matchesCurrentBoard(data.boardId)) {
                     break;
-                    
-                case 'historyStart':
-                    state.isReceivingHistory = true;
-                    state.historyEventCount = 0;
-                    // Clear canvas before loading history
-                    state.ctx.fillStyle = '#FFFFFF';
-                    state.ctx.fillRect(0, 0, state.canvas.width, state.canvas.height);
+                }
+                state.ctx.fillStyle = data.color;
+                state.ctx.font = data.size + 'px Arial, sans-serif';
+                state.ctx.fillText(data.text, data.x, data.y);
+                break;
+                
+            case 'chat':
+                addChatMessage(data);
+                break;
+                
+            case 'cursor':
+                updateUserCursor(data);
+                break;
+                
+            case 'presence':
+                handlePresence(data);
+                break;
+                
+            case 'clear':
+                if (deferWhileSnapshotLoads(data)) {
                     break;
-                    
-                case 'historyEnd':
-                    state.isReceivingHistory = false;
-                    if (state.shouldRestoreSnapshotAfterHistory && state.historyEventCount === 0 && state.lastReceivedCanvasSnapshot) {
-                        applyBoardCanvasSnapshot(state.lastReceivedCanvasSnapshot);
-                    }
-                    if (state.historyEventCount > 0) {
-                        state.lastReceivedCanvasSnapshot = null;
-                    }
+                }
+                if (state.isReceivingHistory) {
+                    state.historyEventCount++;
+                }
+                const sameBoard = !data.boardId || !state.currentBoardId || Number(data.boardId) === Number(state.currentBoardId);
+                const sameRoom = !data.roomCode || !state.roomCode || data.roomCode === state.roomCode;
+                if (sameBoard && sameRoom) {
+                    clearCanvasLocal();
+                    saveHistoryState();
+                    showNotification('Canvas cleared', 'info');
+                }
+                break;
+                
+            case 'userCount':
+                updateUserCount(data.count);
+                break;
+                
+            case 'historyStart':
+                state.isReceivingHistory = true;
+                state.historyEventCount = 0;
+                if (data.base === 'snapshot') {
+                    // History only holds events newer than the snapshot from 'approved'
                     state.shouldRestoreSnapshotAfterHistory = false;
-                    state.historyEventCount = 0;
-                    showNotification('Canvas history loaded', 'success');
                     break;
+                }
+                // Clear canvas before loading history
+                state.ctx.fillStyle = '#FFFFFF';
+                state.ctx.fillRect(0, 0, state.canvas.width, state.canvas.height);
+                break;
+                
+            case 'historyEnd':
+                state.isReceivingHistory = false;
+                if (data.canvasData) {
+                    // No history to replay; the room's canvas came instead
+                    state.shouldRestoreSnapshotAfterHistory = false;
+                    applyBoardCanvasSnapshot(data.canvasData);
+                }
+                if (state.shouldRestoreSnapshotAfterHistory && state.historyEventCount === 0 &&
+                    !state.isLoadingSnapshot && state.lastReceivedCanvasSnapshot) {
+                    applyBoardCanvasSnapshot(state.lastReceivedCanvasSnapshot);
+                }
+                if (state.historyEventCount > 0) {
+                    state.lastReceivedCanvasSnapshot = null;
+                }
+                state.shouldRestoreSnapshotAfterHistory = false;
+                state.historyEventCount = 0;
+                showNotification('Canvas history loaded', 'success');
+                break;
 
-                case 'canvasState':
-                    if (!matchesCurrentBoard(data.boardId)) {
-                        break;
-                    }
-                    if (data.canvasData) {
-                        applyBoardCanvasSnapshot(data.canvasData);
-                    }
-                    break;
-                    
-                case 'pong':
-                    break;
-                    
-                // Room events
-                case 'roomCreated':
-                    handleRoomCreated(data);
-                    break;
-                    
-                case 'waitingApproval':
-                    handleWaitingApproval(data);
-                    break;
-                    
-                case 'approved':
-                    handleApproved(data);
-                    break;
-                    
-                case 'rejected':
-                    handleRejected();
-                    break;
-                    
-                case 'joinRequest':
-                    handleJoinRequest(data);
-                    break;
-                    
-                case 'pendingUpdate':
-                    updatePendingCount(data.pendingCount);
-                    break;
-                    
-                case 'userJoined':
-                    showNotification('A user joined the room', 'info');
-                    updateUserCount(data.userCount);
-                    break;
-                    
-                case 'userLeft':
-                    showNotification('A user left the room', 'info');
-                    updateUserCount(data.userCount);
-                    break;
-                    
-                case 'roomClosed':
-                    handleRoomClosed(data);
-                    break;
-                    
-                case 'leftRoom': {
-                    const wasOwner = state.isRoomOwner;
-                    const wasInRoom = state.isInRoom;
-                    resetRoomState();
-                    if (wasInRoom) {
-                        showBoardsDashboard();
-                    }
-                    showNotification('You left the room', 'info');
+            case 'canvasState':
+                if (!matchesCurrentBoard(data.boardId) || deferWhileSnapshotLoads(data)) {
                     break;
                 }
-                    
-                case 'error':
-                    // Check if it's a save-related error
-                    if (data.message && data.message.toLowerCase().includes('save')) {
-                        updateSaveStatus('error');
-                    }
-                    // Handle auth errors in modals
-                    if (!elements.loginModal.classList.contains('hidden')) {
-                        showAuthMessage(elements.loginMessage, data.message, 'error');
-                    } else if (!elements.registerModal.classList.contains('hidden')) {
-                        showAuthMessage(elements.registerMessage, data.message, 'error');
-                    } else {
-                        showNotification(data.message, 'error');
-                    }
-                    if (state.awaitingRoomSaveForRoom && state.queuedRoomBoardId) {
-                        const queuedBoardId = state.queuedRoomBoardId;
-                        const queuedOptions = state.queuedRoomOptions || {};
-                        state.awaitingRoomSaveForRoom = false;
-                        state.queuedRoomBoardId = null;
-                        state.queuedRoomOptions = null;
-                        const retryOptions = Object.assign({}, queuedOptions, { skipSync: true });
-                        sendCreateRoomRequest(queuedBoardId, retryOptions);
-                    }
-                    break;
-                    
-                default:
-                    console.log('Unknown message type:', data.type);
+                if (data.canvasData) {
+                    applyBoardCanvasSnapshot(data.canvasData);
+                }
+                break;
+                
+            case 'pong':
+                break;
+                
+            // Room events
+            case 'roomCreated':
+                handleRoomCreated(data);
+                break;
+                
+            case 'waitingApproval':
+                handleWaitingApproval(data);
+                break;
+                
+            case 'approved':
+                handleApproved(data);
+                break;
+                
+            case 'rejected':
+                handleRejected();
+                break;
+                
+            case 'joinRequest':
+                handleJoinRequest(data);
+                break;
+                
+            case 'pendingUpdate':
+                updatePendingCount(data.pendingCount);
+                break;
+                
+            case 'userJoined':
+                showNotification('A user joined the room', 'info');
+                updateUserCount(data.userCount);
+                break;
+                
+            case 'userLeft':
+                showNotification('A user left the room', 'info');
+                updateUserCount(data.userCount);
+                break;
+                
+            case 'roomClosed':
+                handleRoomClosed(data);
+                break;
+                
+            case 'leftRoom': {
+                const wasOwner = state.isRoomOwner;
+                const wasInRoom = state.isInRoom;
+                resetRoomState();
+                if (wasInRoom) {
+                    showBoardsDashboard();
+                }
+                showNotification('You left the room', 'info');
+                break;
+            }
+                
+            case 'error':
+                // Check if it's a save-related error
+                if (data.message && data.message.toLowerCase().includes('save')) {
+                    updateSaveStatus('error');
+                }
+                // Handle auth errors in modals
+                if (!elements.loginModal.classList.contains('hidden')) {
+                    showAuthMessage(elements.loginMessage, data.message, 'error');
+                } else if (!elements.registerModal.classList.contains('hidden')) {
+                    showAuthMessage(elements.registerMessage, data.message, 'error');
+                } else {
+                    showNotification(data.message, 'error');
+                }
+                if (state.awaitingRoomSaveForRoom && state.queuedRoomBoardId) {
+                    const queuedBoardId = state.queuedRoomBoardId;
+                    const queuedOptions = state.queuedRoomOptions || {};
+                    state.awaitingRoomSaveForRoom = false;
+                    state.queuedRoomBoardId = null;
+                    state.queuedRoomOptions = null;
+                    const retryOptions = Object.assign({}, queuedOptions, { skipSync: true });
+                    sendCreateRoomRequest(queuedBoardId, retryOptions);
+                }
+                break;
+                
+            case 'batch':
+                // Events coalesced by the server's room tick, in original order
+                data.events.forEach(handleServerMessage);
+                break;
+
+            case 'rateLimited':
+                // The server dropped messages sent faster than its per-type limit
+                console.warn('Rate limited: ' + data.messageType + ', retry in ' + data.retryAfterMillis + ' ms');
+                if (data.messageType !== 'cursor' && data.messageType !== 'ping') {
+                    showNotification('Sending too fast - some ' + data.messageType + ' messages were dropped', 'error');
+                }
+                break;
+
+            case 'historyChunk':
+                // A slice of the history replay; sent/total report progress
+                state.isReplayingHistory = true;
+                try {
+                    data.events.forEach(handleServerMessage);
+                } finally {
+                    state.isReplayingHistory = false;
+                }
+                if (data.sent < data.total) {
+                    console.log('Canvas history: ' + data.sent + '/' + data.total + ' events');
+                }
+                break;
+                
+            default:
+                console.log('Unknown message type:', data.type);
+        }
+    }
+
+    function sendClientHello(capabilities) {
+        if (!state.socket || state.socket.readyState !== WebSocket.OPEN) return;
+        state.drawStyles = {};
+        state.socket.send(JSON.stringify({
+            type: 'clientHello',
+            binaryFrames: utf8Decoder !== null && capabilities.indexOf('binaryFrames') !== -1,
+            binaryDraw: utf8Decoder !== null && capabilities.indexOf('binaryDraw') !== -1
+        }));
+    }
+
+    function handleRemoteDraw(data) {
+        if (state.isReceivingHistory) {
+            state.historyEventCount++;
+        }
+        drawRemoteStroke(data);
+    }
+
+    // Binary draw protocol: a sequence of records, each starting with an opcode.
+    // STYLE (0x01) defines an interned style id, SEGMENT (0x02) draws with one.
+    function handleBinaryDrawFrame(bytes) {
+        let pos = 0;
+
+        function readVarint() {
+            let result = 0;
+            let scale = 1;
+            let b;
+            do {
+                b = bytes[pos++];
+                result += (b & 0x7F) * scale;
+                scale *= 128;
+            } while (b & 0x80);
+            return result;
+        }
+
+        function readZigZag() {
+            const n = readVarint();
+            return (n % 2 === 0) ? n / 2 : -(n + 1) / 2;
+        }
+
+        function readString() {
+            const length = readVarint();
+            const value = utf8Decoder.decode(bytes.subarray(pos, pos + length));
+            pos += length;
+            return value;
+        }
+
+        while (pos < bytes.length) {
+            const opcode = bytes[pos++];
+            if (opcode === 0x01) {
+                const id = readVarint();
+                const color = readString();
+                const tool = readString();
+                const strokeWidth = readVarint();
+                const lineStyle = readString();
+                const sessionId = readString();
+                const username = readString();
+                const boardId = readVarint();
+                state.drawStyles[id] = {
+                    color: color,
+                    tool: tool,
+                    strokeWidth: strokeWidth,
+                    lineStyle: lineStyle,
+                    sessionId: sessionId,
+                    username: username,
+                    boardId: boardId === 0 ? null : boardId - 1
+                };
+            } else if (opcode === 0x02) {
+                const style = state.drawStyles[readVarint()];
+                const x1 = readZigZag();
+                const y1 = readZigZag();
+                const x2 = x1 + readZigZag();
+                const y2 = y1 + readZigZag();
+                if (!style) {
+                    continue;
+                }
+                handleServerMessage({
+                    type: 'draw',
+                    x1: x1,
+                    y1: y1,
+                    x2: x2,
+                    y2: y2,
+                    color: style.color,
+                    tool: style.tool,
+                    strokeWidth: style.strokeWidth,
+                    lineStyle: style.lineStyle,
+                    sessionId: style.sessionId,
+                    username: style.username,
+                    boardId: style.boardId
+                });
+            } else {
+                console.warn('Unknown binary opcode:', opcode);
+                return;
             }
-        } catch (error) {
-            console.error('Error parsing message:', error);
         }
     }
 
@@ -2109,6 +2328,42 @@
         });
     }
 
+    // Presence updates carry only cursors that moved and members that left; a
+    // "full" snapshot (sent on join) lists every cursor and replaces what we have.
+    // Updates numbered at or below the latest snapshot are already part of it.
+    function handlePresence(data) {
+        const seq = data.seq || 0;
+        if (data.full) {
+            state.presenceSeq = seq;
+        } else if (seq <= state.presenceSeq) {
+            return;
+        } else {
+            state.presenceSeq = seq;
+        }
+        const present = {};
+        (data.cursors || []).forEach((cursor) => {
+            present[cursor.sessionId] = true;
+            if (cursor.sessionId === state.sessionId) {
+                return;
+            }
+            const last = state.userCursors[cursor.sessionId];
+            if (!last || last.x !== cursor.x || last.y !== cursor.y) {
+                state.userCursors[cursor.sessionId] = { x: cursor.x, y: cursor.y };
+                updateUserCursor(cursor);
+            }
+        });
+        const gone = data.full
+            ? Object.keys(state.userCursors).filter((sessionId) => !present[sessionId])
+            : (data.removed || []);
+        gone.forEach((sessionId) => {
+            delete state.userCursors[sessionId];
+            const cursorEl = document.getElementById('cursor-' + sessionId);
+            if (cursorEl) {
+                cursorEl.remove();
+            }
+        });
+    }
+
     function updateUserCursor(data) {
         const cursorId = 'cursor-' + data.sessionId;
         let cursorEl = document.getElementById(cursorId);
@@ -2166,6 +2421,8 @@
     // ========================================
     function handleRoomCreated(data) {
         state.roomCode = data.roomCode;
+        // The room starts from the canvas as it is now
+        state.roomEventCount = 0;
         state.isRoomOwner = true;
         state.isInRoom = true;
         state.isApproved = true;
@@ -2211,8 +2468,9 @@
             ? state.username
             : (elements.joinUsername.value.trim() || 'Anonymous');
         
-        if (roomCode.length !== 6) {
-            showNotification('Please enter a valid 6-character room code', 'error');
+        // 6 characters, after a node prefix such as "NODE1-" on clustered servers
+        if (roomCode.length < 6) {
+            showNotification('Please enter a valid room code', 'error');
             return;
         }
         
@@ -2248,6 +2506,8 @@
         if (data.roomCode) {
             state.roomCode = data.roomCode;
         }
+        // The room's first eventCount events reach this client in its canvas and history
+        state.roomEventCount = data.eventCount || 0;
         if (typeof data.boardId === 'number') {
             state.currentBoardId = data.boardId;
         }
@@ -3110,6 +3370,7 @@
             type: 'canvasState',
             action: action,
             canvasData: canvasData,
+            covers: snapshotCovers(),
             roomCode: roomCode,
             boardId: boardId
         };
@@ -3228,7 +3489,8 @@
         const canvasData = state.canvas.toDataURL('image/jpeg', 0.7);
         state.socket.send(JSON.stringify({
             type: 'saveBoard',
-            canvasData: canvasData
+            canvasData: canvasData,
+            covers: snapshotCovers()
         }));
 
         state.lastAutoSaveAt = Date.now();
@@ -3264,7 +3526,8 @@
         const canvasData = state.canvas.toDataURL('image/jpeg', 0.7);
         sendMessage({
             type: 'saveBoard',
-            canvasData
+            canvasData,
+            covers: snapshotCovers()
         });
         state.lastRoomShareSyncAt = Date.now();
         state.lastAutoSaveAt = Date.now();
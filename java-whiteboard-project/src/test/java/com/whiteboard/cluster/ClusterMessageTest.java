@@ -0,0 +1,64 @@
+package com.whiteboard.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClusterMessageTest {
+
+    @Test
+    void roundTripsEveryField() throws IOException {
+        ClusterMessage sent = new ClusterMessage("node-1", ClusterMessage.Scope.BOARD, "1234",
+                                                 "{\"type\":\"text\",\"text\":\"héllo 👋\"}", true);
+
+        ClusterMessage received = ClusterMessage.decode(sent.encode());
+
+        assertEquals("node-1", received.getOrigin());
+        assertEquals(ClusterMessage.Scope.BOARD, received.getScope());
+        assertEquals("1234", received.getKey());
+        assertEquals(sent.getPayload(), received.getPayload());
+        assertTrue(received.isCritical());
+    }
+
+    @Test
+    void roundTripsMessagesWithoutKeyOrFlags() throws IOException {
+        ClusterMessage sent = new ClusterMessage("n", ClusterMessage.Scope.ALL, null, "", false);
+
+        ClusterMessage received = ClusterMessage.decode(sent.encode());
+
+        assertEquals(ClusterMessage.Scope.ALL, received.getScope());
+        assertEquals("", received.getKey());
+        assertEquals("", received.getPayload());
+        assertFalse(received.isCritical());
+    }
+
+    @Test
+    void rejectsUnknownVersion() {
+        byte[] data = new ClusterMessage("n", ClusterMessage.Scope.ALL, null, "{}", true).encode();
+        data[0] = 99;
+
+        assertThrows(IOException.class, () -> ClusterMessage.decode(data));
+    }
+
+    @Test
+    void rejectsUnknownScope() {
+        byte[] data = new ClusterMessage("n", ClusterMessage.Scope.ALL, null, "{}", true).encode();
+        data[1] = 7;
+
+        assertThrows(IOException.class, () -> ClusterMessage.decode(data));
+    }
+
+    @Test
+    void rejectsTruncatedMessages() {
+        byte[] data = new ClusterMessage("n", ClusterMessage.Scope.BOARD, "1", "{\"type\":\"draw\"}", true).encode();
+
+        assertThrows(IOException.class, () -> ClusterMessage.decode(Arrays.copyOf(data, data.length - 1)));
+        assertThrows(IOException.class, () -> ClusterMessage.decode(Arrays.copyOf(data, 2)));
+    }
+}
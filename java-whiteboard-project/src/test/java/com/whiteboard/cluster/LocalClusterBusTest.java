@@ -0,0 +1,85 @@
+package com.whiteboard.cluster;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LocalClusterBusTest {
+
+    private final LocalClusterBus.Network network = new LocalClusterBus.Network();
+    private final List<ClusterMessage> receivedByA = new CopyOnWriteArrayList<>();
+    private final List<ClusterMessage> receivedByB = new CopyOnWriteArrayList<>();
+    private LocalClusterBus nodeA;
+    private LocalClusterBus nodeB;
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = network.join("a");
+        nodeB = network.join("b");
+        nodeA.start(receivedByA::add);
+        nodeB.start(receivedByB::add);
+    }
+
+    @AfterEach
+    void closeNodes() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void deliversToTheOtherNodeButNotBackToTheSender() {
+        ClusterMessage message = board(nodeA, "{\"type\":\"draw\"}");
+        nodeA.publish(message);
+
+        assertEquals(1, receivedByB.size());
+        assertSame(message, receivedByB.get(0));
+        assertTrue(receivedByA.isEmpty());
+    }
+
+    @Test
+    void deliversInPublishOrderInBothDirections() {
+        nodeA.publish(board(nodeA, "1"));
+        nodeB.publish(board(nodeB, "2"));
+        nodeA.publish(board(nodeA, "3"));
+
+        assertEquals(List.of("1", "3"), payloads(receivedByB));
+        assertEquals(List.of("2"), payloads(receivedByA));
+    }
+
+    @Test
+    void closedNodeStopsReceiving() {
+        nodeB.close();
+        nodeA.publish(board(nodeA, "after close"));
+
+        assertTrue(receivedByB.isEmpty());
+    }
+
+    @Test
+    void receiverFailureDoesNotReachThePublisher() {
+        LocalClusterBus failing = network.join("c");
+        failing.start(message -> {
+            throw new IllegalStateException("boom");
+        });
+        try {
+            nodeA.publish(board(nodeA, "x"));
+            assertEquals(List.of("x"), payloads(receivedByB));
+        } finally {
+            failing.close();
+        }
+    }
+
+    private static ClusterMessage board(ClusterBus origin, String payload) {
+        return new ClusterMessage(origin.getNodeId(), ClusterMessage.Scope.BOARD, "42", payload, true);
+    }
+
+    private static List<String> payloads(List<ClusterMessage> messages) {
+        return messages.stream().map(ClusterMessage::getPayload).toList();
+    }
+}
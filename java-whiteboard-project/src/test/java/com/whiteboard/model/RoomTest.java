@@ -0,0 +1,92 @@
+package com.whiteboard.model;
+
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RoomTest {
+
+    private final Room room = new Room(session("owner"));
+
+    @Test
+    void newRoomReplaysFromBlank() {
+        room.recordEvent(event("a", 1));
+        room.recordEvent(event("b", 2));
+
+        Room.CanvasReplay replay = room.getCanvasReplay();
+        assertNotNull(replay);
+        assertNull(replay.getCanvas());
+        assertEquals(List.of(1, 2), xs(replay));
+        assertEquals(2, replay.getEventCount());
+    }
+
+    @Test
+    void loadedBoardCoversEventsBeforeIt() {
+        room.recordEvent(event("a", 1));
+        room.setBoardMetadata(7L, "Board", "saved");
+        room.recordEvent(event("a", 2));
+
+        Room.CanvasReplay replay = room.getCanvasReplay();
+        assertEquals("saved", replay.getCanvas());
+        assertEquals(List.of(2), xs(replay));
+    }
+
+    @Test
+    void snapshotReplaysOnlyWhatItDoesNotHold() {
+        room.recordEvent(event("a", 1));
+        room.recordEvent(event("b", 2));
+        room.recordEvent(event("a", 3));
+        room.recordEvent(event("b", 4));
+        // a had received two events; its own third one was on its canvas already
+        room.setCanvasSnapshot("live", 2, "a");
+        room.recordEvent(event("a", 5));
+
+        Room.CanvasReplay replay = room.getCanvasReplay();
+        assertEquals("live", replay.getCanvas());
+        assertEquals(List.of(4, 5), xs(replay));
+        assertEquals(5, replay.getEventCount());
+    }
+
+    @Test
+    void snapshotWithoutCoverageFallsBack() {
+        room.recordEvent(event("a", 1));
+        room.setCanvasSnapshot("live", -1, "a");
+        assertNull(room.getCanvasReplay());
+
+        room.clearCanvas();
+        assertEquals(0, room.getCanvasReplay().getEvents().size());
+    }
+
+    private static List<Integer> xs(Room.CanvasReplay replay) {
+        return replay.getEvents().stream().map(DrawingEvent::getX1).toList();
+    }
+
+    private static DrawingEvent event(String sessionId, int x) {
+        DrawingEvent event = new DrawingEvent();
+        event.setSessionId(sessionId);
+        event.setX1(x);
+        return event;
+    }
+
+    private static Session session(String id) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getId":
+                        return id;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+}
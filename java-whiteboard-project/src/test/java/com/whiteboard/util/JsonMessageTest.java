@@ -0,0 +1,170 @@
+package com.whiteboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonMessageTest {
+
+    @Test
+    void readsFlatFields() {
+        JsonMessage message = JsonMessage.parse(
+            " { \"type\" : \"draw\", \"x\": 12, \"y\": -7, \"on\": true, \"off\": false, \"none\": null } ");
+
+        assertTrue(message.isValid());
+        assertEquals(6, message.size());
+        assertEquals("draw", message.getString("type"));
+        assertEquals(12, message.getInt("x"));
+        assertEquals(-7L, message.getLong("y"));
+        assertTrue(message.getBoolean("on"));
+        assertFalse(message.getBoolean("off"));
+        assertTrue(message.has("none"));
+        assertNull(message.getString("none"));
+        assertEquals(JsonMessage.TYPE_NULL, message.typeOf("none"));
+        assertFalse(message.has("missing"));
+    }
+
+    @Test
+    void unescapesStringsAndControlCharacters() {
+        JsonMessage message = JsonMessage.parse(
+            "{\"text\":\"say \\\"hi\\\"\\n\\tback\\\\slash\\/ \\b\\f\\r\"}");
+
+        assertEquals("say \"hi\"\n\tback\\slash/ \b\f\r", message.getString("text"));
+    }
+
+    @Test
+    void decodesUnicodeEscapesAndSurrogatePairs() {
+        JsonMessage message = JsonMessage.parse(
+            "{\"accent\":\"caf\\u00e9\",\"nul\":\"a\\u0000b\",\"emoji\":\"\\ud83d\\ude00\",\"literal\":\"😀\"}");
+
+        assertEquals("café", message.getString("accent"));
+        assertEquals("a\u0000b", message.getString("nul"));
+        assertEquals("😀", message.getString("emoji"));
+        assertEquals("😀", message.getString("literal"));
+    }
+
+    @Test
+    void skipsNestedObjectsAndArrays() {
+        String points = "[[1,2],{\"x\":\"]}\\\"\"},[]]";
+        JsonMessage message = JsonMessage.parse(
+            "{\"style\":{\"type\":\"inner\",\"dash\":[1,2]},\"points\":" + points + ",\"type\":\"shape\"}");
+
+        assertTrue(message.isValid());
+        assertEquals(3, message.size());
+        assertEquals("shape", message.getString("type"));
+        assertEquals(JsonMessage.TYPE_OBJECT, message.typeOf("style"));
+        assertEquals(JsonMessage.TYPE_ARRAY, message.typeOf("points"));
+        assertEquals(points, message.getString("points"));
+    }
+
+    @Test
+    void peekTypeSkipsNestedValuesBeforeTheType() {
+        JsonMessage message = new JsonMessage();
+
+        assertEquals("draw", message.peekType("{\"data\":{\"type\":\"inner\"},\"list\":[\"type\"],\"type\":\"draw\"}"));
+        assertEquals("cursor", message.peekType("{\"type\":\"cursor\",\"x\":"));
+        assertEquals("esc\"aped", message.peekType("{\"type\":\"esc\\\"aped\"}"));
+        assertNull(message.peekType("{\"x\":1}"));
+        assertNull(message.peekType("[\"type\",\"draw\"]"));
+        assertNull(message.peekType("{\"x\":{\"type\":\"draw\""));
+        assertNull(message.peekType(null));
+        assertEquals(0, message.size());
+    }
+
+    @Test
+    void readsNumbersWithFractionsAndExponents() {
+        JsonMessage message = JsonMessage.parse(
+            "{\"a\":1e3,\"b\":-2.5E-3,\"c\":4.75,\"d\":12345678901234,\"e\":1E+2,\"s\":\"42\"}");
+
+        assertTrue(message.isValid());
+        assertEquals(1000, message.getInt("a"));
+        assertEquals(-0.0025, message.getDouble("b", 0), 1e-12);
+        assertEquals(4, message.getInt("c"));
+        assertEquals(4.75, message.getDouble("c", 0), 1e-12);
+        assertEquals(12345678901234L, message.getLong("d"));
+        assertEquals(100L, message.getLong("e"));
+        assertEquals(42, message.getInt("s"));
+        assertEquals(-1, message.getInt("missing", -1));
+    }
+
+    @Test
+    void keepsCompleteFieldsOfTruncatedMessages() {
+        JsonMessage message = JsonMessage.parse("{\"type\":\"draw\",\"x\":12,\"points\":[[1,2],[3");
+
+        assertFalse(message.isValid());
+        assertEquals("draw", message.getString("type"));
+        assertEquals(12, message.getInt("x"));
+    }
+
+    @Test
+    void rejectsMalformedMessages() {
+        String[] malformed = {
+            "", "   ", "null", "[1,2]", "{", "{\"type\"", "{\"type\":}", "{\"type\" \"draw\"}",
+            "{\"type\":\"draw\",}", "{\"type\":\"draw\"", "{\"type\":\"dr", "{\"a\":tru}", "{\"a\":1 \"b\":2}",
+            "{type:\"draw\"}"
+        };
+        for (String json : malformed) {
+            assertFalse(JsonMessage.parse(json).isValid(), json);
+        }
+        assertFalse(JsonMessage.parse(null).isValid());
+        assertTrue(JsonMessage.parse("{}").isValid());
+    }
+
+    @Test
+    void resetReusesTheViewForTheNextMessage() {
+        JsonMessage message = JsonMessage.parse("{\"a\":1,\"b\":2,\"c\":3}");
+
+        message.reset("{\"b\":\"two\"}");
+
+        assertEquals(1, message.size());
+        assertFalse(message.has("a"));
+        assertEquals("two", message.getString("b"));
+    }
+
+    @Test
+    void growsPastTheInitialFieldCapacity() {
+        JsonWriter out = JsonWriter.get().beginObject();
+        for (int i = 0; i < 40; i++) {
+            out.field("f" + i, i);
+        }
+        JsonMessage message = JsonMessage.parse(out.endObject().build());
+
+        assertTrue(message.isValid());
+        assertEquals(40, message.size());
+        assertEquals(39, message.getInt("f39"));
+    }
+
+    @Test
+    void writeRawCopiesValuesVerbatim() {
+        JsonMessage message = JsonMessage.parse("{\"text\":\"a\\nb\",\"points\":[1, 2],\"n\":-3}");
+
+        String json = message.writeRaw("points",
+            message.writeRaw("text", JsonWriter.get().beginObject().name("text")).name("points"))
+            .endObject().build();
+
+        assertEquals("{\"text\":\"a\\nb\",\"points\":[1, 2]}", json);
+        assertEquals(2, message.rawLength("n"));
+        assertEquals(-1, message.rawLength("missing"));
+    }
+
+    @Test
+    void releasedViewsComeBackEmpty() {
+        JsonMessage message = JsonMessage.acquire();
+        message.reset("{\"type\":\"draw\"}");
+        message.release();
+        message.release();
+
+        JsonMessage next = JsonMessage.acquire();
+        JsonMessage other = JsonMessage.acquire();
+
+        assertEquals(0, next.size());
+        assertNull(next.source());
+        // A view released twice is still handed out only once
+        assertFalse(next == other);
+        next.release();
+        other.release();
+    }
+}
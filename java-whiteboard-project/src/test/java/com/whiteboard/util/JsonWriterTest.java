@@ -0,0 +1,108 @@
+package com.whiteboard.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonWriterTest {
+
+    @Test
+    void writesObjectsArraysAndSeparators() {
+        String json = JsonWriter.get().beginObject()
+            .field("type", "userList")
+            .field("count", 2)
+            .field("boardId", (Long) null)
+            .field("owner", true)
+            .name("users").beginArray()
+                .beginObject().field("name", "a").endObject()
+                .beginObject().field("name", "b").endObject()
+                .value(7).value(false).value((String) null)
+            .endArray()
+            .name("empty").beginArray().endArray()
+            .endObject().build();
+
+        assertEquals("{\"type\":\"userList\",\"count\":2,\"boardId\":null,\"owner\":true,"
+            + "\"users\":[{\"name\":\"a\"},{\"name\":\"b\"},7,false,null],\"empty\":[]}", json);
+    }
+
+    @Test
+    void escapesQuotesBackslashesAndControlCharacters() {
+        assertEquals("\"say \\\"hi\\\" \\\\ \\n\\r\\t\\b\\f\"", JsonWriter.quote("say \"hi\" \\ \n\r\t\b\f"));
+        assertEquals("\"\\u0000\\u001f\\u0001\"", JsonWriter.quote("\u0000\u001f\u0001"));
+        assertEquals("\"/ café \u007f\"", JsonWriter.quote("/ café \u007f"));
+        assertEquals("null", JsonWriter.quote(null));
+    }
+
+    @Test
+    void keepsSurrogatePairsIntact() {
+        String emoji = "😀 and 👋";
+
+        assertEquals("\"" + emoji + "\"", JsonWriter.quote(emoji));
+    }
+
+    @Test
+    void writesLongBoundaries() {
+        String json = JsonWriter.get().beginArray()
+            .value(0).value(-1).value(Long.MAX_VALUE).value(Long.MIN_VALUE).value(1_000_000_000_000L)
+            .endArray().build();
+
+        assertEquals("[0,-1,9223372036854775807,-9223372036854775808,1000000000000]", json);
+    }
+
+    @Test
+    void roundTripsThroughJsonMessage() {
+        String text = "line\nbreak \"quoted\" \\ tab\t nul\u0000 bell\u0007 😀";
+        String json = JsonWriter.get().beginObject()
+            .field("type", "text")
+            .field("text", text)
+            .field("x", -42)
+            .rawField("style", "{\"color\":\"#000\"}")
+            .endObject().build();
+
+        JsonMessage message = JsonMessage.parse(json);
+
+        assertTrue(message.isValid());
+        assertEquals(text, message.getString("text"));
+        assertEquals(-42, message.getInt("x"));
+        assertEquals("{\"color\":\"#000\"}", message.getString("style"));
+    }
+
+    @Test
+    void growsForLargePayloads() {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            large.append((char) ('a' + i % 26));
+        }
+        String json = JsonWriter.get().reserve(16).beginObject().field("canvas", large.toString()).endObject().build();
+
+        assertEquals(large.length() + 13, json.length());
+        // The next message starts from an empty writer
+        assertEquals("{}", JsonWriter.get().beginObject().endObject().build());
+    }
+
+    @Test
+    void writersInUseAreNotShared() {
+        JsonWriter outer = JsonWriter.get().beginObject().field("a", 1);
+        JsonWriter inner = JsonWriter.get();
+
+        assertNotSame(outer, inner);
+        assertEquals("{\"b\":2}", inner.beginObject().field("b", 2).endObject().build());
+        assertEquals("{\"a\":1}", outer.endObject().build());
+    }
+
+    @Test
+    void releasingTwiceDoesNotShareAWriter() {
+        JsonWriter writer = JsonWriter.get();
+        writer.release();
+        writer.release();
+
+        JsonWriter first = JsonWriter.get();
+        JsonWriter second = JsonWriter.get();
+
+        assertNotSame(first, second);
+        first.release();
+        second.release();
+    }
+}
@@ -0,0 +1,102 @@
+package com.whiteboard.websocket;
+
+import com.whiteboard.model.Room;
+import com.whiteboard.util.JsonMessage;
+import org.junit.jupiter.api.Test;
+
+import javax.websocket.Session;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PresenceChannelTest {
+
+    private final LinkedBlockingQueue<Delivered> delivered = new LinkedBlockingQueue<>();
+    private final PresenceChannel channel =
+        new PresenceChannel((room, update, snapshot) -> delivered.add(new Delivered(update, snapshot)));
+    private final Room room = new Room(session("owner"));
+
+    @Test
+    void updatesCarryOnlyWhatChanged() throws InterruptedException {
+        channel.update(room, "a", "alice", 1, 1);
+        JsonMessage first = next().update();
+        assertTrue(first.getString("cursors").contains("\"sessionId\":\"a\""));
+
+        channel.update(room, "b", "bob", 2, 2);
+        JsonMessage second = next().update();
+        assertTrue(second.getString("cursors").contains("\"sessionId\":\"b\""));
+        assertFalse(second.getString("cursors").contains("\"sessionId\":\"a\""));
+        assertFalse(second.has("removed"));
+        assertTrue(second.getLong("seq") > first.getLong("seq"));
+
+        channel.remove(room, "a");
+        JsonMessage third = next().update();
+        assertEquals("[]", third.getString("cursors"));
+        assertEquals("[\"a\"]", third.getString("removed"));
+    }
+
+    @Test
+    void unchangedPositionsSendNothing() throws InterruptedException {
+        channel.update(room, "a", "alice", 5, 5);
+        next();
+
+        channel.update(room, "a", "alice", 5, 5);
+
+        assertNull(delivered.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void snapshotListsEveryCursor() throws InterruptedException {
+        channel.update(room, "a", "alice", 1, 1);
+        next();
+        channel.update(room, "b", "bob", 2, 2);
+        Delivered latest = next();
+
+        JsonMessage snapshot = JsonMessage.parse(latest.snapshot().get().getText());
+
+        assertTrue(snapshot.getBoolean("full"));
+        assertEquals(latest.update().getLong("seq"), snapshot.getLong("seq"));
+        assertTrue(snapshot.getString("cursors").contains("\"sessionId\":\"a\""));
+        assertTrue(snapshot.getString("cursors").contains("\"sessionId\":\"b\""));
+        // Built once and shared by every member that needs it
+        assertSame(latest.snapshot().get(), latest.snapshot().get());
+    }
+
+    private Delivered next() throws InterruptedException {
+        Delivered next = delivered.poll(5, TimeUnit.SECONDS);
+        assertNotNull(next, "no presence update delivered");
+        return next;
+    }
+
+    private static Session session(String id) {
+        return (Session) Proxy.newProxyInstance(Session.class.getClassLoader(), new Class<?>[] { Session.class },
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getId":
+                        return id;
+                    case "isOpen":
+                        return true;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private record Delivered(OutboundFrame frame, Supplier<OutboundFrame> snapshot) {
+        JsonMessage update() {
+            return JsonMessage.parse(frame.getText());
+        }
+    }
+}
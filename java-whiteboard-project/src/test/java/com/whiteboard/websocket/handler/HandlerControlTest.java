@@ -0,0 +1,70 @@
+package com.whiteboard.websocket.handler;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HandlerControlTest {
+
+    private static final String[] TYPE_ARG = { String.class.getName() };
+
+    private final HandlerRegistry registry = new HandlerRegistry();
+    private final AtomicInteger handled = new AtomicInteger();
+    private final MBeanServer server = MBeanServerFactory.newMBeanServer();
+    private ObjectName name;
+
+    @BeforeEach
+    void register() throws Exception {
+        registry.register("draw", (message, context) -> handled.incrementAndGet());
+        registry.register("chat", (message, context) -> handled.incrementAndGet());
+        name = new ObjectName(HandlerControl.OBJECT_NAME);
+        server.registerMBean(new HandlerControl(registry), name);
+    }
+
+    @Test
+    void disablesAndEnablesTypesAtRuntime() throws Exception {
+        assertEquals(true, server.invoke(name, "disable", new Object[] { "draw" }, TYPE_ARG));
+
+        assertFalse(registry.isEnabled("draw"));
+        assertEquals(HandlerRegistry.Result.DISABLED, registry.dispatch("draw", null, null));
+        assertArrayEquals(new String[] { "draw" }, (String[]) server.getAttribute(name, "DisabledTypes"));
+
+        assertEquals(true, server.invoke(name, "enable", new Object[] { "draw" }, TYPE_ARG));
+
+        assertTrue(registry.isEnabled("draw"));
+        assertEquals(HandlerRegistry.Result.HANDLED, registry.dispatch("draw", null, null));
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    void unknownTypesAreReported() throws Exception {
+        assertEquals(false, server.invoke(name, "disable", new Object[] { "nope" }, TYPE_ARG));
+    }
+
+    @Test
+    void exposesPerTypeStats() throws Exception {
+        registry.dispatch("chat", null, null);
+        registry.setEnabled("draw", false);
+        registry.dispatch("draw", null, null);
+
+        CompositeData[] stats = (CompositeData[]) server.getAttribute(name, "Stats");
+
+        assertEquals(2, stats.length);
+        assertEquals("chat", stats[0].get("type"));
+        assertEquals(1L, stats[0].get("invocations"));
+        assertEquals("draw", stats[1].get("type"));
+        assertEquals(false, stats[1].get("enabled"));
+        assertEquals(1L, stats[1].get("rejected"));
+        assertArrayEquals(new String[] { "chat", "draw" }, (String[]) server.getAttribute(name, "Types"));
+    }
+}